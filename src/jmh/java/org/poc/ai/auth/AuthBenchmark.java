@@ -0,0 +1,48 @@
+package org.poc.ai.auth;
+
+import com.google.auth.oauth2.AccessToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cached access token path, which every API call goes through
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthBenchmark {
+    
+    private GoogleAuthService authService;
+    
+    @Setup
+    public void setup() throws IOException {
+        authService = new GoogleAuthService("unused") {
+            @Override
+            protected AccessToken fetchToken() {
+                return new AccessToken("bench-token", new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+            }
+        };
+        authService.getAccessToken();
+    }
+    
+    @Benchmark
+    public String getAccessToken() throws IOException {
+        return authService.getAccessToken();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public String getAccessTokenContended() throws IOException {
+        return authService.getAccessToken();
+    }
+}
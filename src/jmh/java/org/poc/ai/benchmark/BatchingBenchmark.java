@@ -0,0 +1,128 @@
+package org.poc.ai.benchmark;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.poc.ai.auth.StaticTokenAuthService;
+import org.poc.ai.batch.BatchConfig;
+import org.poc.ai.batch.BatchingClient;
+import org.poc.ai.batch.ClientBatchBackend;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.stub.LatencyDistribution;
+import org.poc.ai.stub.StubServerConfig;
+import org.poc.ai.stub.VertexStubServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a burst of independent prompts to a stub with 20 ms latency, either straight through
+ * a pool of worker threads or through a {@link BatchingClient} whose {@link ClientBatchBackend}
+ * has the same number of workers. The score is prompts per second, so the difference is what
+ * batching costs or gains on the same connection budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchingBenchmark {
+    
+    private static final int PROMPTS = 500;
+    
+    @Param({"16", "64"})
+    public int workers;
+    
+    @Param({"32"})
+    public int maxBatchSize;
+    
+    @Param({"5"})
+    public long batchWindowMillis;
+    
+    private VertexStubServer server;
+    private ExecutorService pool;
+    private VertexAiClient client;
+    private ClientBatchBackend backend;
+    private BatchingClient batchingClient;
+    private List<GeminiRequest> requests;
+    
+    @Setup
+    public void setup() throws IOException {
+        StubServerConfig stubConfig = new StubServerConfig();
+        stubConfig.setLatency(LatencyDistribution.fixed(Duration.ofMillis(20)));
+        server = new VertexStubServer(stubConfig);
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(workers, 5, TimeUnit.MINUTES))
+                .build();
+        client = new VertexAiClient(new StaticTokenAuthService("bench-token"), httpClient, "bench-project",
+                "us-central1", "google", "gemini-flash", server.getBaseUrl());
+        pool = Executors.newFixedThreadPool(workers);
+        
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setMaxBatchSize(maxBatchSize);
+        batchConfig.setBatchWindowMillis(batchWindowMillis);
+        backend = new ClientBatchBackend(client, workers);
+        batchingClient = new BatchingClient(backend, batchConfig);
+        
+        requests = new ArrayList<>();
+        for (int i = 0; i < PROMPTS; i++) {
+            requests.add(BenchmarkData.request(200));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        batchingClient.close();
+        backend.close();
+        pool.shutdownNow();
+        server.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(PROMPTS)
+    public int unbatched() throws InterruptedException, ExecutionException {
+        List<Callable<GeminiResponse>> calls = new ArrayList<>(requests.size());
+        for (GeminiRequest request : requests) {
+            calls.add(() -> client.generateContent(request));
+        }
+        int completed = 0;
+        for (Future<GeminiResponse> result : pool.invokeAll(calls)) {
+            result.get();
+            completed++;
+        }
+        return completed;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(PROMPTS)
+    public int batched() throws InterruptedException, ExecutionException {
+        List<CompletableFuture<GeminiResponse>> results = new ArrayList<>(requests.size());
+        for (GeminiRequest request : requests) {
+            results.add(batchingClient.submit(request));
+        }
+        int completed = 0;
+        for (CompletableFuture<GeminiResponse> result : results) {
+            result.get();
+            completed++;
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,78 @@
+package org.poc.ai.benchmark;
+
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds representative requests and responses for the benchmarks
+ */
+final class BenchmarkData {
+    
+    private BenchmarkData() {
+    }
+    
+    /**
+     * @param promptLength approximate prompt length in characters
+     */
+    static GeminiRequest request(int promptLength) {
+        GeminiRequest request = GeminiRequest.createTextRequest(text(promptLength));
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.2);
+        config.setMaxOutputTokens(1024);
+        config.setTopP(0.95);
+        config.setTopK(40);
+        request.setGenerationConfig(config);
+        return request;
+    }
+    
+    /**
+     * @param candidates number of candidates in the response
+     * @param textLength approximate text length of each candidate in characters
+     */
+    static GeminiResponse response(int candidates, int textLength) {
+        List<GeminiResponse.Candidate> list = new ArrayList<>();
+        for (int i = 0; i < candidates; i++) {
+            GeminiRequest.Part part = new GeminiRequest.Part();
+            part.setText(text(textLength));
+            GeminiRequest.Content content = new GeminiRequest.Content();
+            content.setParts(List.of(part));
+            content.setRole("model");
+            
+            List<GeminiResponse.SafetyRating> ratings = new ArrayList<>();
+            for (String category : new String[] {"HARM_CATEGORY_HATE_SPEECH", "HARM_CATEGORY_DANGEROUS_CONTENT",
+                    "HARM_CATEGORY_HARASSMENT", "HARM_CATEGORY_SEXUALLY_EXPLICIT"}) {
+                GeminiResponse.SafetyRating rating = new GeminiResponse.SafetyRating();
+                rating.setCategory(category);
+                rating.setProbability("NEGLIGIBLE");
+                ratings.add(rating);
+            }
+            
+            GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+            candidate.setContent(content);
+            candidate.setFinishReason("STOP");
+            candidate.setIndex(i);
+            candidate.setSafetyRatings(ratings);
+            list.add(candidate);
+        }
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setPromptTokenCount(500);
+        usage.setCandidatesTokenCount(candidates * textLength / 4);
+        usage.setTotalTokenCount(usage.getPromptTokenCount() + usage.getCandidatesTokenCount());
+        GeminiResponse response = new GeminiResponse();
+        response.setCandidates(list);
+        response.setUsageMetadata(usage);
+        return response;
+    }
+    
+    private static String text(int length) {
+        String sentence = "The quick brown fox jumps over the lazy dog, then asks: \"what's <next>?\"\n";
+        StringBuilder text = new StringBuilder(length + sentence.length());
+        while (text.length() < length) {
+            text.append(sentence);
+        }
+        return text.toString();
+    }
+}
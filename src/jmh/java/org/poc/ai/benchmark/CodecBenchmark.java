@@ -0,0 +1,88 @@
+package org.poc.ai.benchmark;
+
+import com.google.gson.Gson;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.model.LazyGeminiResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reflective Gson serialization through intermediate Strings, as the client used
+ * to do, with the streaming GeminiJsonCodec. The generatedText benchmarks read what a typical
+ * caller uses, the text and the token usage, from a fully parsed and from a lazy response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+    
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Gson gson = new Gson();
+    
+    @Param({"1", "8", "32"})
+    public int candidates;
+    
+    private GeminiRequest request;
+    private ByteString responseBytes;
+    
+    @Setup
+    public void setup() {
+        request = BenchmarkData.request(2_000);
+        responseBytes = ByteString.encodeUtf8(gson.toJson(BenchmarkData.response(candidates, 2_000)));
+    }
+    
+    @Benchmark
+    public Buffer writeRequestGson() throws IOException {
+        Buffer sink = new Buffer();
+        RequestBody.create(gson.toJson(request), JSON).writeTo(sink);
+        return sink;
+    }
+    
+    @Benchmark
+    public Buffer writeRequestCodec() throws IOException {
+        Buffer sink = new Buffer();
+        GeminiJsonCodec.writeRequest(request, sink);
+        return sink;
+    }
+    
+    @Benchmark
+    public GeminiResponse readResponseGson() {
+        Buffer source = new Buffer().write(responseBytes);
+        return gson.fromJson(source.readUtf8(), GeminiResponse.class);
+    }
+    
+    @Benchmark
+    public GeminiResponse readResponseCodec() throws IOException {
+        return GeminiJsonCodec.readResponse(new Buffer().write(responseBytes));
+    }
+    
+    @Benchmark
+    public void generatedTextCodec(Blackhole blackhole) throws IOException {
+        GeminiResponse response = GeminiJsonCodec.readResponse(new Buffer().write(responseBytes));
+        blackhole.consume(response.getUsageMetadata().getTotalTokenCount());
+        blackhole.consume(response.getGeneratedText());
+    }
+    
+    @Benchmark
+    public void generatedTextLazy(Blackhole blackhole) throws IOException {
+        GeminiResponse response = LazyGeminiResponse.read(new Buffer().write(responseBytes));
+        blackhole.consume(response.getUsageMetadata().getTotalTokenCount());
+        blackhole.consume(response.getGeneratedText());
+    }
+}
@@ -0,0 +1,79 @@
+package org.poc.ai.benchmark;
+
+import com.google.auth.oauth2.AccessToken;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.stub.StubServerConfig;
+import org.poc.ai.stub.VertexStubServer;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full generateContent call path, including serialization, auth and the HTTP
+ * round trip, against an in-process stub server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GenerateContentBenchmark {
+    
+    @Param({"1", "8"})
+    public int candidates;
+    
+    private VertexStubServer server;
+    private VertexAiClient client;
+    private GeminiRequest request;
+    
+    @Setup
+    public void setup() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setCandidates(candidates);
+        config.setResponseTokens(180);
+        server = new VertexStubServer(config);
+        GoogleAuthService authService = new GoogleAuthService("unused") {
+            @Override
+            protected AccessToken fetchToken() {
+                return new AccessToken("bench-token", new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+            }
+        };
+        client = new VertexAiClient(authService, new OkHttpClient(), "bench-project", "us-central1",
+                "google", "gemini-flash", server.getBaseUrl());
+        request = BenchmarkData.request(1_000);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+    
+    @Benchmark
+    public GeminiResponse generateContent() throws IOException {
+        return client.generateContent(request);
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public GeminiResponse generateContentConcurrent() throws IOException {
+        return client.generateContent(request);
+    }
+    
+    @Benchmark
+    public GeminiResponse generateContentAsync() throws Exception {
+        return client.generateContentAsync(request).get();
+    }
+}
@@ -0,0 +1,102 @@
+package org.poc.ai.benchmark;
+
+import com.google.gson.Gson;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.PromptTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of building the body of a request that only differs from the last one in a
+ * short question, behind a long system instruction, generation config and safety settings:
+ * <ul>
+ *   <li>{@code buildGson}: build the model objects and serialize them with Gson</li>
+ *   <li>{@code buildCodec}: build the model objects and stream them with the codec</li>
+ *   <li>{@code template}: splice the question into a compiled {@link PromptTemplate}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PromptTemplateBenchmark {
+    
+    private static final Gson gson = new Gson();
+    private static final String[] CATEGORIES = {
+            "HARM_CATEGORY_HARASSMENT", "HARM_CATEGORY_HATE_SPEECH",
+            "HARM_CATEGORY_SEXUALLY_EXPLICIT", "HARM_CATEGORY_DANGEROUS_CONTENT"
+    };
+    
+    private String instruction;
+    private String question;
+    private PromptTemplate template;
+    private final Buffer buffer = new Buffer();
+    
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 4096) {
+            text.append("You are a support assistant for an online store. Answer in at most three sentences, ")
+                    .append("quote the order number when it is given and never invent \"policies\".\n");
+        }
+        instruction = text.toString();
+        question = "Where is my order #10442? It was due on Monday and the tracking page says 'label created'.";
+        template = PromptTemplate.compile(build(PromptTemplate.DEFAULT_SLOT));
+    }
+    
+    @Benchmark
+    public long buildGson() {
+        return gson.toJson(build(question)).getBytes(StandardCharsets.UTF_8).length;
+    }
+    
+    @Benchmark
+    public long buildCodec() throws IOException {
+        GeminiJsonCodec.writeRequest(build(question), buffer);
+        return drain();
+    }
+    
+    @Benchmark
+    public long template() throws IOException {
+        template.newRequest(question).writeTo(buffer);
+        return drain();
+    }
+    
+    private long drain() {
+        long size = buffer.size();
+        buffer.clear();
+        return size;
+    }
+    
+    private GeminiRequest build(String text) {
+        GeminiRequest request = GeminiRequest.createTextRequest(text);
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        part.setText(instruction);
+        GeminiRequest.Content system = new GeminiRequest.Content();
+        system.setParts(List.of(part));
+        request.setSystemInstruction(system);
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.2);
+        config.setMaxOutputTokens(256);
+        config.setTopP(0.95);
+        request.setGenerationConfig(config);
+        GeminiRequest.SafetySetting[] settings = new GeminiRequest.SafetySetting[CATEGORIES.length];
+        for (int i = 0; i < settings.length; i++) {
+            settings[i] = new GeminiRequest.SafetySetting();
+            settings[i].setCategory(CATEGORIES[i]);
+            settings[i].setThreshold("BLOCK_ONLY_HIGH");
+        }
+        request.setSafetySettings(settings);
+        return request;
+    }
+}
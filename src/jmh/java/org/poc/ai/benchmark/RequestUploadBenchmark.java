@@ -0,0 +1,128 @@
+package org.poc.ai.benchmark;
+
+import com.google.gson.Gson;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compares ways of uploading a multi-megabyte document prompt. The sink discards its input,
+ * standing in for the socket, so allocation (run with {@code -prof gc}) shows what each path
+ * keeps on the heap:
+ * <ul>
+ *   <li>{@code readStringGson}: read the file into a String, Gson to a second String, then bytes</li>
+ *   <li>{@code readStringCodec}: read the file into a String and stream it with the codec</li>
+ *   <li>{@code filePart}: stream the file through the codec without building a String</li>
+ *   <li>{@code filePartGzip}: the same, gzip-compressed as the client does with request compression on</li>
+ *   <li>{@code inlineDataString}: read an image into a byte array, base64 it into a String and write that</li>
+ *   <li>{@code inlineDataStreamed}: base64-encode the image file while streaming it</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestUploadBenchmark {
+    
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Gson gson = new Gson();
+    
+    @Param({"1048576", "8388608"})
+    public int documentBytes;
+    
+    private Path file;
+    private GeminiRequest filePartRequest;
+    private GeminiRequest inlineDataRequest;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String text = BenchmarkData.request(documentBytes).getContents().get(0).getParts().get(0).getText();
+        file = Files.createTempFile("upload-benchmark", ".txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        filePartRequest = request(GeminiRequest.Part.fromFile(file));
+        inlineDataRequest = request(GeminiRequest.Part.inlineData("image/png", file));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public long readStringGson() throws IOException {
+        GeminiRequest request = GeminiRequest.createTextRequest(Files.readString(file));
+        BufferedSink sink = Okio.buffer(Okio.blackhole());
+        RequestBody body = RequestBody.create(gson.toJson(request), JSON);
+        body.writeTo(sink);
+        sink.close();
+        return body.contentLength();
+    }
+    
+    @Benchmark
+    public long readStringCodec() throws IOException {
+        GeminiRequest request = GeminiRequest.createTextRequest(Files.readString(file));
+        return write(request, Okio.buffer(Okio.blackhole()));
+    }
+    
+    @Benchmark
+    public long filePart() throws IOException {
+        return write(filePartRequest, Okio.buffer(Okio.blackhole()));
+    }
+    
+    @Benchmark
+    public long filePartGzip() throws IOException {
+        GzipSink gzip = new GzipSink(Okio.blackhole());
+        gzip.deflater().setLevel(Deflater.BEST_SPEED);
+        return write(filePartRequest, Okio.buffer(gzip));
+    }
+    
+    @Benchmark
+    public long inlineDataString() throws IOException {
+        GeminiRequest.Blob blob = new GeminiRequest.Blob();
+        blob.setMimeType("image/png");
+        blob.setData(Base64.getEncoder().encodeToString(Files.readAllBytes(file)));
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        part.setInlineData(blob);
+        return write(request(part), Okio.buffer(Okio.blackhole()));
+    }
+    
+    @Benchmark
+    public long inlineDataStreamed() throws IOException {
+        return write(inlineDataRequest, Okio.buffer(Okio.blackhole()));
+    }
+    
+    private static long write(GeminiRequest request, BufferedSink sink) throws IOException {
+        GeminiJsonCodec.writeRequest(request, sink);
+        long buffered = sink.getBuffer().size();
+        sink.close();
+        return buffered;
+    }
+    
+    private static GeminiRequest request(GeminiRequest.Part part) {
+        GeminiRequest request = GeminiRequest.createTextRequest(null);
+        request.getContents().get(0).setParts(List.of(part));
+        return request;
+    }
+}
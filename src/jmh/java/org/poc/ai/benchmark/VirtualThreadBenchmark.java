@@ -0,0 +1,92 @@
+package org.poc.ai.benchmark;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.poc.ai.auth.StaticTokenAuthService;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.stub.LatencyDistribution;
+import org.poc.ai.stub.StubServerConfig;
+import org.poc.ai.stub.VertexStubServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans a batch of blocking generateContent calls out against a stub with 100 ms latency,
+ * either on a fixed pool of platform threads or with generateContentAll on virtual threads.
+ * The score is the time for the whole batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmark {
+    
+    private static final int BATCH_SIZE = 1_000;
+    
+    /**
+     * Threads in the platform pool, and the concurrency limit for virtual threads
+     */
+    @Param({"64", "1000"})
+    public int concurrency;
+    
+    private VertexStubServer server;
+    private VertexAiClient client;
+    private ExecutorService platformPool;
+    private List<GeminiRequest> requests;
+    
+    @Setup
+    public void setup() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setLatency(LatencyDistribution.fixed(Duration.ofMillis(100)));
+        server = new VertexStubServer(config);
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+                .build();
+        client = new VertexAiClient(new StaticTokenAuthService("bench-token"), httpClient, "bench-project",
+                "us-central1", "google", "gemini-flash", server.getBaseUrl());
+        platformPool = Executors.newFixedThreadPool(concurrency);
+        requests = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.add(BenchmarkData.request(200));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        platformPool.shutdownNow();
+        server.close();
+    }
+    
+    @Benchmark
+    public List<Future<GeminiResponse>> platformThreads() throws InterruptedException {
+        List<Callable<GeminiResponse>> calls = new ArrayList<>(requests.size());
+        for (GeminiRequest request : requests) {
+            calls.add(() -> client.generateContent(request));
+        }
+        return platformPool.invokeAll(calls);
+    }
+    
+    @Benchmark
+    public List<CompletableFuture<GeminiResponse>> virtualThreads() throws InterruptedException {
+        return client.generateContentAll(requests, concurrency);
+    }
+}
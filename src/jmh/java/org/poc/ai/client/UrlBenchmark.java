@@ -0,0 +1,49 @@
+package org.poc.ai.client;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generateContent URL construction, against formatting and parsing the URL on
+ * every call as the client originally did
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UrlBenchmark {
+    
+    private VertexAiClient client;
+    private RegionalEndpoint regional;
+    
+    @Setup
+    public void setup() {
+        client = new VertexAiClient(null, new OkHttpClient(), "bench-project", "us-central1",
+                "google", "gemini-flash", "https://us-central1-aiplatform.googleapis.com");
+        regional = RegionalEndpoint.forLocation("europe-west4");
+    }
+    
+    @Benchmark
+    public HttpUrl configuredEndpoint() {
+        return client.generateContentUrl(null);
+    }
+    
+    @Benchmark
+    public HttpUrl regionalEndpoint() {
+        return client.generateContentUrl(regional);
+    }
+    
+    @Benchmark
+    public HttpUrl formatAndParse() {
+        return HttpUrl.get(String.format("%s/v1/projects/%s/locations/%s/publishers/%s/models/%s:generateContent",
+                "https://us-central1-aiplatform.googleapis.com", "bench-project", "us-central1", "google", "gemini-flash"));
+    }
+}
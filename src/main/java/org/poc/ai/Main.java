@@ -1,21 +1,40 @@
 package org.poc.ai;
 
 import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.auth.StaticTokenAuthService;
 import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.client.VertexAiClientFactory;
+import org.poc.ai.loadtest.LoadGenerator;
+import org.poc.ai.loadtest.LoadTestConfig;
+import org.poc.ai.loadtest.LoadTestResult;
+import org.poc.ai.loadtest.PromptSource;
+import org.poc.ai.metrics.TokenUsage;
 import org.poc.ai.model.GeminiRequest;
 import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.stub.StubServerConfig;
+import org.poc.ai.stub.VertexStubServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Main application class demonstrating how to use the Vertex AI client with Gemini Flash
  */
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
-
+    
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("loadtest")) {
+            runLoadTest(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("stub")) {
+            runStubServer(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         try {
             // Initialize authentication service
             GoogleAuthService authService = new GoogleAuthService();
@@ -54,4 +73,61 @@ public class Main {
             System.err.println("Unexpected error: " + e.getMessage());
         }
     }
+    
+    /**
+     * Drives the configured endpoint with sustained load and prints latency percentiles,
+     * throughput and errors. Point VERTEX_API_ENDPOINT at a local stub to capacity-plan offline.
+     */
+    private static void runLoadTest(String[] args) {
+        try {
+            LoadTestConfig config = LoadTestConfig.fromArgs(args);
+            GoogleAuthService authService = config.getAccessToken() != null
+                    ? new StaticTokenAuthService(config.getAccessToken())
+                    : new GoogleAuthService();
+            VertexAiClient vertexAiClient = new VertexAiClient(authService);
+            PromptSource prompts = PromptSource.fromConfig(config);
+            
+            if (config.isOpenModel()) {
+                System.out.printf("Load test: %.1f req/s for %d s with %d prompts%n",
+                        config.getTargetQps(), config.getDuration().toSeconds(), prompts.size());
+            } else {
+                System.out.printf("Load test: %d concurrent workers for %d s with %d prompts%n",
+                        config.getConcurrency(), config.getDuration().toSeconds(), prompts.size());
+            }
+            LoadTestResult result = new LoadGenerator(vertexAiClient, config, prompts, System.out).run();
+            result.print(System.out);
+            TokenUsage usage = vertexAiClient.getTokenUsageTracker().getUsage(vertexAiClient.getModelKey());
+            if (usage.getCalls() > 0) {
+                System.out.printf("Tokens: %d prompt, %d candidates, %.1f tokens/s over the last minute%n",
+                        usage.getPromptTokens(), usage.getCandidatesTokens(), usage.getTokensPerSecond());
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Load test failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Load test interrupted");
+        } finally {
+            VertexAiClientFactory.getDefault().shutdown();
+        }
+    }
+    
+    /**
+     * Serves a local Vertex AI stand-in until the process is killed, for load tests and
+     * client development without network access or quota
+     */
+    private static void runStubServer(String[] args) {
+        // Must be set before the first HttpServer is created; without it responses stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            VertexStubServer server = new VertexStubServer(StubServerConfig.fromArgs(args));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "vertex-stub-shutdown"));
+            System.out.println("Vertex AI stub listening on " + server.getBaseUrl());
+            System.out.println("Use VERTEX_API_ENDPOINT=" + server.getBaseUrl() + " to point the client at it");
+            Thread.currentThread().join();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Stub server failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.poc.ai.auth;
 
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import org.poc.ai.config.EnvironmentConfig;
@@ -8,43 +9,243 @@ import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Service for handling Google authentication using service accounts
+ * Service for handling Google authentication using service accounts.
+ * <p>
+ * The service account key is read once and the access token is cached in memory.
+ * Tokens that are close to expiry are refreshed in the background while callers keep
+ * receiving the still-valid cached token; only one refresh runs at a time. The refresh
+ * margin is capped at half of each token's lifetime, so a short-lived token is not
+ * refreshed on every call.
  */
 public class GoogleAuthService {
     private static final Logger logger = LoggerFactory.getLogger(GoogleAuthService.class);
     private static final String VERTEX_AI_SCOPE = "https://www.googleapis.com/auth/cloud-platform";
-    
+    private static final Duration DEFAULT_REFRESH_MARGIN = Duration.ofMinutes(5);
+    private static final Duration EXPIRY_SAFETY_MARGIN = Duration.ofSeconds(10);
+    private static final double MAX_REFRESH_MARGIN_RATIO = 0.5;
+
     private final String credentialsPath;
-    
+    private final Duration refreshMargin;
+    private final Clock clock;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean backgroundRefreshInFlight = new AtomicBoolean();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "google-auth-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GoogleCredentials credentials;
+    private volatile AccessToken cachedToken;
+    // Written before cachedToken, so it is never older than the token a reader sees
+    private volatile long refreshAtMillis;
+
     public GoogleAuthService() {
         this.credentialsPath = EnvironmentConfig.get("GOOGLE_APPLICATION_CREDENTIALS");
         if (this.credentialsPath == null) {
             throw new IllegalStateException("GOOGLE_APPLICATION_CREDENTIALS environment variable is not set");
         }
+        this.refreshMargin = DEFAULT_REFRESH_MARGIN;
+        this.clock = Clock.systemUTC();
     }
-    
+
     public GoogleAuthService(String credentialsPath) {
+        this(credentialsPath, DEFAULT_REFRESH_MARGIN);
+    }
+
+    /**
+     * Constructor with a custom refresh margin
+     *
+     * @param credentialsPath path to the service account key file
+     * @param refreshMargin how long before expiry the token is refreshed in the background,
+     *        at most half of the token's lifetime
+     * @throws IllegalArgumentException if the margin is not positive
+     */
+    public GoogleAuthService(String credentialsPath, Duration refreshMargin) {
+        this(credentialsPath, refreshMargin, Clock.systemUTC());
+    }
+
+    GoogleAuthService(String credentialsPath, Duration refreshMargin, Clock clock) {
+        if (refreshMargin.isNegative() || refreshMargin.isZero()) {
+            throw new IllegalArgumentException("refreshMargin must be positive");
+        }
         this.credentialsPath = credentialsPath;
+        this.refreshMargin = refreshMargin;
+        this.clock = clock;
     }
-    
+
     /**
      * Gets an access token for Google API authentication
-     * 
+     *
      * @return the access token
      * @throws IOException if there's an error reading credentials or getting the token
      */
     public String getAccessToken() throws IOException {
-        logger.debug("Getting access token using credentials from: {}", credentialsPath);
-        
-        GoogleCredentials credentials = ServiceAccountCredentials
-                .fromStream(new FileInputStream(credentialsPath))
-                .createScoped(Collections.singleton(VERTEX_AI_SCOPE));
-        
-        // Force token refresh
-        credentials.refreshIfExpired();
-        return credentials.getAccessToken().getTokenValue();
+        String cached = cachedTokenValue();
+        if (cached != null) {
+            return cached;
+        }
+
+        return refreshBlocking().getTokenValue();
+    }
+
+    /**
+     * Gets an access token without blocking the calling thread. A cached token is returned
+     * as an already completed future; otherwise the refresh runs on the background refresh
+     * thread and concurrent callers share its result.
+     *
+     * @return a future completed with the access token, or exceptionally if it could not be obtained
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        String cached = cachedTokenValue();
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        refreshExecutor.execute(() -> {
+            try {
+                future.complete(refreshBlocking().getTokenValue());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return number of calls served from the cached token
+     */
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return number of tokens fetched from the token endpoint
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Fetches a fresh token from the token endpoint. Subclasses may override this to
+     * obtain tokens from a different source; caching and refresh scheduling still apply.
+     *
+     * @return the new access token, with its expiration time if known
+     * @throws IOException if there's an error reading credentials or getting the token
+     */
+    protected AccessToken fetchToken() throws IOException {
+        logger.debug("Fetching access token using credentials from: {}", credentialsPath);
+
+        GoogleCredentials scopedCredentials = loadCredentials();
+        scopedCredentials.refresh();
+        return scopedCredentials.getAccessToken();
+    }
+
+    /**
+     * Returns the cached token if it is still usable, scheduling a background refresh
+     * when it is about to expire
+     */
+    private String cachedTokenValue() {
+        AccessToken token = cachedToken;
+        long now = clock.millis();
+
+        if (!isUsable(token, now)) {
+            return null;
+        }
+        cacheHits.incrementAndGet();
+        if (needsRefresh(token, now)) {
+            scheduleBackgroundRefresh();
+        }
+        return token.getTokenValue();
+    }
+
+    private GoogleCredentials loadCredentials() throws IOException {
+        if (credentials == null) {
+            try (InputStream stream = new FileInputStream(credentialsPath)) {
+                credentials = ServiceAccountCredentials
+                        .fromStream(stream)
+                        .createScoped(Collections.singleton(VERTEX_AI_SCOPE));
+            }
+        }
+        return credentials;
+    }
+
+    private AccessToken refreshBlocking() throws IOException {
+        refreshLock.lock();
+        try {
+            // Another caller may have refreshed the token while we were waiting
+            AccessToken token = cachedToken;
+            long now = clock.millis();
+            if (isUsable(token, now) && !needsRefresh(token, now)) {
+                cacheHits.incrementAndGet();
+                return token;
+            }
+
+            AccessToken refreshed = fetchToken();
+            refreshCount.incrementAndGet();
+            refreshAtMillis = refreshAt(refreshed, now);
+            cachedToken = refreshed;
+            logger.debug("Access token refreshed, expires at {}", refreshed.getExpirationTime());
+            return refreshed;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void scheduleBackgroundRefresh() {
+        if (!backgroundRefreshInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                refreshBlocking();
+            } catch (IOException e) {
+                logger.warn("Background token refresh failed: {}", e.getMessage());
+            } finally {
+                backgroundRefreshInFlight.set(false);
+            }
+        });
+    }
+
+    private boolean isUsable(AccessToken token, long now) {
+        if (token == null) {
+            return false;
+        }
+        if (token.getExpirationTime() == null) {
+            return true;
+        }
+        return token.getExpirationTime().getTime() - EXPIRY_SAFETY_MARGIN.toMillis() > now;
+    }
+
+    private boolean needsRefresh(AccessToken token, long now) {
+        return token.getExpirationTime() != null && refreshAtMillis <= now;
+    }
+
+    /**
+     * A margin at least as long as the token's lifetime would make every call schedule a
+     * refresh, so it is capped at a fraction of the time from fetch to expiry
+     */
+    private long refreshAt(AccessToken token, long fetchedAt) {
+        if (token.getExpirationTime() == null) {
+            return Long.MAX_VALUE;
+        }
+        long expiresAt = token.getExpirationTime().getTime();
+        long lifetime = Math.max(0, expiresAt - fetchedAt);
+        return expiresAt - Math.min(refreshMargin.toMillis(), (long) (lifetime * MAX_REFRESH_MARGIN_RATIO));
     }
 }
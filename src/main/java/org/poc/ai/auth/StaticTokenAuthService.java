@@ -0,0 +1,21 @@
+package org.poc.ai.auth;
+
+import com.google.auth.oauth2.AccessToken;
+
+/**
+ * Auth service that always returns a fixed bearer token, for running against local stub
+ * endpoints that do not validate credentials
+ */
+public class StaticTokenAuthService extends GoogleAuthService {
+    private final String token;
+    
+    public StaticTokenAuthService(String token) {
+        super(null);
+        this.token = token;
+    }
+    
+    @Override
+    protected AccessToken fetchToken() {
+        return new AccessToken(token, null);
+    }
+}
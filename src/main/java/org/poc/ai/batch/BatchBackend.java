@@ -0,0 +1,21 @@
+package org.poc.ai.batch;
+
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Executes a batch of requests collected by the {@link BatchingClient}
+ */
+public interface BatchBackend {
+    
+    /**
+     * Dispatches a batch of requests
+     * 
+     * @param batch the requests to execute
+     * @return one future per request, in the same order as the batch
+     */
+    List<CompletableFuture<GeminiResponse>> dispatch(List<GeminiRequest> batch);
+}
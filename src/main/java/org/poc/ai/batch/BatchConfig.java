@@ -0,0 +1,43 @@
+package org.poc.ai.batch;
+
+/**
+ * Settings for the {@link BatchingClient}
+ */
+public class BatchConfig {
+    private int maxBatchSize = 32;
+    private long batchWindowMillis = 20;
+    private int queueCapacity = 10_000;
+    
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    /**
+     * @param maxBatchSize a batch is dispatched as soon as it holds this many requests
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+    
+    /**
+     * @param batchWindowMillis how long to wait for more requests after the first one of a batch arrives
+     */
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    /**
+     * @param queueCapacity maximum number of requests waiting to be batched before submitters are held back
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
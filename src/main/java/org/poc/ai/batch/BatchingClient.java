@@ -0,0 +1,223 @@
+package org.poc.ai.batch;
+
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Front-end that collects independent requests into batches and dispatches them through a
+ * {@link BatchBackend}. Each caller gets its own response future. The queue is bounded:
+ * {@link #submit(GeminiRequest)} waits for space and {@link #trySubmit(GeminiRequest)} rejects
+ * the request when the queue is full.
+ */
+public class BatchingClient implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchingClient.class);
+    
+    private final BatchBackend backend;
+    private final BatchConfig config;
+    private final BlockingQueue<PendingRequest> queue;
+    private final Thread flusher;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batchesDispatched = new AtomicLong();
+    // Enqueues hold the read lock, so close() sees every request queued before it
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+    
+    public BatchingClient(BatchBackend backend, BatchConfig config) {
+        this.backend = backend;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.flusher = new Thread(this::runFlusher, "gemini-batch-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+    
+    /**
+     * Queues a request, waiting for space if the queue is full
+     * 
+     * @param request the request to send
+     * @return a future completed with this request's response
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public CompletableFuture<GeminiResponse> submit(GeminiRequest request) throws InterruptedException {
+        PendingRequest pending = new PendingRequest(request);
+        closeLock.readLock().lockInterruptibly();
+        try {
+            ensureRunning();
+            // The flusher keeps draining until close() gets the write lock, so this cannot block forever
+            queue.put(pending);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        submitted.incrementAndGet();
+        return pending.future;
+    }
+    
+    /**
+     * Queues a request without waiting
+     * 
+     * @param request the request to send
+     * @return a future completed with this request's response, or failed with a
+     *         {@link RejectedExecutionException} if the queue is full
+     */
+    public CompletableFuture<GeminiResponse> trySubmit(GeminiRequest request) {
+        PendingRequest pending = new PendingRequest(request);
+        boolean queued;
+        closeLock.readLock().lock();
+        try {
+            ensureRunning();
+            queued = queue.offer(pending);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        if (!queued) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Batch queue is full"));
+        }
+        submitted.incrementAndGet();
+        return pending.future;
+    }
+    
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+    
+    public long getBatchesDispatched() {
+        return batchesDispatched.get();
+    }
+    
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    /**
+     * Stops accepting requests and dispatches everything still queued
+     */
+    @Override
+    public void close() throws InterruptedException {
+        // Waits for submitters already past the running check, so nothing lands after the final drain
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        flusher.interrupt();
+        flusher.join();
+    }
+    
+    private void ensureRunning() {
+        if (!running) {
+            throw new IllegalStateException("BatchingClient is closed");
+        }
+    }
+    
+    private void runFlusher() {
+        List<PendingRequest> batch = new ArrayList<>(config.getMaxBatchSize());
+        while (running) {
+            try {
+                PendingRequest first = queue.take();
+                batch.add(first);
+                
+                // Collect more requests until the batch is full or the window closes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getBatchWindowMillis());
+                while (batch.size() < config.getMaxBatchSize()) {
+                    queue.drainTo(batch, config.getMaxBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= config.getMaxBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    PendingRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                dispatchSafely(batch);
+                batch = new ArrayList<>(config.getMaxBatchSize());
+            } catch (InterruptedException e) {
+                // Closing: fall through and flush what is left
+                break;
+            }
+        }
+        
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += config.getMaxBatchSize()) {
+            dispatchSafely(batch.subList(from, Math.min(batch.size(), from + config.getMaxBatchSize())));
+        }
+    }
+    
+    private void dispatchSafely(List<PendingRequest> batch) {
+        // A failure here must not kill the flusher, or every later request would hang
+        try {
+            dispatch(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Batch dispatch failed: {}", e.getMessage());
+            fail(batch, e);
+        }
+    }
+    
+    private void dispatch(List<PendingRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<GeminiRequest> requests = new ArrayList<>(batch.size());
+        for (PendingRequest pending : batch) {
+            requests.add(pending.request);
+        }
+        
+        logger.debug("Dispatching batch of {} request(s)", requests.size());
+        batchesDispatched.incrementAndGet();
+        
+        List<CompletableFuture<GeminiResponse>> results = backend.dispatch(requests);
+        if (results == null || results.size() != batch.size()) {
+            fail(batch, new IllegalStateException("Batch backend returned "
+                    + (results == null ? "no" : results.size()) + " result(s) for " + batch.size() + " request(s)"));
+            return;
+        }
+        
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<GeminiResponse> target = batch.get(i).future;
+            results.get(i).whenComplete((response, error) -> {
+                if (error != null) {
+                    target.completeExceptionally(error);
+                } else {
+                    target.complete(response);
+                }
+            });
+        }
+    }
+    
+    private static void fail(List<PendingRequest> batch, Throwable error) {
+        for (PendingRequest pending : batch) {
+            pending.future.completeExceptionally(error);
+        }
+    }
+    
+    private static class PendingRequest {
+        private final GeminiRequest request;
+        private final CompletableFuture<GeminiResponse> future = new CompletableFuture<>();
+        
+        private PendingRequest(GeminiRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.poc.ai.batch;
+
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch backend that sends each request of a batch through a {@link VertexAiClient},
+ * using a fixed pool of worker threads to bound the number of calls in flight.
+ * {@link #dispatch(List)} waits for a free worker before handing over each request, so
+ * a saturated pool holds the {@link BatchingClient} flusher back and its bounded queue
+ * fills up instead of an unbounded executor queue.
+ */
+public class ClientBatchBackend implements BatchBackend, AutoCloseable {
+    private final VertexAiClient client;
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    
+    public ClientBatchBackend(VertexAiClient client, int workerThreads) {
+        this.client = client;
+        this.idleWorkers = new Semaphore(workerThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "gemini-batch-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public List<CompletableFuture<GeminiResponse>> dispatch(List<GeminiRequest> batch) {
+        List<CompletableFuture<GeminiResponse>> results = new ArrayList<>(batch.size());
+        for (GeminiRequest request : batch) {
+            // Uninterruptible: the flusher is interrupted on close and still dispatches what is queued
+            idleWorkers.acquireUninterruptibly();
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.generateContent(request);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    idleWorkers.release();
+                }
+            }, workers));
+        }
+        return results;
+    }
+    
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+}
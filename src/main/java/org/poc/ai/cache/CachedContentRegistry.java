@@ -0,0 +1,265 @@
+package org.poc.ai.cache;
+
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.client.VertexAiException;
+import org.poc.ai.model.CachedContent;
+import org.poc.ai.model.GeminiRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the server-side cached contents created for shared prompt prefixes.
+ * <p>
+ * Each prefix is registered under a caller-chosen key, for example a document id. The first
+ * {@link #getOrCreate} for a key uploads the prefix once; later calls return the live handle
+ * without any network call. When a handle gets within the refresh margin of its expiry, its
+ * TTL is extended. If the server has already dropped it, a new cache is created; if the
+ * extension fails for another reason, the handle is kept while it is still live and the
+ * extension is retried on the next call. Concurrent
+ * callers for the same key wait for a single upload, while other keys are not blocked.
+ */
+public class CachedContentRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(CachedContentRegistry.class);
+    
+    private final VertexAiClient client;
+    private final Duration ttl;
+    private final Duration refreshMargin;
+    private final Clock clock;
+    private final Map<String, CachedContent> handles = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    
+    /**
+     * @param client the client whose model the caches are created for
+     * @param ttl the lifetime given to new caches and to each extension
+     * @param refreshMargin how long before expiry a cache is extended
+     */
+    public CachedContentRegistry(VertexAiClient client, Duration ttl, Duration refreshMargin) {
+        this(client, ttl, refreshMargin, Clock.systemUTC());
+    }
+    
+    CachedContentRegistry(VertexAiClient client, Duration ttl, Duration refreshMargin, Clock clock) {
+        if (refreshMargin.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("refreshMargin must be shorter than ttl");
+        }
+        this.client = client;
+        this.ttl = ttl;
+        this.refreshMargin = refreshMargin;
+        this.clock = clock;
+    }
+    
+    /**
+     * Gets the live cache for a prefix, creating or extending it as needed
+     * 
+     * @param key identifies the prefix
+     * @param prefix supplies the contents to upload; only called when a new cache is created
+     * @return a live handle, normally valid for at least the refresh margin
+     * @throws IOException if the cache could not be created, or could not be extended and has expired
+     */
+    public CachedContent getOrCreate(String key, Supplier<List<GeminiRequest.Content>> prefix) throws IOException {
+        CachedContent handle = handles.get(key);
+        if (handle != null && !needsRefresh(handle)) {
+            reused.incrementAndGet();
+            return handle;
+        }
+        
+        ReentrantLock lock = lock(key);
+        try {
+            // Another caller may have created or extended it while we were waiting
+            handle = handles.get(key);
+            if (handle != null && !needsRefresh(handle)) {
+                reused.incrementAndGet();
+                return handle;
+            }
+            if (handle != null && isLive(handle)) {
+                handle = extend(handle);
+            }
+            if (handle == null || !isLive(handle)) {
+                handle = client.createCachedContent(prefix.get(), ttl);
+                created.incrementAndGet();
+                logger.debug("Created cached content {} for {}, expires at {}", handle.getName(), key, handle.getExpireTime());
+            }
+            handles.put(key, handle);
+            return handle;
+        } finally {
+            if (!handles.containsKey(key)) {
+                locks.remove(key, lock);
+            }
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @param key identifies the prefix
+     * @return the live cache for the key, or null if there is none
+     */
+    public CachedContent get(String key) {
+        CachedContent handle = handles.get(key);
+        return handle != null && isLive(handle) ? handle : null;
+    }
+    
+    /**
+     * Builds a request that reads the cached prefix and then the given text
+     * 
+     * @param handle the cache to reference
+     * @param text the per-call user text
+     * @return the request, without generation config
+     */
+    public static GeminiRequest createTextRequest(CachedContent handle, String text) {
+        GeminiRequest request = GeminiRequest.createTextRequest(text);
+        request.setCachedContent(handle.getName());
+        return request;
+    }
+    
+    /**
+     * Deletes the cache for a key, if any
+     * 
+     * @param key identifies the prefix
+     * @throws IOException if the delete call failed; the handle is forgotten either way
+     */
+    public void invalidate(String key) throws IOException {
+        CachedContent handle = remove(key);
+        if (handle != null) {
+            delete(handle);
+        }
+    }
+    
+    /**
+     * Deletes every tracked cache, so none outlive the process and keep accruing storage
+     * cost. Failures are logged rather than thrown.
+     */
+    public void deleteAll() {
+        for (String key : handles.keySet()) {
+            CachedContent handle = remove(key);
+            if (handle == null) {
+                continue;
+            }
+            try {
+                delete(handle);
+            } catch (IOException e) {
+                logger.warn("Failed to delete cached content {}: {}", handle.getName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * @return number of tracked caches, including any that have expired since
+     */
+    public int size() {
+        return handles.size();
+    }
+    
+    /**
+     * @return number of calls served by an existing cache without a network call
+     */
+    public long getReuseCount() {
+        return reused.get();
+    }
+    
+    /**
+     * @return number of caches created, each uploading its prefix once
+     */
+    public long getCreateCount() {
+        return created.get();
+    }
+    
+    /**
+     * @return number of TTL extensions
+     */
+    public long getRefreshCount() {
+        return refreshed.get();
+    }
+    
+    /**
+     * @return number of per-key locks held, at most one per tracked cache plus any in use
+     */
+    int lockCount() {
+        return locks.size();
+    }
+    
+    /**
+     * Locks the key. A lock is dropped from the map once its key has no handle, so a caller
+     * that waited on a dropped lock retries with the current one.
+     */
+    private ReentrantLock lock(String key) {
+        while (true) {
+            ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+            lock.lock();
+            if (locks.get(key) == lock) {
+                return lock;
+            }
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Forgets the handle for a key together with its lock
+     */
+    private CachedContent remove(String key) {
+        ReentrantLock lock = lock(key);
+        try {
+            locks.remove(key, lock);
+            return handles.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the extended handle, the same handle if it could not be extended but is still
+     *         live, or null if the server no longer has the cache
+     */
+    private CachedContent extend(CachedContent handle) throws IOException {
+        try {
+            CachedContent extended = client.updateCachedContentTtl(handle.getName(), ttl);
+            refreshed.incrementAndGet();
+            return extended;
+        } catch (IOException e) {
+            if (e instanceof VertexAiException && ((VertexAiException) e).getStatusCode() == 404) {
+                logger.debug("Cached content {} is gone, creating a new one", handle.getName());
+                return null;
+            }
+            if (!isLive(handle)) {
+                throw e;
+            }
+            // Still usable until it expires; the next call tries again
+            logger.warn("Failed to extend cached content {}, keeping it until {}: {}",
+                    handle.getName(), handle.getExpireTime(), e.getMessage());
+            return handle;
+        }
+    }
+    
+    private void delete(CachedContent handle) throws IOException {
+        try {
+            client.deleteCachedContent(handle.getName());
+        } catch (VertexAiException e) {
+            // Already expired
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+        }
+    }
+    
+    private boolean isLive(CachedContent handle) {
+        return handle.getExpireTime() != null && handle.getExpireTime().isAfter(clock.instant());
+    }
+    
+    private boolean needsRefresh(CachedContent handle) {
+        Instant expireTime = handle.getExpireTime();
+        return expireTime == null || !expireTime.minus(refreshMargin).isAfter(clock.instant());
+    }
+}
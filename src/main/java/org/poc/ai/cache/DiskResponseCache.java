@@ -0,0 +1,907 @@
+package org.poc.ai.cache;
+
+import okio.Buffer;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent response cache backed by append-only segment files in a directory.
+ * <p>
+ * Records are appended to the newest segment and read back through memory-mapped buffers,
+ * located by an off-heap open-addressing hash index that is rebuilt by scanning the
+ * segments on startup. Several processes on one host can share a directory: appends and
+ * compaction are serialized with a file lock, and bump a generation counter stored in the
+ * lock file. A reader that misses rescans the segments only if the generation has moved,
+ * to pick up records written or compacted by other processes.
+ * <p>
+ * A background task compacts the segments once most of their bytes belong to overwritten
+ * or expired records. Expired records are found on read and by a sweep before each check.
+ * When the segments outgrow the maximum size, compaction also evicts the oldest records
+ * until three quarters of that size are left.
+ * <p>
+ * Record layout: length (int), key hash (32 bytes), stored-at epoch millis (long),
+ * value length (int), UTF-8 JSON value, CRC32 of everything between length and CRC (int).
+ */
+public class DiskResponseCache implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DiskResponseCache.class);
+    
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = 4 + KEY_BYTES + 8 + 4;
+    private static final int TRAILER_BYTES = 4;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+    private static final double EVICTION_TARGET_RATIO = 0.75;
+    // Aligned 8-byte access to the mapped lock file, atomic across processes on one host
+    private static final VarHandle GENERATION = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    
+    private final Path directory;
+    private final long ttlMillis;
+    private final long segmentSize;
+    private final long maxBytes;
+    private final FileChannel lockChannel;
+    private final MappedByteBuffer generation;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    
+    private ByteBuffer index;
+    private int indexMask;
+    private int indexSize;
+    private FileChannel activeChannel;
+    private int activeChannelId;
+    // Guarded by scanLock: the generation the segments were last scanned at
+    private long scannedGeneration;
+    
+    private final AtomicLong deadBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * Opens a cache of at most 1 GB with 64 MB segments and compaction checked every minute
+     * 
+     * @param directory directory holding the segment files, created if missing
+     * @param ttl how long a record stays valid after it was written
+     * @throws IOException if the directory cannot be opened or scanned
+     */
+    public DiskResponseCache(Path directory, Duration ttl) throws IOException {
+        this(directory, ttl, DEFAULT_SEGMENT_SIZE, Duration.ofMinutes(1), DEFAULT_MAX_BYTES);
+    }
+    
+    /**
+     * Opens a cache of at most 1 GB
+     * 
+     * @param directory directory holding the segment files, created if missing
+     * @param ttl how long a record stays valid after it was written
+     * @param segmentSize size after which appends roll over to a new segment
+     * @param compactionInterval how often to check whether compaction is needed, or zero to disable
+     * @throws IOException if the directory cannot be opened or scanned
+     */
+    public DiskResponseCache(Path directory, Duration ttl, long segmentSize, Duration compactionInterval)
+            throws IOException {
+        this(directory, ttl, segmentSize, compactionInterval, DEFAULT_MAX_BYTES);
+    }
+    
+    /**
+     * @param directory directory holding the segment files, created if missing
+     * @param ttl how long a record stays valid after it was written
+     * @param segmentSize size after which appends roll over to a new segment
+     * @param compactionInterval how often to check whether compaction is needed, or zero to disable
+     * @param maxBytes total segment size that triggers compaction with eviction of the oldest
+     *        records. Without a compaction interval the append that crosses it compacts inline.
+     * @throws IOException if the directory cannot be opened or scanned
+     */
+    public DiskResponseCache(Path directory, Duration ttl, long segmentSize, Duration compactionInterval,
+                             long maxBytes) throws IOException {
+        if (segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize must fit in an int offset");
+        }
+        if (maxBytes > Integer.MAX_VALUE / EVICTION_TARGET_RATIO) {
+            // Compaction writes everything it keeps into one segment
+            throw new IllegalArgumentException("maxBytes must keep the compacted segment within an int offset");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.ttlMillis = ttl.toMillis();
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.lockChannel = FileChannel.open(directory.resolve("cache.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping extends the file to 8 bytes; a new file starts at generation zero
+        this.generation = lockChannel.map(FileChannel.MapMode.READ_WRITE, 0, 8);
+        this.index = ByteBuffer.allocateDirect(INITIAL_SLOTS * SLOT_BYTES);
+        this.indexMask = INITIAL_SLOTS - 1;
+        
+        refresh();
+        logger.debug("Opened disk cache at {} with {} entries in {} segments", directory, indexSize, segments.size());
+        
+        if (compactionInterval.isZero()) {
+            this.compactor = null;
+        } else {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "disk-cache-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = compactionInterval.toMillis();
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Looks up a cached response
+     * 
+     * @param key the cache key, see {@link ResponseCache#key}
+     * @return the cached response, or null if absent or expired
+     * @throws IOException if a segment cannot be read
+     */
+    public GeminiResponse get(String key) throws IOException {
+        byte[] value = getSerialized(key);
+        return value == null ? null : GeminiJsonCodec.readResponse(new Buffer().write(value));
+    }
+    
+    /**
+     * Appends a response to the cache
+     * 
+     * @param key the cache key, see {@link ResponseCache#key}
+     * @param response the response to store
+     * @throws IOException if the record cannot be written
+     */
+    public void put(String key, GeminiResponse response) throws IOException {
+        Buffer json = new Buffer();
+        GeminiJsonCodec.writeResponse(response, json);
+        putSerialized(key, json.readByteArray());
+    }
+    
+    byte[] getSerialized(String key) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        long tag = tag(keyBytes);
+        
+        long location = indexGet(tag);
+        ByteBuffer record = findRecord(keyBytes, location);
+        if (record == null && refreshIfChanged()) {
+            // Another process may have appended the record or compacted the segments
+            location = indexGet(tag);
+            record = findRecord(keyBytes, location);
+        }
+        if (record == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        
+        long storedAt = record.getLong(4 + KEY_BYTES);
+        if (System.currentTimeMillis() - storedAt > ttlMillis) {
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            indexRemove(tag, location, record.remaining());
+            return null;
+        }
+        
+        byte[] value = new byte[record.getInt(4 + KEY_BYTES + 8)];
+        record.position(HEADER_BYTES);
+        record.get(value);
+        hits.incrementAndGet();
+        return value;
+    }
+    
+    void putSerialized(String key, byte[] value) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        ByteBuffer record = encodeRecord(keyBytes, System.currentTimeMillis(), value);
+        int length = record.remaining();
+        if (length > segmentSize) {
+            logger.debug("Record of {} bytes exceeds segment size, not cached", length);
+            return;
+        }
+        
+        writeLock.lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            scanLock.lock();
+            try {
+                refreshLocked();
+                Segment active = activeSegmentForAppend(length);
+                FileChannel channel = channelFor(active);
+                
+                // Bytes past the last complete record were left by a writer that crashed mid-append
+                if (channel.size() > active.scannedTo) {
+                    channel.truncate(active.scannedTo);
+                }
+                
+                long offset = active.scannedTo;
+                while (record.hasRemaining()) {
+                    channel.write(record, offset + record.position());
+                }
+                active.scannedTo = offset + length;
+                indexPut(tag(keyBytes), active.id, (int) offset);
+                bumpGeneration();
+                writes.incrementAndGet();
+                
+                if (totalBytes() > maxBytes) {
+                    if (compactor == null) {
+                        compactLocked();
+                    } else if (compactionQueued.compareAndSet(false, true)) {
+                        compactor.execute(this::compactIfNeeded);
+                    }
+                }
+            } finally {
+                scanLock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Rewrites all live, unexpired records into a single new segment and deletes the old ones.
+     * If they add up to more than three quarters of the maximum size, the oldest are dropped.
+     * 
+     * @throws IOException if the segments cannot be rewritten
+     */
+    public void compact() throws IOException {
+        writeLock.lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            scanLock.lock();
+            try {
+                refreshLocked();
+                compactLocked();
+            } finally {
+                scanLock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private void compactLocked() throws IOException {
+        int newId = segments.keySet().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+        Path target = segmentPath(newId);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        
+        // Readers may still remove entries, shifting probe chains, so walk a snapshot
+        long[] entries = snapshotEntries();
+        List<LiveRecord> live = new ArrayList<>();
+        long liveBytes = 0;
+        for (int i = 0; i < entries.length; i += 2) {
+            ByteBuffer record = readRecord((int) (entries[i + 1] >>> 32), (int) entries[i + 1]);
+            if (record == null || now - record.getLong(4 + KEY_BYTES) > ttlMillis) {
+                continue;
+            }
+            live.add(new LiveRecord(entries[i], record));
+            liveBytes += record.remaining();
+        }
+        
+        long budget = (long) (maxBytes * EVICTION_TARGET_RATIO);
+        if (liveBytes > budget) {
+            // Keep the newest records that fit
+            live.sort(Comparator.comparingLong((LiveRecord record) -> record.storedAt()).reversed());
+            long kept = 0;
+            int keep = 0;
+            while (keep < live.size() && kept + live.get(keep).record.remaining() <= budget) {
+                kept += live.get(keep).record.remaining();
+                keep++;
+            }
+            evictions.addAndGet(live.size() - keep);
+            live = live.subList(0, keep);
+        }
+        
+        // Entries are inserted afresh: copying slots would break probe chains around dropped ones
+        ByteBuffer newIndex = ByteBuffer.allocateDirect(index.capacity());
+        int newMask = indexMask;
+        long offset = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (LiveRecord entry : live) {
+                ByteBuffer record = entry.record;
+                int length = record.remaining();
+                while (record.hasRemaining()) {
+                    out.write(record, offset + record.position());
+                }
+                insert(newIndex, newMask, entry.tag, newId, (int) offset);
+                offset += length;
+            }
+            out.force(true);
+        }
+        int newSize = live.size();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        
+        List<Segment> old = new ArrayList<>(segments.values());
+        indexLock.writeLock().lock();
+        try {
+            index = newIndex;
+            indexSize = newSize;
+            segments.clear();
+            Segment compacted = new Segment(newId, target);
+            compacted.scannedTo = offset;
+            segments.put(newId, compacted);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        closeActiveChannel();
+        for (Segment segment : old) {
+            Files.deleteIfExists(segment.path);
+        }
+        deadBytes.set(0);
+        bumpGeneration();
+        compactions.incrementAndGet();
+        logger.debug("Compacted {} segments into {} ({} entries, {} bytes)", old.size(), target.getFileName(), newSize, offset);
+    }
+    
+    private void compactIfNeeded() {
+        compactionQueued.set(false);
+        try {
+            sweepExpired();
+            long total = totalBytes();
+            if (total == 0 || (total <= maxBytes && deadBytes.get() < total * COMPACTION_DEAD_RATIO)) {
+                return;
+            }
+            compact();
+        } catch (IOException e) {
+            logger.warn("Disk cache compaction failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Drops expired records from the index and counts their bytes as dead
+     */
+    private void sweepExpired() throws IOException {
+        long[] entries = snapshotEntries();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries.length; i += 2) {
+            ByteBuffer record = readRecord((int) (entries[i + 1] >>> 32), (int) entries[i + 1]);
+            if (record != null && now - record.getLong(4 + KEY_BYTES) > ttlMillis) {
+                indexRemove(entries[i], entries[i + 1], record.remaining());
+            }
+        }
+    }
+    
+    /**
+     * @return tag and packed location of every index entry, in pairs
+     */
+    private long[] snapshotEntries() {
+        long[] entries;
+        int count = 0;
+        indexLock.readLock().lock();
+        try {
+            // Copied out first: reading a record may need scanLock, which writers take before indexLock
+            entries = new long[indexSize * 2];
+            for (int slot = 0; slot <= indexMask && count < entries.length; slot++) {
+                int base = slot * SLOT_BYTES;
+                int segmentId = index.getInt(base + 8);
+                if (segmentId != 0) {
+                    entries[count++] = index.getLong(base);
+                    entries[count++] = ((long) segmentId << 32) | (index.getInt(base + 12) & 0xFFFFFFFFL);
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return count == entries.length ? entries : Arrays.copyOf(entries, count);
+    }
+    
+    private long totalBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.scannedTo;
+        }
+        return total;
+    }
+    
+    /**
+     * Rescans the segments if another writer has appended or compacted since the last scan,
+     * so a miss costs one read of the mapped generation counter rather than a directory listing
+     * 
+     * @return true if anything changed
+     */
+    private boolean refreshIfChanged() throws IOException {
+        scanLock.lock();
+        try {
+            if ((long) GENERATION.getVolatile(generation, 0) == scannedGeneration) {
+                return false;
+            }
+            return refreshLocked();
+        } finally {
+            scanLock.unlock();
+        }
+    }
+    
+    /**
+     * Tells other processes sharing the directory that the segments changed. Called with the
+     * file lock held.
+     */
+    private void bumpGeneration() {
+        long next = (long) GENERATION.getVolatile(generation, 0) + 1;
+        GENERATION.setVolatile(generation, 0, next);
+        // This process's index already reflects its own change
+        scannedGeneration = next;
+    }
+    
+    /**
+     * Picks up segments created, extended or removed by other processes
+     * 
+     * @return true if anything changed
+     */
+    private boolean refresh() throws IOException {
+        scanLock.lock();
+        try {
+            return refreshLocked();
+        } finally {
+            scanLock.unlock();
+        }
+    }
+    
+    private boolean refreshLocked() throws IOException {
+        // Read first: a change made during the scan is picked up by the next one
+        scannedGeneration = (long) GENERATION.getVolatile(generation, 0);
+        boolean changed = false;
+        List<Integer> present = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                present.add(id);
+                if (!segments.containsKey(id)) {
+                    segments.put(id, new Segment(id, path));
+                    changed = true;
+                }
+            }
+        }
+        if (segments.keySet().retainAll(present)) {
+            changed = true;
+        }
+        
+        present.sort(null);
+        for (int id : present) {
+            Segment segment = segments.get(id);
+            try {
+                changed |= scan(segment);
+            } catch (NoSuchFileException e) {
+                segments.remove(id);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Indexes complete records appended to a segment since it was last scanned
+     */
+    private boolean scan(Segment segment) throws IOException {
+        long size = Files.size(segment.path);
+        if (size <= segment.scannedTo) {
+            return false;
+        }
+        
+        MappedByteBuffer map = segment.map(size);
+        long position = segment.scannedTo;
+        byte[] key = new byte[KEY_BYTES];
+        while (position + HEADER_BYTES + TRAILER_BYTES <= size) {
+            int length = map.getInt((int) position);
+            if (length < HEADER_BYTES + TRAILER_BYTES || position + length > size
+                    || !checksumMatches(map, (int) position, length)) {
+                // Incomplete record: still being written, or torn by a crash
+                break;
+            }
+            ByteBuffer view = map.duplicate();
+            view.position((int) position + 4);
+            view.get(key);
+            indexPut(tag(key), segment.id, (int) position);
+            position += length;
+        }
+        boolean advanced = position > segment.scannedTo;
+        segment.scannedTo = position;
+        return advanced;
+    }
+    
+    private ByteBuffer findRecord(byte[] keyBytes, long location) throws IOException {
+        if (location < 0) {
+            return null;
+        }
+        ByteBuffer record = readRecord((int) (location >>> 32), (int) location);
+        if (record == null) {
+            return null;
+        }
+        for (int i = 0; i < KEY_BYTES; i++) {
+            if (record.get(4 + i) != keyBytes[i]) {
+                return null;
+            }
+        }
+        return record;
+    }
+    
+    /**
+     * @return a buffer positioned at the start of the record and limited to its length,
+     *         or null if the segment no longer exists
+     */
+    private ByteBuffer readRecord(int segmentId, int offset) throws IOException {
+        Segment segment = segments.get(segmentId);
+        if (segment == null) {
+            return null;
+        }
+        MappedByteBuffer map = segment.mapping;
+        if (map == null || map.capacity() < offset + HEADER_BYTES) {
+            map = remap(segment);
+            if (map == null) {
+                return null;
+            }
+        }
+        int length = map.getInt(offset);
+        if (map.capacity() < offset + length) {
+            map = remap(segment);
+            if (map == null) {
+                return null;
+            }
+        }
+        ByteBuffer record = map.duplicate();
+        record.position(offset).limit(offset + length);
+        return record.slice();
+    }
+    
+    private MappedByteBuffer remap(Segment segment) throws IOException {
+        scanLock.lock();
+        try {
+            return segment.map(Files.size(segment.path));
+        } catch (NoSuchFileException e) {
+            return null;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+    
+    private Segment activeSegmentForAppend(int length) throws IOException {
+        int activeId = segments.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        Segment active = segments.get(activeId);
+        if (active == null || (active.scannedTo > 0 && active.scannedTo + length > segmentSize)) {
+            int newId = activeId + 1;
+            Path path = segmentPath(newId);
+            Files.createFile(path);
+            active = new Segment(newId, path);
+            segments.put(newId, active);
+        }
+        return active;
+    }
+    
+    private FileChannel channelFor(Segment segment) throws IOException {
+        if (activeChannel == null || activeChannelId != segment.id) {
+            closeActiveChannel();
+            activeChannel = FileChannel.open(segment.path, StandardOpenOption.WRITE);
+            activeChannelId = segment.id;
+        }
+        return activeChannel;
+    }
+    
+    private void closeActiveChannel() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+        }
+    }
+    
+    private long indexGet(long tag) {
+        indexLock.readLock().lock();
+        try {
+            for (int slot = (int) tag & indexMask; ; slot = (slot + 1) & indexMask) {
+                int base = slot * SLOT_BYTES;
+                int segmentId = index.getInt(base + 8);
+                if (segmentId == 0) {
+                    return -1;
+                }
+                if (index.getLong(base) == tag) {
+                    return ((long) segmentId << 32) | (index.getInt(base + 12) & 0xFFFFFFFFL);
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Points a key at a record. Keys are identified by the first 64 bits of their hash; the
+     * full hash is compared on read, so a collision only costs a miss.
+     */
+    private void indexPut(long tag, int segmentId, int offset) throws IOException {
+        indexLock.writeLock().lock();
+        try {
+            if ((indexSize + 1) * 2 > indexMask + 1) {
+                resizeIndex();
+            }
+            for (int slot = (int) tag & indexMask; ; slot = (slot + 1) & indexMask) {
+                int base = slot * SLOT_BYTES;
+                int existing = index.getInt(base + 8);
+                if (existing == 0) {
+                    indexSize++;
+                } else if (index.getLong(base) != tag) {
+                    continue;
+                } else {
+                    ByteBuffer previous = readRecord(existing, index.getInt(base + 12));
+                    if (previous != null) {
+                        deadBytes.addAndGet(previous.remaining());
+                    }
+                }
+                index.putLong(base, tag);
+                index.putInt(base + 8, segmentId);
+                index.putInt(base + 12, offset);
+                return;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Removes a key if it still points at the given record, counting the record as dead.
+     * Later entries of the probe chain are shifted back so lookups don't stop at the hole.
+     */
+    private void indexRemove(long tag, long location, int length) {
+        indexLock.writeLock().lock();
+        try {
+            for (int slot = (int) tag & indexMask; ; slot = (slot + 1) & indexMask) {
+                int base = slot * SLOT_BYTES;
+                int segmentId = index.getInt(base + 8);
+                if (segmentId == 0) {
+                    return;
+                }
+                if (index.getLong(base) != tag) {
+                    continue;
+                }
+                if (segmentId != (int) (location >>> 32) || index.getInt(base + 12) != (int) location) {
+                    // Overwritten in the meantime; the old record was counted then
+                    return;
+                }
+                int hole = slot;
+                int next = (hole + 1) & indexMask;
+                while (index.getInt(next * SLOT_BYTES + 8) != 0) {
+                    int home = (int) index.getLong(next * SLOT_BYTES) & indexMask;
+                    // An entry may fill the hole unless its home slot lies between the hole and itself
+                    boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+                    if (!stays) {
+                        index.putLong(hole * SLOT_BYTES, index.getLong(next * SLOT_BYTES));
+                        index.putLong(hole * SLOT_BYTES + 8, index.getLong(next * SLOT_BYTES + 8));
+                        hole = next;
+                    }
+                    next = (next + 1) & indexMask;
+                }
+                index.putLong(hole * SLOT_BYTES, 0).putLong(hole * SLOT_BYTES + 8, 0);
+                indexSize--;
+                deadBytes.addAndGet(length);
+                return;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+    
+    private static void insert(ByteBuffer index, int mask, long tag, int segmentId, int offset) {
+        int slot = (int) tag & mask;
+        while (index.getInt(slot * SLOT_BYTES + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putLong(slot * SLOT_BYTES, tag);
+        index.putInt(slot * SLOT_BYTES + 8, segmentId);
+        index.putInt(slot * SLOT_BYTES + 12, offset);
+    }
+    
+    private void resizeIndex() {
+        ByteBuffer old = index;
+        int oldSlots = indexMask + 1;
+        index = ByteBuffer.allocateDirect(oldSlots * 2 * SLOT_BYTES);
+        indexMask = oldSlots * 2 - 1;
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int base = slot * SLOT_BYTES;
+            int segmentId = old.getInt(base + 8);
+            if (segmentId == 0) {
+                continue;
+            }
+            long tag = old.getLong(base);
+            int target = (int) tag & indexMask;
+            while (index.getInt(target * SLOT_BYTES + 8) != 0) {
+                target = (target + 1) & indexMask;
+            }
+            index.putLong(target * SLOT_BYTES, tag);
+            index.putInt(target * SLOT_BYTES + 8, segmentId);
+            index.putInt(target * SLOT_BYTES + 12, old.getInt(base + 12));
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+    
+    public long getWriteCount() {
+        return writes.get();
+    }
+    
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+    
+    /**
+     * @return number of unexpired records dropped by compaction to stay under the maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    /**
+     * @return number of bytes held by records that have been overwritten or found expired since
+     *         the last compaction
+     */
+    public long getDeadBytes() {
+        return deadBytes.get();
+    }
+    
+    /**
+     * @return number of keys in the index
+     */
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return indexSize;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    public int getSegmentCount() {
+        return segments.size();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            closeActiveChannel();
+            lockChannel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+    
+    private static ByteBuffer encodeRecord(byte[] keyBytes, long storedAt, byte[] value) {
+        int length = HEADER_BYTES + value.length + TRAILER_BYTES;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).put(keyBytes).putLong(storedAt).putInt(value.length).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length - 4 - TRAILER_BYTES);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+    
+    private static boolean checksumMatches(ByteBuffer map, int position, int length) {
+        ByteBuffer body = map.duplicate();
+        body.position(position + 4).limit(position + length - TRAILER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == map.getInt(position + length - TRAILER_BYTES);
+    }
+    
+    /**
+     * Converts a hex SHA-256 cache key to its raw bytes, hashing any other key format
+     */
+    private static byte[] keyBytes(String key) {
+        if (key.length() == KEY_BYTES * 2) {
+            byte[] bytes = new byte[KEY_BYTES];
+            boolean hex = true;
+            for (int i = 0; i < KEY_BYTES && hex; i++) {
+                int high = Character.digit(key.charAt(i * 2), 16);
+                int low = Character.digit(key.charAt(i * 2 + 1), 16);
+                hex = high >= 0 && low >= 0;
+                bytes[i] = (byte) ((high << 4) | low);
+            }
+            if (hex) {
+                return bytes;
+            }
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static long tag(byte[] keyBytes) {
+        long tag = 0;
+        for (int i = 0; i < 8; i++) {
+            tag = (tag << 8) | (keyBytes[i] & 0xFF);
+        }
+        return tag;
+    }
+    
+    private static class LiveRecord {
+        private final long tag;
+        private final ByteBuffer record;
+        
+        private LiveRecord(long tag, ByteBuffer record) {
+            this.tag = tag;
+            this.record = record;
+        }
+        
+        private long storedAt() {
+            return record.getLong(4 + KEY_BYTES);
+        }
+    }
+    
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private volatile MappedByteBuffer mapping;
+        // Guarded by scanLock
+        private long scannedTo;
+        
+        private Segment(int id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+        
+        private MappedByteBuffer map(long size) throws IOException {
+            MappedByteBuffer current = mapping;
+            if (current != null && current.capacity() >= size) {
+                return current;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return mapping;
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.poc.ai.cache;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+import org.poc.ai.model.EncodedRequest;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache for responses to deterministic Gemini requests.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the model key and the serialized request, bounded
+ * by total weight (the size of the serialized response) with least-recently-used eviction,
+ * and expire after a fixed time-to-live. Concurrent identical requests share a single load.
+ * Cached responses are shared between callers and must not be modified.
+ * <p>
+ * An optional {@link DiskResponseCache} tier is consulted on a miss before loading, and
+ * every loaded response is written through to it.
+ */
+public class ResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<GeminiResponse>> inFlight = new ConcurrentHashMap<>();
+    private long currentWeight;
+    private volatile DiskResponseCache diskTier;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    
+    /**
+     * Loads a response on a cache miss
+     */
+    public interface Loader {
+        GeminiResponse load() throws IOException;
+    }
+    
+    /**
+     * @param maxWeight maximum total size of cached responses, in bytes of serialized JSON
+     * @param ttl how long an entry stays valid after it was stored
+     */
+    public ResponseCache(long maxWeight, Duration ttl) {
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttl.toNanos();
+    }
+    
+    /**
+     * Checks whether a request always produces the same output and may therefore be cached
+     * 
+     * @param request the request to check
+     * @return true if the request uses temperature 0
+     */
+    public static boolean isCacheable(EncodedRequest request) {
+        GeminiRequest.GenerationConfig config = request.getGenerationConfig();
+        return config != null && config.getTemperature() != null && config.getTemperature() == 0.0;
+    }
+    
+    /**
+     * Computes the canonical cache key for a request
+     * 
+     * @param modelKey the publisher/model the request is sent to
+     * @param request the request
+     * @return a hex-encoded SHA-256 hash of the model key and the serialized request
+     */
+    public static String key(String modelKey, EncodedRequest request) {
+        // Hashed as it is written, so file and buffer parts are streamed rather than held on the heap
+        HashingSink hashing = HashingSink.sha256(Okio.blackhole());
+        try (BufferedSink sink = Okio.buffer(hashing)) {
+            sink.writeUtf8(modelKey).writeByte('\n');
+            request.writeTo(sink);
+        } catch (IOException e) {
+            // Only file-backed parts can fail to read
+            throw new UncheckedIOException(e);
+        }
+        return hashing.hash().hex();
+    }
+    
+    /**
+     * Gets a cached response, loading it on the calling thread on a miss. If the same key is
+     * already being loaded, waits for that load instead of starting another.
+     * 
+     * @param key the cache key
+     * @param loader loads the response on a miss
+     * @return the cached or loaded response
+     * @throws IOException if the load fails
+     */
+    public GeminiResponse get(String key, Loader loader) throws IOException {
+        GeminiResponse cached = getIfPresent(key);
+        if (cached == null) {
+            cached = getFromDisk(key);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        
+        CompletableFuture<GeminiResponse> load = new CompletableFuture<>();
+        CompletableFuture<GeminiResponse> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            return await(existing);
+        }
+        
+        try {
+            GeminiResponse response = loader.load();
+            put(key, response);
+            load.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+    
+    /**
+     * Asynchronous variant of {@link #get(String, Loader)}
+     * 
+     * @param key the cache key
+     * @param loader starts loading the response on a miss
+     * @return a future completed with the cached or loaded response. Each caller gets its own
+     *         future, so cancelling it only stops that caller's wait, not a load shared with others.
+     */
+    public CompletableFuture<GeminiResponse> getAsync(String key, Supplier<CompletableFuture<GeminiResponse>> loader) {
+        GeminiResponse cached = getIfPresent(key);
+        if (cached == null) {
+            cached = getFromDisk(key);
+        }
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        CompletableFuture<GeminiResponse> load = new CompletableFuture<>();
+        CompletableFuture<GeminiResponse> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            return existing.copy();
+        }
+        
+        CompletableFuture<GeminiResponse> started;
+        try {
+            started = loader.get();
+        } catch (RuntimeException e) {
+            // Don't leave a load behind that would never complete for later callers
+            inFlight.remove(key, load);
+            load.completeExceptionally(e);
+            return load.copy();
+        }
+        started.whenComplete((response, error) -> {
+            if (error == null) {
+                put(key, response);
+            }
+            inFlight.remove(key, load);
+            if (error == null) {
+                load.complete(response);
+            } else {
+                load.completeExceptionally(error);
+            }
+        });
+        return load.copy();
+    }
+    
+    /**
+     * @return the cached response, or null if absent or expired
+     */
+    public GeminiResponse getIfPresent(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (System.nanoTime() - entry.storedAtNanos > ttlNanos) {
+                removeEntry(key, entry);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.response;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Stores a response, evicting least recently used entries to stay within the weight bound,
+     * and writes it through to the disk tier if one is set
+     */
+    public void put(String key, GeminiResponse response) {
+        Buffer json = new Buffer();
+        try {
+            GeminiJsonCodec.writeResponse(response, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long weight = json.size();
+        DiskResponseCache disk = diskTier;
+        if (disk != null) {
+            try {
+                disk.putSerialized(key, json.readByteArray());
+            } catch (IOException e) {
+                logger.warn("Failed to write response to disk cache: {}", e.getMessage());
+            }
+        }
+        putInMemory(key, response, weight);
+    }
+    
+    private void putInMemory(String key, GeminiResponse response, long weight) {
+        if (weight > maxWeight) {
+            logger.debug("Response of weight {} exceeds cache capacity, not cached", weight);
+            return;
+        }
+        
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, new Entry(response, weight, System.nanoTime()));
+            if (previous != null) {
+                currentWeight -= previous.weight;
+            }
+            currentWeight += weight;
+            
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (currentWeight > maxWeight && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                currentWeight -= victim.getValue().weight;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds a persistent tier behind the in-memory entries
+     * 
+     * @param diskTier the disk cache to use, or null to keep the cache in memory only
+     */
+    public void setDiskTier(DiskResponseCache diskTier) {
+        this.diskTier = diskTier;
+    }
+    
+    public DiskResponseCache getDiskTier() {
+        return diskTier;
+    }
+    
+    /**
+     * Removes every in-memory entry
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+            currentWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+    
+    /**
+     * @return number of loads avoided by joining an identical in-flight request
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+    
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getWeight() {
+        lock.lock();
+        try {
+            return currentWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private GeminiResponse getFromDisk(String key) {
+        DiskResponseCache disk = diskTier;
+        if (disk == null) {
+            return null;
+        }
+        try {
+            byte[] value = disk.getSerialized(key);
+            if (value == null) {
+                return null;
+            }
+            GeminiResponse response = GeminiJsonCodec.readResponse(new Buffer().write(value));
+            putInMemory(key, response, value.length);
+            return response;
+        } catch (IOException e) {
+            logger.warn("Failed to read response from disk cache: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private void removeEntry(String key, Entry entry) {
+        entries.remove(key);
+        currentWeight -= entry.weight;
+    }
+    
+    private static GeminiResponse await(CompletableFuture<GeminiResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical in-flight request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    private static class Entry {
+        private final GeminiResponse response;
+        private final long weight;
+        private final long storedAtNanos;
+        
+        private Entry(GeminiResponse response, long weight, long storedAtNanos) {
+            this.response = response;
+            this.weight = weight;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.poc.ai.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown without contacting the API when the circuit breaker is open
+ */
+public class CallNotPermittedException extends IOException {
+    
+    public CallNotPermittedException(String circuitName, CircuitBreaker.State state) {
+        super("Circuit breaker '" + circuitName + "' is " + state + ", call not permitted");
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        // Fail-fast rejections are frequent and their stack trace carries no information
+        return this;
+    }
+}
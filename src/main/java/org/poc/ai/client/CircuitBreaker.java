@@ -0,0 +1,289 @@
+package org.poc.ai.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Circuit breaker guarding calls to the Vertex AI endpoint.
+ * <p>
+ * While CLOSED, the outcome of the most recent calls is kept in a count-based sliding window.
+ * When the failure rate or the slow-call rate reaches its threshold the circuit OPENs and
+ * every call is rejected immediately with a {@link CallNotPermittedException}. After the
+ * wait duration the circuit becomes HALF_OPEN and lets a limited number of probe calls
+ * through; their outcome decides whether it closes again or re-opens.
+ * <p>
+ * Server errors (5xx), request timeouts (408) and connection failures count as failures.
+ * Other client errors say nothing about the endpoint's health and are not recorded.
+ * <p>
+ * Each permission is tagged with the state it was granted in. A call that finishes after
+ * the circuit has moved on is not recorded, so a slow call started while CLOSED cannot
+ * decide the outcome of a later HALF_OPEN probe round.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    
+    private static final byte OUTCOME_SUCCESS = 0;
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+    
+    /**
+     * Circuit breaker states
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    /**
+     * Notified on every state transition
+     */
+    public interface Listener {
+        void onStateTransition(String circuitName, State from, State to);
+    }
+    
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final long slowCallThresholdNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong notPermittedCount = new AtomicLong();
+    // Also the generation permissions are tagged with; bumped before the state changes
+    private final AtomicLong transitionCount = new AtomicLong();
+    
+    // Sliding window of outcome flags, guarded by lock
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int failureCount;
+    private int slowCount;
+    
+    private volatile State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitsIssued;
+    
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+        this.slowCallThresholdNanos = config.getSlowCallDurationThreshold().toNanos();
+        this.window = new byte[config.getSlidingWindowSize()];
+    }
+    
+    /**
+     * Registers a state transition listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Checks whether a call may proceed. Every permitted call must be followed by
+     * {@link #onResult(long, long, Throwable)} or {@link #releasePermission(long)}.
+     * 
+     * @return the permission, to be handed back with the call's outcome
+     * @throws CallNotPermittedException if the circuit is open or the half-open probes are used up
+     */
+    public long acquirePermission() throws CallNotPermittedException {
+        // Fast path: a closed circuit needs no lock. A racing CLOSED->OPEN transition can tag the
+        // permission with the OPEN generation, whose window is discarded when it moves on.
+        long permission = transitionCount.get();
+        if (state == State.CLOSED) {
+            return permission;
+        }
+        
+        State rejectedIn;
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= config.getWaitDurationInOpenState().toNanos()) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                return transitionCount.get();
+            }
+            if (state == State.HALF_OPEN && halfOpenPermitsIssued < config.getPermittedCallsInHalfOpenState()) {
+                halfOpenPermitsIssued++;
+                return transitionCount.get();
+            }
+            rejectedIn = state;
+        } finally {
+            lock.unlock();
+        }
+        
+        notPermittedCount.incrementAndGet();
+        throw new CallNotPermittedException(name, rejectedIn);
+    }
+    
+    /**
+     * Records the outcome of a permitted call. Outcomes of calls permitted before the last
+     * state transition are ignored.
+     * 
+     * @param permission the value returned by {@link #acquirePermission()}
+     * @param durationNanos how long the call took
+     * @param error the failure, or null if the call succeeded
+     */
+    public void onResult(long permission, long durationNanos, Throwable error) {
+        if (error != null && !isFailure(error)) {
+            releasePermission(permission);
+            return;
+        }
+        byte outcome = error != null ? OUTCOME_FAILURE : OUTCOME_SUCCESS;
+        if (durationNanos > slowCallThresholdNanos) {
+            outcome |= OUTCOME_SLOW;
+        }
+        
+        lock.lock();
+        try {
+            if (permission != transitionCount.get()) {
+                return;
+            }
+            record(outcome);
+            evaluate();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Releases a permission without recording an outcome, e.g. when the call was never sent
+     * 
+     * @param permission the value returned by {@link #acquirePermission()}
+     */
+    public void releasePermission(long permission) {
+        lock.lock();
+        try {
+            if (permission == transitionCount.get() && state == State.HALF_OPEN && halfOpenPermitsIssued > 0) {
+                halfOpenPermitsIssued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    /**
+     * @return failure percentage over the current window, or -1 if there are too few calls
+     */
+    public double getFailureRate() {
+        lock.lock();
+        try {
+            return windowCount < minimumCalls() ? -1 : failureCount * 100.0 / windowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return slow-call percentage over the current window, or -1 if there are too few calls
+     */
+    public double getSlowCallRate() {
+        lock.lock();
+        try {
+            return windowCount < minimumCalls() ? -1 : slowCount * 100.0 / windowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return number of calls rejected without being sent
+     */
+    public long getNotPermittedCount() {
+        return notPermittedCount.get();
+    }
+    
+    /**
+     * @return number of state transitions since creation
+     */
+    public long getTransitionCount() {
+        return transitionCount.get();
+    }
+    
+    private boolean isFailure(Throwable error) {
+        if (error instanceof VertexAiException) {
+            int status = ((VertexAiException) error).getStatusCode();
+            return status >= 500 || status == 408;
+        }
+        return error instanceof IOException && !(error instanceof CallNotPermittedException);
+    }
+    
+    private void record(byte outcome) {
+        if (windowCount == window.length) {
+            byte evicted = window[windowPosition];
+            if ((evicted & OUTCOME_FAILURE) != 0) {
+                failureCount--;
+            }
+            if ((evicted & OUTCOME_SLOW) != 0) {
+                slowCount--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        if ((outcome & OUTCOME_FAILURE) != 0) {
+            failureCount++;
+        }
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            slowCount++;
+        }
+    }
+    
+    private void evaluate() {
+        if (state == State.OPEN || windowCount < minimumCalls()) {
+            return;
+        }
+        boolean unhealthy = failureCount * 100.0 / windowCount >= config.getFailureRateThreshold()
+                || slowCount * 100.0 / windowCount >= config.getSlowCallRateThreshold();
+        if (unhealthy) {
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+    
+    private int minimumCalls() {
+        // While half-open the decision is made on the probe calls alone
+        return state == State.HALF_OPEN
+                ? config.getPermittedCallsInHalfOpenState()
+                : Math.min(config.getMinimumNumberOfCalls(), window.length);
+    }
+    
+    private void transitionTo(State newState) {
+        State previous = state;
+        if (previous == newState) {
+            return;
+        }
+        transitionCount.incrementAndGet();
+        state = newState;
+        
+        // Each state starts with a fresh window
+        windowPosition = 0;
+        windowCount = 0;
+        failureCount = 0;
+        slowCount = 0;
+        halfOpenPermitsIssued = 0;
+        if (newState == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        
+        logger.info("Circuit breaker '{}' transitioned from {} to {}", name, previous, newState);
+        for (Listener listener : listeners) {
+            try {
+                listener.onStateTransition(name, previous, newState);
+            } catch (RuntimeException e) {
+                logger.warn("Circuit breaker listener failed: {}", e.getMessage());
+            }
+        }
+    }
+}
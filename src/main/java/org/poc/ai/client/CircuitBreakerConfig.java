@@ -0,0 +1,93 @@
+package org.poc.ai.client;
+
+import java.time.Duration;
+
+/**
+ * Settings for the {@link CircuitBreaker}
+ */
+public class CircuitBreakerConfig {
+    private int slidingWindowSize = 50;
+    private int minimumNumberOfCalls = 10;
+    private double failureRateThreshold = 50.0;
+    private Duration slowCallDurationThreshold = Duration.ofSeconds(10);
+    private double slowCallRateThreshold = 80.0;
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+    private int permittedCallsInHalfOpenState = 3;
+    
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+    
+    /**
+     * @param slidingWindowSize number of most recent calls the failure and slow-call rates are computed over
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+    
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+    
+    /**
+     * @param minimumNumberOfCalls calls required in the window before the rates are evaluated
+     */
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+    
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+    
+    /**
+     * @param failureRateThreshold failure percentage at or above which the circuit opens
+     */
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+    
+    public Duration getSlowCallDurationThreshold() {
+        return slowCallDurationThreshold;
+    }
+    
+    /**
+     * @param slowCallDurationThreshold calls taking longer than this count as slow
+     */
+    public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+        this.slowCallDurationThreshold = slowCallDurationThreshold;
+    }
+    
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+    
+    /**
+     * @param slowCallRateThreshold slow-call percentage at or above which the circuit opens
+     */
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+    
+    public Duration getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+    
+    /**
+     * @param waitDurationInOpenState how long the circuit stays open before letting probe calls through
+     */
+    public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+        this.waitDurationInOpenState = waitDurationInOpenState;
+    }
+    
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+    
+    /**
+     * @param permittedCallsInHalfOpenState number of probe calls allowed while half-open
+     */
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+}
@@ -0,0 +1,90 @@
+package org.poc.ai.client;
+
+import org.poc.ai.metrics.Counter;
+import org.poc.ai.metrics.MetricsRegistry;
+import org.poc.ai.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Meters for one client, looked up once so the call path only records into them
+ */
+final class ClientMetrics {
+    static final String CALLS = "vertex.client.calls";
+    static final String TOKEN = "vertex.client.auth.token";
+    static final String SERIALIZE = "vertex.client.request.serialize";
+    static final String CONNECT = "vertex.client.http.connect";
+    static final String UPLOAD = "vertex.client.http.upload";
+    static final String TIME_TO_FIRST_BYTE = "vertex.client.http.ttfb";
+    static final String BODY_READ = "vertex.client.http.body";
+    static final String PARSE = "vertex.client.response.parse";
+    static final String RETRIES = "vertex.client.retries";
+    static final String CACHE = "vertex.client.cache";
+    static final String TOKENS = "vertex.client.tokens";
+    
+    private final MetricsRegistry registry;
+    private final String modelKey;
+    private final Map<String, Timer> callTimers = new ConcurrentHashMap<>();
+    
+    final Timer token;
+    final Timer serialize;
+    final Timer connect;
+    final Timer upload;
+    final Timer timeToFirstByte;
+    final Timer bodyRead;
+    final Timer parse;
+    final Counter retries;
+    final Counter cacheHits;
+    final Counter cacheMisses;
+    final Counter promptTokens;
+    final Counter candidatesTokens;
+    
+    ClientMetrics(MetricsRegistry registry, String modelKey) {
+        this.registry = registry;
+        this.modelKey = modelKey;
+        this.token = registry.timer(TOKEN, "model", modelKey);
+        this.serialize = registry.timer(SERIALIZE, "model", modelKey);
+        this.connect = registry.timer(CONNECT, "model", modelKey);
+        this.upload = registry.timer(UPLOAD, "model", modelKey);
+        this.timeToFirstByte = registry.timer(TIME_TO_FIRST_BYTE, "model", modelKey);
+        this.bodyRead = registry.timer(BODY_READ, "model", modelKey);
+        this.parse = registry.timer(PARSE, "model", modelKey);
+        this.retries = registry.counter(RETRIES, "model", modelKey);
+        this.cacheHits = registry.counter(CACHE, "model", modelKey, "result", "hit");
+        this.cacheMisses = registry.counter(CACHE, "model", modelKey, "result", "miss");
+        this.promptTokens = registry.counter(TOKENS, "model", modelKey, "type", "prompt");
+        this.candidatesTokens = registry.counter(TOKENS, "model", modelKey, "type", "candidates");
+    }
+    
+    MetricsRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Records one attempt against the timer for its outcome
+     */
+    void recordCall(long nanos, Throwable error) {
+        String status = status(error);
+        Timer timer = callTimers.get(status);
+        if (timer == null) {
+            timer = callTimers.computeIfAbsent(status, s -> registry.timer(CALLS, "model", modelKey, "status", s));
+        }
+        timer.record(nanos);
+    }
+    
+    /**
+     * @return the HTTP status for API responses, or the exception's simple name for other failures
+     */
+    static String status(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return "200";
+        }
+        if (cause instanceof VertexAiException) {
+            return Integer.toString(((VertexAiException) cause).getStatusCode());
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,57 @@
+package org.poc.ai.client;
+
+/**
+ * Point-in-time statistics for the shared HTTP connection pool
+ */
+public class ConnectionPoolStats {
+    private final int idleConnections;
+    private final int activeConnections;
+    private final long connectionsAcquired;
+    private final long connectionsCreated;
+    
+    public ConnectionPoolStats(int idleConnections, int activeConnections,
+                               long connectionsAcquired, long connectionsCreated) {
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.connectionsAcquired = connectionsAcquired;
+        this.connectionsCreated = connectionsCreated;
+    }
+    
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+    
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+    
+    /**
+     * @return number of times a call obtained a connection, whether new or pooled
+     */
+    public long getConnectionsAcquired() {
+        return connectionsAcquired;
+    }
+    
+    /**
+     * @return number of new connections opened, each one paying a TCP and TLS handshake
+     */
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+    
+    /**
+     * @return fraction of acquisitions served by an already open connection
+     */
+    public double getReuseRate() {
+        if (connectionsAcquired == 0) {
+            return 0.0;
+        }
+        return (double) Math.max(0, connectionsAcquired - connectionsCreated) / connectionsAcquired;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ConnectionPoolStats{idle=%d, active=%d, acquired=%d, created=%d, reuseRate=%.2f}",
+                idleConnections, activeConnections, connectionsAcquired, connectionsCreated, getReuseRate());
+    }
+}
@@ -0,0 +1,170 @@
+package org.poc.ai.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency-aware load balancer across regional Vertex AI endpoints.
+ * <p>
+ * Uses power-of-two-choices: two random healthy endpoints are compared and the one with the
+ * better score (weighted latency, in-flight calls and error rate) wins. Endpoints with too
+ * many consecutive failures or a high error rate are ejected for a while. If every endpoint
+ * is ejected the least loaded one is used anyway rather than failing outright.
+ */
+public class EndpointSelector {
+    private static final Logger logger = LoggerFactory.getLogger(EndpointSelector.class);
+    
+    private final List<RegionalEndpoint> endpoints;
+    private final Settings settings;
+    
+    public EndpointSelector(List<RegionalEndpoint> endpoints) {
+        this(endpoints, 5, 0.5, Duration.ofSeconds(30));
+    }
+    
+    /**
+     * @param endpoints the regional endpoints to balance across
+     * @param consecutiveFailuresToEject consecutive failures that eject an endpoint
+     * @param errorRateToEject weighted error rate that ejects an endpoint
+     * @param ejectionDuration how long an ejected endpoint receives no traffic
+     */
+    public EndpointSelector(List<RegionalEndpoint> endpoints, int consecutiveFailuresToEject,
+                            double errorRateToEject, Duration ejectionDuration) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.settings = new Settings(consecutiveFailuresToEject, errorRateToEject, ejectionDuration.toNanos());
+    }
+    
+    /**
+     * Parses a comma separated list of regions. Each entry is either a location, which maps to
+     * the public regional host, or location=baseUrl.
+     * 
+     * @param spec e.g. "us-central1,europe-west4=https://europe-west4-aiplatform.googleapis.com"
+     * @return a selector over the listed endpoints
+     */
+    public static EndpointSelector fromSpec(String spec) {
+        List<RegionalEndpoint> endpoints = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            endpoints.add(separator < 0
+                    ? RegionalEndpoint.forLocation(trimmed)
+                    : new RegionalEndpoint(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim()));
+        }
+        return new EndpointSelector(endpoints);
+    }
+    
+    /**
+     * Picks the endpoint for the next call
+     * 
+     * @return the selected endpoint
+     */
+    public RegionalEndpoint select() {
+        return select(null);
+    }
+    
+    /**
+     * Picks an endpoint other than the given one when possible, e.g. for a hedge
+     * 
+     * @param exclude the endpoint to avoid, may be null
+     * @return the selected endpoint
+     */
+    public RegionalEndpoint select(RegionalEndpoint exclude) {
+        List<RegionalEndpoint> healthy = new ArrayList<>(endpoints.size());
+        for (RegionalEndpoint endpoint : endpoints) {
+            if (endpoint != exclude && !endpoint.isEjected()) {
+                healthy.add(endpoint);
+            }
+        }
+        
+        if (healthy.isEmpty()) {
+            // Everything is ejected: degrade to the least loaded endpoint instead of failing
+            RegionalEndpoint best = null;
+            for (RegionalEndpoint endpoint : endpoints) {
+                if (endpoint != exclude && (best == null || endpoint.getInFlight() < best.getInFlight())) {
+                    best = endpoint;
+                }
+            }
+            return best != null ? best : exclude;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(healthy.size());
+        int second = random.nextInt(healthy.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        RegionalEndpoint a = healthy.get(first);
+        RegionalEndpoint b = healthy.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+    
+    /**
+     * Must be called when a call to the selected endpoint starts
+     */
+    public void onStart(RegionalEndpoint endpoint) {
+        endpoint.onStart();
+    }
+    
+    /**
+     * Must be called when a call to the selected endpoint finishes
+     * 
+     * @param endpoint the endpoint that was called
+     * @param latencyNanos how long the call took
+     * @param error the failure, or null on success
+     */
+    public void onComplete(RegionalEndpoint endpoint, long latencyNanos, Throwable error) {
+        if (error instanceof CancellationException) {
+            // A cancelled hedge says nothing about the endpoint's health
+            endpoint.onCancelled();
+            return;
+        }
+        if (endpoint.onComplete(latencyNanos, isEndpointFailure(error), settings)) {
+            logger.warn("Ejecting unhealthy Vertex AI endpoint {}", endpoint);
+        }
+    }
+    
+    public List<RegionalEndpoint> getEndpoints() {
+        return endpoints;
+    }
+    
+    /**
+     * Throttling and server errors reflect the region's health, other client errors don't
+     */
+    private static boolean isEndpointFailure(Throwable error) {
+        if (error == null) {
+            return false;
+        }
+        if (error instanceof VertexAiException) {
+            int status = ((VertexAiException) error).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return !(error instanceof CallNotPermittedException);
+    }
+    
+    static class Settings {
+        final int consecutiveFailuresToEject;
+        final double errorRateToEject;
+        final long ejectionDurationNanos;
+        final long minimumSamples = 10;
+        
+        Settings(int consecutiveFailuresToEject, double errorRateToEject, long ejectionDurationNanos) {
+            this.consecutiveFailuresToEject = consecutiveFailuresToEject;
+            this.errorRateToEject = errorRateToEject;
+            this.ejectionDurationNanos = ejectionDurationNanos;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.poc.ai.client;
+
+import org.poc.ai.model.GeminiResponse;
+
+/**
+ * Receives partial results from a streaming Gemini call as they arrive
+ */
+public interface GeminiStreamListener {
+    
+    /**
+     * Called for every partial candidate, in the order the server sent them
+     * 
+     * @param candidate the partial candidate carrying the newly generated text
+     */
+    void onCandidate(GeminiResponse.Candidate candidate);
+    
+    /**
+     * Called once the stream has been fully consumed
+     */
+    default void onComplete() {
+    }
+}
@@ -0,0 +1,246 @@
+package org.poc.ai.client;
+
+import org.poc.ai.metrics.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in request hedging to cut tail latency.
+ * <p>
+ * If the primary attempt hasn't completed after the hedge delay, a duplicate attempt is
+ * sent, optionally to a second regional endpoint. The first successful response wins and
+ * the other attempt is cancelled. The hedge delay tracks a percentile of the primary
+ * attempts' latency, and a budget caps hedges to a fraction of all requests so hedging
+ * can't multiply quota usage.
+ */
+public class HedgingPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(HedgingPolicy.class);
+    private static final long MIN_SAMPLES_FOR_PERCENTILE = 20;
+    private static final long BUDGET_SCALE = 1000;
+    
+    private final double delayPercentile;
+    private final Duration initialDelay;
+    private final Duration minDelay;
+    private final double maxHedgeRatio;
+    private final long maxBudget;
+    private String hedgeEndpoint;
+    private String hedgeLocation;
+    
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final LatencyHistogram primaryLatencyHistogram = new LatencyHistogram();
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+    
+    /**
+     * @param delayPercentile latency percentile after which a hedge is sent, e.g. 95
+     * @param initialDelay hedge delay used until enough latency samples have been recorded
+     * @param minDelay lower bound for the hedge delay
+     * @param maxHedgeRatio maximum fraction of requests that may be hedged, e.g. 0.1
+     */
+    public HedgingPolicy(double delayPercentile, Duration initialDelay, Duration minDelay, double maxHedgeRatio) {
+        this.delayPercentile = delayPercentile;
+        this.initialDelay = initialDelay;
+        this.minDelay = minDelay;
+        this.maxHedgeRatio = maxHedgeRatio;
+        // Allow a small burst of hedges after a quiet period, never more than ten
+        this.maxBudget = 10 * BUDGET_SCALE;
+    }
+    
+    /**
+     * Sends hedges to a different regional endpoint instead of repeating the primary one
+     * 
+     * @param hedgeEndpoint base URL of the second endpoint, e.g. https://europe-west4-aiplatform.googleapis.com
+     * @param hedgeLocation the location of that endpoint, e.g. europe-west4
+     */
+    public void setHedgeEndpoint(String hedgeEndpoint, String hedgeLocation) {
+        this.hedgeEndpoint = hedgeEndpoint;
+        this.hedgeLocation = hedgeLocation;
+    }
+    
+    public String getHedgeEndpoint() {
+        return hedgeEndpoint;
+    }
+    
+    public String getHedgeLocation() {
+        return hedgeLocation;
+    }
+    
+    /**
+     * Runs an operation with hedging. Cancelling the losing attempt's future must abort it.
+     * 
+     * @param primary starts the primary attempt
+     * @param hedge starts the hedge attempt
+     * @return a future completed with the first successful result, or the last failure
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> primary, Supplier<CompletableFuture<T>> hedge) {
+        requestCount.incrementAndGet();
+        addBudget();
+        
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean won = new AtomicBoolean();
+        AtomicBoolean primaryRecorded = new AtomicBoolean();
+        
+        CompletableFuture<T> primaryAttempt = primary.get();
+        CompletableFuture<CompletableFuture<T>> hedgeAttempt = new CompletableFuture<>();
+        
+        primaryAttempt.whenComplete((value, error) -> {
+            if (error == null && primaryRecorded.compareAndSet(false, true)) {
+                primaryLatencyHistogram.record(System.nanoTime() - start);
+            }
+            onAttemptComplete(result, pending, won, value, error, start, false);
+        });
+        
+        CompletableFuture.delayedExecutor(currentDelayNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone() || !tryConsumeBudget()) {
+                hedgeAttempt.complete(null);
+                return;
+            }
+            pending.incrementAndGet();
+            if (result.isDone()) {
+                pending.decrementAndGet();
+                hedgeAttempt.complete(null);
+                return;
+            }
+            hedgeCount.incrementAndGet();
+            logger.debug("Primary attempt still pending, sending hedge");
+            CompletableFuture<T> attempt = hedge.get();
+            hedgeAttempt.complete(attempt);
+            attempt.whenComplete((value, error) -> onAttemptComplete(result, pending, won, value, error, start, true));
+        });
+        
+        // Whoever wins, the other attempt is cancelled
+        result.whenComplete((value, error) -> {
+            if (!primaryAttempt.isDone()) {
+                // Cut short by the hedge, so the primary would have taken at least this long.
+                // Dropping the sample would leave only the fast primaries and shrink the delay.
+                if (error == null && primaryRecorded.compareAndSet(false, true)) {
+                    primaryLatencyHistogram.record(System.nanoTime() - start);
+                }
+                primaryAttempt.cancel(true);
+            }
+            hedgeAttempt.thenAccept(attempt -> {
+                if (attempt != null && !attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            });
+        });
+        
+        return result;
+    }
+    
+    private <T> void onAttemptComplete(CompletableFuture<T> result, AtomicInteger pending, AtomicBoolean won,
+                                       T value, Throwable error, long start, boolean isHedge) {
+        int remaining = pending.decrementAndGet();
+        if (error == null) {
+            // Count the win before completing so callers woken by the result see it
+            if (!result.isDone() && won.compareAndSet(false, true)) {
+                latencyHistogram.record(System.nanoTime() - start);
+                if (isHedge) {
+                    hedgeWinCount.incrementAndGet();
+                }
+            }
+            result.complete(value);
+        } else if (remaining == 0) {
+            // The last outstanding attempt failed
+            result.completeExceptionally(error);
+        }
+    }
+    
+    private long currentDelayNanos() {
+        if (primaryLatencyHistogram.getCount() < MIN_SAMPLES_FOR_PERCENTILE) {
+            return initialDelay.toNanos();
+        }
+        return Math.max(minDelay.toNanos(), primaryLatencyHistogram.getValueAtPercentile(delayPercentile));
+    }
+    
+    private void addBudget() {
+        long credit = (long) (maxHedgeRatio * BUDGET_SCALE);
+        budget.getAndUpdate(current -> Math.min(maxBudget, current + credit));
+    }
+    
+    private boolean tryConsumeBudget() {
+        while (true) {
+            long current = budget.get();
+            if (current < BUDGET_SCALE) {
+                budgetExhaustedCount.incrementAndGet();
+                return false;
+            }
+            if (budget.compareAndSet(current, current - BUDGET_SCALE)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @return the delay that would currently be used before hedging, in milliseconds
+     */
+    public long getCurrentDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentDelayNanos());
+    }
+    
+    /**
+     * Latency of successful executions as seen by the caller. Comparing its p99 with the same
+     * workload run without hedging shows the tail latency improvement.
+     * 
+     * @return the delivered latency histogram
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+    
+    /**
+     * Latency of the primary attempts, which the hedge delay is taken from. A primary that lost
+     * to a hedge counts with the time it had run when it was cancelled; a failed one doesn't count.
+     * 
+     * @return the primary attempt latency histogram
+     */
+    public LatencyHistogram getPrimaryLatencyHistogram() {
+        return primaryLatencyHistogram;
+    }
+    
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    
+    /**
+     * @return number of hedge attempts sent
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+    
+    /**
+     * @return number of requests answered by the hedge rather than the primary attempt
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+    
+    /**
+     * @return number of hedges skipped because the hedge budget was used up
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+    
+    /**
+     * @return fraction of requests that were hedged
+     */
+    public double getHedgeRatio() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0.0 : (double) hedgeCount.get() / requests;
+    }
+}
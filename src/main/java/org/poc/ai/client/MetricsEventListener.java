@@ -0,0 +1,201 @@
+package org.poc.ai.client;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Times the connect, upload, time-to-first-byte and body-read phases of a single call, forwarding
+ * every event to the listener the shared transport was built with.
+ * <p>
+ * OkHttp creates one listener per call and delivers its events sequentially, so the
+ * timestamps are plain fields.
+ */
+final class MetricsEventListener extends EventListener {
+    private final ClientMetrics metrics;
+    private final EventListener delegate;
+    private long connectStart;
+    private long uploadStart;
+    private long requestStart;
+    private long bodyStart;
+    
+    private MetricsEventListener(ClientMetrics metrics, EventListener delegate) {
+        this.metrics = metrics;
+        this.delegate = delegate;
+    }
+    
+    /**
+     * Creates listeners bound to whichever meters the client uses when the call starts
+     */
+    static EventListener.Factory factory(Supplier<ClientMetrics> metrics, EventListener.Factory delegate) {
+        return call -> new MetricsEventListener(metrics.get(), delegate.create(call));
+    }
+    
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        delegate.connectStart(call, inetSocketAddress, proxy);
+    }
+    
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        metrics.connect.record(System.nanoTime() - connectStart);
+        delegate.connectEnd(call, inetSocketAddress, proxy, protocol);
+    }
+    
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = System.nanoTime();
+        delegate.requestHeadersStart(call);
+    }
+    
+    @Override
+    public void requestBodyStart(Call call) {
+        uploadStart = System.nanoTime();
+        delegate.requestBodyStart(call);
+    }
+    
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        metrics.upload.record(System.nanoTime() - uploadStart);
+        delegate.requestBodyEnd(call, byteCount);
+    }
+    
+    @Override
+    public void responseHeadersStart(Call call) {
+        metrics.timeToFirstByte.record(System.nanoTime() - requestStart);
+        delegate.responseHeadersStart(call);
+    }
+    
+    @Override
+    public void responseBodyStart(Call call) {
+        bodyStart = System.nanoTime();
+        delegate.responseBodyStart(call);
+    }
+    
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        metrics.bodyRead.record(System.nanoTime() - bodyStart);
+        delegate.responseBodyEnd(call, byteCount);
+    }
+    
+    // Events that are only forwarded
+    
+    @Override
+    public void callStart(Call call) {
+        delegate.callStart(call);
+    }
+    
+    @Override
+    public void proxySelectStart(Call call, HttpUrl url) {
+        delegate.proxySelectStart(call, url);
+    }
+    
+    @Override
+    public void proxySelectEnd(Call call, HttpUrl url, List<Proxy> proxies) {
+        delegate.proxySelectEnd(call, url, proxies);
+    }
+    
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        delegate.dnsStart(call, domainName);
+    }
+    
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        delegate.dnsEnd(call, domainName, inetAddressList);
+    }
+    
+    @Override
+    public void secureConnectStart(Call call) {
+        delegate.secureConnectStart(call);
+    }
+    
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        delegate.secureConnectEnd(call, handshake);
+    }
+    
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        delegate.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+    }
+    
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        delegate.connectionAcquired(call, connection);
+    }
+    
+    @Override
+    public void connectionReleased(Call call, Connection connection) {
+        delegate.connectionReleased(call, connection);
+    }
+    
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        delegate.requestHeadersEnd(call, request);
+    }
+    
+    @Override
+    public void requestFailed(Call call, IOException ioe) {
+        delegate.requestFailed(call, ioe);
+    }
+    
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        delegate.responseHeadersEnd(call, response);
+    }
+    
+    @Override
+    public void responseFailed(Call call, IOException ioe) {
+        delegate.responseFailed(call, ioe);
+    }
+    
+    @Override
+    public void callEnd(Call call) {
+        delegate.callEnd(call);
+    }
+    
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        delegate.callFailed(call, ioe);
+    }
+    
+    @Override
+    public void canceled(Call call) {
+        delegate.canceled(call);
+    }
+    
+    @Override
+    public void satisfactionFailure(Call call, Response response) {
+        delegate.satisfactionFailure(call, response);
+    }
+    
+    @Override
+    public void cacheHit(Call call, Response response) {
+        delegate.cacheHit(call, response);
+    }
+    
+    @Override
+    public void cacheMiss(Call call) {
+        delegate.cacheMiss(call);
+    }
+    
+    @Override
+    public void cacheConditionalHit(Call call, Response cachedResponse) {
+        delegate.cacheConditionalHit(call, cachedResponse);
+    }
+}
@@ -0,0 +1,292 @@
+package org.poc.ai.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side rate and concurrency limiter keyed by publisher/model.
+ * <p>
+ * Each model gets a token bucket that caps the request rate and an AIMD concurrency limit:
+ * the limit grows by one per limit-worth of healthy calls and shrinks by the backoff ratio
+ * when a call is throttled (429) or takes much longer than the running average. Callers
+ * that have to wait receive a pending future instead of blocking a thread.
+ */
+public class ModelRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRateLimiter.class);
+    // Ignore sub-millisecond jitter so very fast calls don't look like latency spikes
+    private static final long MIN_LATENCY_SPIKE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final RateLimitConfig defaultConfig;
+    private final Map<String, RateLimitConfig> modelConfigs = new ConcurrentHashMap<>();
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+    
+    public ModelRateLimiter(RateLimitConfig defaultConfig) {
+        this.defaultConfig = defaultConfig;
+    }
+    
+    /**
+     * Overrides the limits for one model. Must be called before the model's first request.
+     * 
+     * @param modelKey the publisher/model key
+     * @param config the limits for that model
+     */
+    public void configure(String modelKey, RateLimitConfig config) {
+        modelConfigs.put(modelKey, config);
+    }
+    
+    /**
+     * Acquires a permit to send one request
+     * 
+     * @param modelKey the publisher/model key
+     * @return a future completed once both a rate token and a concurrency slot are available.
+     *         Cancel it to stop waiting; its token is handed back and a permit granted after
+     *         that is released again.
+     */
+    public CompletableFuture<Permit> acquire(String modelKey) {
+        return limitsFor(modelKey).acquire();
+    }
+    
+    /**
+     * @return the current concurrency limit for the model
+     */
+    public int getConcurrencyLimit(String modelKey) {
+        return (int) limitsFor(modelKey).limit;
+    }
+    
+    /**
+     * @return the number of requests currently holding a permit for the model
+     */
+    public int getInFlight(String modelKey) {
+        return limitsFor(modelKey).inFlight;
+    }
+    
+    /**
+     * @return the number of requests waiting for a concurrency slot for the model
+     */
+    public int getQueued(String modelKey) {
+        return limitsFor(modelKey).waiters.size();
+    }
+    
+    /**
+     * @return the number of throttled (429) responses reported for the model
+     */
+    public long getThrottledCount(String modelKey) {
+        return limitsFor(modelKey).throttled.get();
+    }
+    
+    private Limits limitsFor(String modelKey) {
+        return limits.computeIfAbsent(modelKey,
+                key -> new Limits(key, modelConfigs.getOrDefault(key, defaultConfig)));
+    }
+    
+    /**
+     * A granted permit. Exactly one of the outcome methods must be called when the request finishes.
+     */
+    public static class Permit {
+        private final Limits owner;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(Limits owner) {
+            this.owner = owner;
+        }
+        
+        /**
+         * The request succeeded
+         */
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) {
+                owner.release(Outcome.SUCCESS, System.nanoTime() - startNanos);
+            }
+        }
+        
+        /**
+         * The request was rejected with a 429
+         */
+        public void onThrottled() {
+            if (released.compareAndSet(false, true)) {
+                owner.release(Outcome.THROTTLED, System.nanoTime() - startNanos);
+            }
+        }
+        
+        /**
+         * The request failed for a reason that says nothing about capacity
+         */
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                owner.release(Outcome.IGNORE, 0);
+            }
+        }
+    }
+    
+    private enum Outcome {
+        SUCCESS, THROTTLED, IGNORE
+    }
+    
+    private static class Limits {
+        private final String modelKey;
+        private final RateLimitConfig config;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+        private final AtomicLong throttled = new AtomicLong();
+        private final long nanosPerPermit;
+        private final long burstToleranceNanos;
+        
+        // Token bucket state
+        private long theoreticalArrivalNanos;
+        
+        // AIMD state
+        private volatile double limit;
+        private volatile int inFlight;
+        private double averageLatencyNanos;
+        
+        private Limits(String modelKey, RateLimitConfig config) {
+            this.modelKey = modelKey;
+            this.config = config;
+            this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / config.getPermitsPerSecond());
+            this.burstToleranceNanos = nanosPerPermit * (Math.max(1, config.getBurst()) - 1);
+            this.theoreticalArrivalNanos = System.nanoTime();
+            this.limit = config.getInitialConcurrency();
+        }
+        
+        CompletableFuture<Permit> acquire() {
+            long waitNanos = reserveToken();
+            CompletableFuture<Permit> permit = waitNanos <= 0 ? acquireSlot() : acquirePaced(waitNanos);
+            // A cancelled request is never sent, so its token goes back to the bucket
+            permit.whenComplete((granted, error) -> {
+                if (granted == null) {
+                    returnToken();
+                }
+            });
+            return permit;
+        }
+        
+        private CompletableFuture<Permit> acquirePaced(long waitNanos) {
+            CompletableFuture<Permit> permit = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (permit.isDone()) {
+                    return;
+                }
+                CompletableFuture<Permit> slot = acquireSlot();
+                // A caller that stops waiting also gives up its place in the slot queue
+                permit.whenComplete((granted, error) -> slot.cancel(false));
+                slot.thenAccept(granted -> {
+                    if (!permit.complete(granted)) {
+                        granted.onIgnore();
+                    }
+                });
+            });
+            return permit;
+        }
+        
+        /**
+         * Reserves the next token and returns how long the caller must wait for it.
+         * Implemented as a generic cell rate algorithm: the theoretical arrival time
+         * advances by one interval per request and may run up to burst - 1 intervals ahead.
+         */
+        private long reserveToken() {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                long arrival = Math.max(theoreticalArrivalNanos, now);
+                theoreticalArrivalNanos = arrival + nanosPerPermit;
+                return arrival - now - burstToleranceNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        /**
+         * Gives back a reserved token. Moving the theoretical arrival time into the past has
+         * no effect, since reservations start from the current time at the earliest.
+         */
+        private void returnToken() {
+            lock.lock();
+            try {
+                theoreticalArrivalNanos -= nanosPerPermit;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private CompletableFuture<Permit> acquireSlot() {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return CompletableFuture.completedFuture(new Permit(this));
+                }
+                CompletableFuture<Permit> waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                return waiter;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void release(Outcome outcome, long latencyNanos) {
+            List<CompletableFuture<Permit>> granted = new ArrayList<>();
+            lock.lock();
+            try {
+                inFlight--;
+                adjustLimit(outcome, latencyNanos);
+                while (inFlight < (int) limit && !waiters.isEmpty()) {
+                    CompletableFuture<Permit> waiter = waiters.poll();
+                    // Skip callers that were cancelled or interrupted while queued
+                    if (!waiter.isDone()) {
+                        inFlight++;
+                        granted.add(waiter);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Complete outside the lock, waiters may run their continuation inline
+            for (CompletableFuture<Permit> waiter : granted) {
+                Permit permit = new Permit(this);
+                if (!waiter.complete(permit)) {
+                    // Cancelled after it was polled: hand the slot on instead of leaking it
+                    permit.onIgnore();
+                }
+            }
+        }
+        
+        private void adjustLimit(Outcome outcome, long latencyNanos) {
+            if (outcome == Outcome.IGNORE) {
+                return;
+            }
+            boolean latencySpike = outcome == Outcome.SUCCESS && averageLatencyNanos > 0
+                    && latencyNanos > averageLatencyNanos * config.getLatencyTolerance()
+                    && latencyNanos - averageLatencyNanos > MIN_LATENCY_SPIKE_NANOS;
+            if (outcome == Outcome.SUCCESS) {
+                averageLatencyNanos = averageLatencyNanos == 0
+                        ? latencyNanos
+                        : averageLatencyNanos * 0.9 + latencyNanos * 0.1;
+            }
+            
+            double previous = limit;
+            if (outcome == Outcome.THROTTLED || latencySpike) {
+                if (outcome == Outcome.THROTTLED) {
+                    throttled.incrementAndGet();
+                }
+                limit = Math.max(config.getMinConcurrency(), previous * config.getBackoffRatio());
+                logger.debug("Concurrency limit for {} reduced from {} to {} ({})", modelKey,
+                        (int) previous, (int) limit, latencySpike ? "latency spike" : "throttled");
+            } else {
+                limit = Math.min(config.getMaxConcurrency(), previous + 1.0 / previous);
+            }
+        }
+    }
+}
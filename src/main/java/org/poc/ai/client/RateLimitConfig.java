@@ -0,0 +1,82 @@
+package org.poc.ai.client;
+
+/**
+ * Settings for the per-model rate and concurrency limits applied by {@link ModelRateLimiter}
+ */
+public class RateLimitConfig {
+    private double permitsPerSecond = 10.0;
+    private int burst = 10;
+    private int initialConcurrency = 16;
+    private int minConcurrency = 1;
+    private int maxConcurrency = 256;
+    private double backoffRatio = 0.75;
+    private double latencyTolerance = 2.0;
+    
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+    
+    /**
+     * @param permitsPerSecond sustained request rate allowed by the token bucket
+     */
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+    
+    public int getBurst() {
+        return burst;
+    }
+    
+    /**
+     * @param burst number of requests that may be sent back to back after an idle period
+     */
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+    
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+    
+    public void setInitialConcurrency(int initialConcurrency) {
+        this.initialConcurrency = initialConcurrency;
+    }
+    
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+    
+    public void setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+    }
+    
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+    
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+    
+    /**
+     * @param backoffRatio factor the concurrency limit is multiplied by on a 429 or latency spike
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+    
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+    
+    /**
+     * @param latencyTolerance a call slower than this multiple of the average latency counts as a spike
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+}
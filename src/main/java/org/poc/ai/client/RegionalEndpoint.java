@@ -0,0 +1,156 @@
+package org.poc.ai.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A regional Vertex AI endpoint together with its observed health: exponentially weighted
+ * latency and error rate, in-flight calls and ejection state
+ */
+public class RegionalEndpoint {
+    private static final double EWMA_ALPHA = 0.2;
+    
+    private final String location;
+    private final String baseUrl;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong ejectionCount = new AtomicLong();
+    
+    // Guarded by lock
+    private double ewmaLatencyNanos;
+    private double ewmaErrorRate;
+    private long samples;
+    private int consecutiveFailures;
+    private volatile long ejectedUntilNanos;
+    
+    public RegionalEndpoint(String location, String baseUrl) {
+        this.location = location;
+        this.baseUrl = baseUrl;
+    }
+    
+    /**
+     * Creates the endpoint for a location using the public regional host name
+     * 
+     * @param location e.g. us-central1
+     * @return the endpoint https://{location}-aiplatform.googleapis.com
+     */
+    public static RegionalEndpoint forLocation(String location) {
+        return new RegionalEndpoint(location, "https://" + location + "-aiplatform.googleapis.com");
+    }
+    
+    public String getLocation() {
+        return location;
+    }
+    
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+    
+    /**
+     * @return exponentially weighted latency in milliseconds
+     */
+    public double getLatencyMillis() {
+        lock.lock();
+        try {
+            return ewmaLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return exponentially weighted error rate between 0 and 1
+     */
+    public double getErrorRate() {
+        lock.lock();
+        try {
+            return ewmaErrorRate;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    
+    public long getEjectionCount() {
+        return ejectionCount.get();
+    }
+    
+    public boolean isEjected() {
+        return System.nanoTime() < ejectedUntilNanos;
+    }
+    
+    void onStart() {
+        inFlight.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+    
+    void onCancelled() {
+        inFlight.decrementAndGet();
+    }
+    
+    /**
+     * Records the outcome of a call and ejects the endpoint if it looks unhealthy
+     * 
+     * @return true if this call caused the endpoint to be ejected
+     */
+    boolean onComplete(long latencyNanos, boolean error, EndpointSelector.Settings settings) {
+        inFlight.decrementAndGet();
+        lock.lock();
+        try {
+            samples++;
+            ewmaErrorRate = ewmaErrorRate * (1 - EWMA_ALPHA) + (error ? EWMA_ALPHA : 0);
+            if (!error) {
+                ewmaLatencyNanos = ewmaLatencyNanos == 0
+                        ? latencyNanos
+                        : ewmaLatencyNanos * (1 - EWMA_ALPHA) + latencyNanos * EWMA_ALPHA;
+                consecutiveFailures = 0;
+                return false;
+            }
+            
+            consecutiveFailures++;
+            boolean unhealthy = consecutiveFailures >= settings.consecutiveFailuresToEject
+                    || (samples >= settings.minimumSamples && ewmaErrorRate >= settings.errorRateToEject);
+            if (!unhealthy || isEjected()) {
+                return false;
+            }
+            
+            ejectedUntilNanos = System.nanoTime() + settings.ejectionDurationNanos;
+            ejectionCount.incrementAndGet();
+            // Start afresh once the ejection ends so the endpoint gets probed again
+            consecutiveFailures = 0;
+            ewmaErrorRate = 0;
+            samples = 0;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Load-balancing score, lower is better. Unmeasured endpoints score lowest so they get tried.
+     */
+    double score() {
+        lock.lock();
+        try {
+            double latency = ewmaLatencyNanos + TimeUnit.MILLISECONDS.toNanos(1);
+            return latency * (inFlight.get() + 1) / (1.0 - Math.min(ewmaErrorRate, 0.99));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", location, baseUrl);
+    }
+}
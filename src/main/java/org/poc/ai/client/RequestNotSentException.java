@@ -0,0 +1,14 @@
+package org.poc.ai.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a call failed before its request body was written, so the server cannot have
+ * acted on it and the call is safe to repeat
+ */
+public class RequestNotSentException extends IOException {
+    
+    public RequestNotSentException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,156 @@
+package org.poc.ai.client;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry policy for Vertex AI calls using exponential backoff with full jitter.
+ * <p>
+ * Only failures that are safe to repeat are retried: throttling (429), timeouts (408),
+ * transient server errors (500, 502, 503, 504), connect failures and other failures before
+ * the request was written. Read timeouts after the request was sent are not retried, since
+ * the server may already be working on it, and neither are authentication failures such as
+ * a rejected token grant. A Retry-After header sent by the server is honored as the minimum
+ * delay before the next attempt.
+ */
+public class RetryPolicy {
+    private static final Set<Integer> DEFAULT_RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+    
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Set<Integer> retryableStatusCodes;
+    
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong totalBackoffMillis = new AtomicLong();
+    
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        this(maxAttempts, baseDelay, maxDelay, DEFAULT_RETRYABLE_STATUS_CODES);
+    }
+    
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, Set<Integer> retryableStatusCodes) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.retryableStatusCodes = Set.copyOf(retryableStatusCodes);
+    }
+    
+    /**
+     * @return a policy that never retries
+     */
+    public static RetryPolicy noRetry() {
+        return new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+    }
+    
+    /**
+     * @return a policy with 3 attempts, 200ms base delay and 10s maximum delay
+     */
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(3, Duration.ofMillis(200), Duration.ofSeconds(10));
+    }
+    
+    /**
+     * Checks whether a failure is worth retrying
+     * 
+     * @param error the failure of the last attempt
+     * @return true if the same request may be sent again
+     */
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof VertexAiException) {
+            return retryableStatusCodes.contains(((VertexAiException) error).getStatusCode());
+        }
+        if (error instanceof CallNotPermittedException) {
+            // Retrying into an open circuit would only add delay
+            return false;
+        }
+        if (error instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        return error instanceof RequestNotSentException || isConnectFailure(error);
+    }
+    
+    /**
+     * OkHttp reports connect timeouts as "connect timed out" and read or write timeouts as
+     * "timeout", both as SocketTimeoutException
+     */
+    private static boolean isConnectFailure(Throwable error) {
+        if (error instanceof ConnectException || error instanceof NoRouteToHostException
+                || error instanceof UnknownHostException) {
+            return true;
+        }
+        return error instanceof SocketTimeoutException && error.getMessage() != null
+                && error.getMessage().toLowerCase(Locale.ROOT).startsWith("connect");
+    }
+    
+    /**
+     * Computes the delay before the next attempt and records the retry
+     * 
+     * @param attempt the number of the attempt that just failed, starting at 1
+     * @param error the failure of that attempt
+     * @return the delay in milliseconds, or -1 if the request should not be retried
+     */
+    public long nextDelayMillis(int attempt, Throwable error) {
+        if (!isRetryable(error)) {
+            return -1;
+        }
+        if (attempt >= maxAttempts) {
+            exhaustedCount.incrementAndGet();
+            return -1;
+        }
+        
+        // Full jitter: a uniform delay between zero and the exponential ceiling
+        long ceiling = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt - 1, 30));
+        long delay = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+        
+        if (error instanceof VertexAiException && ((VertexAiException) error).getRetryAfter() != null) {
+            long retryAfter = ((VertexAiException) error).getRetryAfter().toMillis();
+            if (retryAfter > maxDelay.toMillis()) {
+                // The server asked for a longer pause than we are willing to wait
+                exhaustedCount.incrementAndGet();
+                return -1;
+            }
+            delay = Math.max(delay, retryAfter);
+        }
+        
+        retryCount.incrementAndGet();
+        totalBackoffMillis.addAndGet(delay);
+        return delay;
+    }
+    
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    /**
+     * @return number of retries performed
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+    
+    /**
+     * @return number of calls that still failed with a retryable error after giving up
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+    
+    /**
+     * @return total latency added by backoff delays, in milliseconds
+     */
+    public long getTotalBackoffMillis() {
+        return totalBackoffMillis.get();
+    }
+}
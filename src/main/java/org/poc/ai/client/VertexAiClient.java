@@ -1,17 +1,52 @@
 package org.poc.ai.client;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import okhttp3.*;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
 import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.cache.ResponseCache;
 import org.poc.ai.config.EnvironmentConfig;
+import org.poc.ai.metrics.InMemoryMetricsRegistry;
+import org.poc.ai.metrics.MetricsRegistry;
+import org.poc.ai.metrics.TokenUsageTracker;
+import org.poc.ai.model.CachedContent;
+import org.poc.ai.model.EncodedRequest;
+import org.poc.ai.model.GeminiJsonCodec;
 import org.poc.ai.model.GeminiRequest;
 import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.model.LazyGeminiResponse;
+import org.poc.ai.model.PromptTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 /**
  * Client for interacting with Google Vertex AI API to access Gemini models
@@ -19,7 +54,6 @@ import java.util.concurrent.TimeUnit;
 public class VertexAiClient {
     private static final Logger logger = LoggerFactory.getLogger(VertexAiClient.class);
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-    private static final Gson gson = new Gson();
     
     private final OkHttpClient httpClient;
     private final GoogleAuthService authService;
@@ -28,7 +62,26 @@ public class VertexAiClient {
     private final String publisher;
     private final String modelId;
     private final String vertexApiEndpoint;
+    private final String modelKey;
+    private final HttpUrl generateContentUrl;
+    private final HttpUrl streamGenerateContentUrl;
+    private final HttpUrl cachedContentsUrl;
+    private final Map<RegionalEndpoint, HttpUrl> regionalUrls = new ConcurrentHashMap<>();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.noRetry();
+    private volatile ModelRateLimiter rateLimiter;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile HedgingPolicy hedgingPolicy;
+    private volatile EndpointSelector endpointSelector;
+    private volatile ResponseCache responseCache;
+    private volatile ClientMetrics metrics;
+    private volatile TokenUsageTracker tokenUsageTracker = new TokenUsageTracker();
+    private volatile boolean requestCompression;
+    private volatile boolean lazyResponseParsing;
     
+    /**
+     * Creates a client configured from environment variables. The HTTP transport is
+     * shared with every other client created through {@link VertexAiClientFactory#getDefault()}.
+     */
     public VertexAiClient(GoogleAuthService authService) {
         this.authService = authService;
         this.projectId = EnvironmentConfig.get("PROJECT_ID");
@@ -37,12 +90,17 @@ public class VertexAiClient {
         this.modelId = EnvironmentConfig.get("MODEL_ID", "gemini-flash");
         this.vertexApiEndpoint = EnvironmentConfig.get("VERTEX_API_ENDPOINT", 
                 "https://us-central1-aiplatform.googleapis.com");
+        this.modelKey = publisher + "/" + modelId;
+        this.metrics = new ClientMetrics(new InMemoryMetricsRegistry(), modelKey);
+        this.httpClient = instrument(VertexAiClientFactory.getDefault().getHttpClient());
+        this.generateContentUrl = buildGenerateContentUrl();
+        this.streamGenerateContentUrl = buildStreamGenerateContentUrl();
+        this.cachedContentsUrl = buildCachedContentsUrl();
         
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        String regions = EnvironmentConfig.get("VERTEX_REGIONS");
+        if (regions != null && !regions.isBlank()) {
+            this.endpointSelector = EndpointSelector.fromSpec(regions);
+        }
         
         logger.info("Initialized Vertex AI client for model: {}/{}", publisher, modelId);
     }
@@ -54,12 +112,17 @@ public class VertexAiClient {
                           String projectId, String location, String publisher, 
                           String modelId, String vertexApiEndpoint) {
         this.authService = authService;
-        this.httpClient = httpClient;
         this.projectId = projectId;
         this.location = location;
         this.publisher = publisher;
         this.modelId = modelId;
         this.vertexApiEndpoint = vertexApiEndpoint;
+        this.modelKey = publisher + "/" + modelId;
+        this.metrics = new ClientMetrics(new InMemoryMetricsRegistry(), modelKey);
+        this.httpClient = instrument(httpClient);
+        this.generateContentUrl = buildGenerateContentUrl();
+        this.streamGenerateContentUrl = buildStreamGenerateContentUrl();
+        this.cachedContentsUrl = buildCachedContentsUrl();
     }
     
     /**
@@ -70,35 +133,1092 @@ public class VertexAiClient {
      * @throws IOException if there's an error with the API call
      */
     public GeminiResponse generateContent(GeminiRequest request) throws IOException {
-        String accessToken = authService.getAccessToken();
-        String url = buildGenerateContentUrl();
+        return generate(request);
+    }
+    
+    /**
+     * Generates content for a prompt template, writing the body from the template's
+     * pre-encoded JSON rather than building a request
+     * 
+     * @param template the compiled request shape
+     * @param text the text that replaces the template's slot
+     * @return the model's response
+     * @throws IOException if there's an error with the API call
+     */
+    public GeminiResponse generateContent(PromptTemplate template, String text) throws IOException {
+        return generate(template.newRequest(text));
+    }
+    
+    private GeminiResponse generate(EncodedRequest request) throws IOException {
+        ResponseCache cache = responseCache;
+        if (cache != null && ResponseCache.isCacheable(request)) {
+            ClientMetrics meters = metrics;
+            AtomicBoolean loaded = new AtomicBoolean();
+            try {
+                return cache.get(ResponseCache.key(getModelKey(), request), () -> {
+                    loaded.set(true);
+                    return generateUncached(request);
+                });
+            } finally {
+                recordCacheOutcome(meters, loaded.get());
+            }
+        }
+        return generateUncached(request);
+    }
+    
+    /**
+     * Requests that joined another caller's in-flight load count as hits, since they
+     * did not call the API themselves
+     */
+    private static void recordCacheOutcome(ClientMetrics meters, boolean loaded) {
+        if (loaded) {
+            meters.cacheMisses.increment();
+        } else {
+            meters.cacheHits.increment();
+        }
+    }
+    
+    private GeminiResponse generateUncached(EncodedRequest request) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeGenerateContent(request);
+            } catch (IOException e) {
+                long delay = policy.nextDelayMillis(attempt, e);
+                if (delay < 0) {
+                    throw e;
+                }
+                logger.debug("Attempt {} failed ({}), retrying in {} ms", attempt, e.getMessage(), delay);
+                metrics.retries.increment();
+                sleep(delay);
+            }
+        }
+    }
+    
+    private GeminiResponse executeGenerateContent(EncodedRequest request) throws IOException {
+        CircuitBreaker breaker = circuitBreaker;
+        long permission = breaker != null ? breaker.acquirePermission() : 0;
         
-        RequestBody requestBody = RequestBody.create(
-                gson.toJson(request), 
-                JSON
-        );
+        ModelRateLimiter.Permit permit;
+        try {
+            permit = acquirePermit();
+        } catch (IOException e) {
+            if (breaker != null) {
+                breaker.releasePermission(permission);
+            }
+            throw e;
+        }
         
-        Request httpRequest = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", "Bearer " + accessToken)
-                .addHeader("Content-Type", "application/json")
-                .post(requestBody)
-                .build();
+        ClientMetrics meters = metrics;
+        long start = System.nanoTime();
+        try {
+            GeminiResponse geminiResponse = executeCall(request, meters);
+            releasePermit(permit, null);
+            recordResult(breaker, permission, start, null);
+            meters.recordCall(System.nanoTime() - start, null);
+            return geminiResponse;
+        } catch (IOException | RuntimeException e) {
+            releasePermit(permit, e);
+            recordResult(breaker, permission, start, e);
+            meters.recordCall(System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+    
+    private GeminiResponse executeCall(EncodedRequest request, ClientMetrics meters) throws IOException {
+        // Read once, so the endpoint is chosen from and reported to the same selector
+        HedgingPolicy policy = hedgingPolicy;
+        EndpointSelector selector = endpointSelector;
+        if (policy != null && request.getCachedContent() == null) {
+            // Hedging needs two concurrent calls, so it always goes through the async path
+            return awaitHedged(sendHedged(selector, request, accessToken(meters), policy));
+        }
+        
+        RegionalEndpoint endpoint = endpointFor(selector, request);
+        HttpUrl url = generateContentUrl(endpoint);
+        Request httpRequest = buildHttpRequest(url, request, accessToken(meters));
         
         logger.debug("Sending request to Vertex AI: {}", url);
         
-        try (Response response = httpClient.newCall(httpRequest).execute()) {
+        if (endpoint != null) {
+            selector.onStart(endpoint);
+        }
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = httpClient.newCall(httpRequest).execute();
+        } catch (IOException e) {
+            IOException failure = sendFailure(httpRequest, e);
+            if (endpoint != null) {
+                selector.onComplete(endpoint, System.nanoTime() - start, failure);
+            }
+            throw failure;
+        }
+        try (response) {
             if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No response body";
-                logger.error("API call failed with code {}: {}", response.code(), errorBody);
-                throw new IOException("API call failed with code " + response.code() + ": " + errorBody);
+                throw apiError(response);
             }
             
-            String responseBody = response.body().string();
+            GeminiResponse geminiResponse = readResponse(response, meters);
             logger.debug("Received response from Vertex AI");
+            if (endpoint != null) {
+                selector.onComplete(endpoint, System.nanoTime() - start, null);
+            }
+            return geminiResponse;
+        } catch (IOException | RuntimeException e) {
+            if (endpoint != null) {
+                selector.onComplete(endpoint, System.nanoTime() - start, e);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Generates content using the Gemini Flash model without blocking the calling thread.
+     * The call is queued on the OkHttp dispatcher, whose limits are configured through
+     * VERTEX_MAX_REQUESTS and VERTEX_MAX_REQUESTS_PER_HOST.
+     * 
+     * @param request the request containing the prompt and other parameters
+     * @return a future completed with the model's response, or exceptionally with an IOException.
+     *         Cancelling it cancels the HTTP call in flight and any pending retry, except for a
+     *         cached request, whose call may be shared with other callers and keeps running.
+     */
+    public CompletableFuture<GeminiResponse> generateContentAsync(GeminiRequest request) {
+        return generateAsync(request);
+    }
+    
+    /**
+     * Asynchronous variant of {@link #generateContent(PromptTemplate, String)}
+     * 
+     * @param template the compiled request shape
+     * @param text the text that replaces the template's slot
+     * @return a future completed with the model's response, or exceptionally with an IOException
+     */
+    public CompletableFuture<GeminiResponse> generateContentAsync(PromptTemplate template, String text) {
+        return generateAsync(template.newRequest(text));
+    }
+    
+    private CompletableFuture<GeminiResponse> generateAsync(EncodedRequest request) {
+        ResponseCache cache = responseCache;
+        if (cache != null && ResponseCache.isCacheable(request)) {
+            ClientMetrics meters = metrics;
+            AtomicBoolean loaded = new AtomicBoolean();
+            CompletableFuture<GeminiResponse> future = cache.getAsync(ResponseCache.key(getModelKey(), request), () -> {
+                loaded.set(true);
+                return generateUncachedAsync(request);
+            });
+            recordCacheOutcome(meters, loaded.get());
+            return future;
+        }
+        return generateUncachedAsync(request);
+    }
+    
+    private CompletableFuture<GeminiResponse> generateUncachedAsync(EncodedRequest request) {
+        CompletableFuture<GeminiResponse> result = new CompletableFuture<>();
+        executeWithRetryAsync(request, 1, retryPolicy, result);
+        return result;
+    }
+    
+    private void executeWithRetryAsync(EncodedRequest request, int attempt, RetryPolicy policy,
+                                       CompletableFuture<GeminiResponse> result) {
+        if (result.isDone()) {
+            // Cancelled while the retry was pending
+            return;
+        }
+        CircuitBreaker breaker = circuitBreaker;
+        CompletableFuture<Long> permitted = CompletableFuture.completedFuture(0L);
+        if (breaker != null) {
+            try {
+                permitted = CompletableFuture.completedFuture(breaker.acquirePermission());
+            } catch (CallNotPermittedException e) {
+                permitted = CompletableFuture.failedFuture(e);
+            }
+        }
+        
+        permitted
+                .thenCompose(permission -> {
+                    CompletableFuture<ModelRateLimiter.Permit> pending = acquirePermitAsync();
+                    // Stop waiting for a slot once the caller no longer wants the result
+                    result.whenComplete((response, error) -> pending.cancel(false));
+                    return pending
+                            .whenComplete((permit, error) -> {
+                                // Never sent, so the breaker permission goes back without an outcome
+                                if (error != null && breaker != null) {
+                                    breaker.releasePermission(permission);
+                                }
+                            })
+                            .thenCompose(permit -> {
+                                ClientMetrics meters = metrics;
+                                long start = System.nanoTime();
+                                return accessTokenAsync(meters)
+                                        .thenCompose(accessToken -> {
+                                            CompletableFuture<GeminiResponse> sent = send(request, accessToken);
+                                            // Cancelling the returned future cancels the attempt and releases its connection
+                                            result.whenComplete((response, error) -> sent.cancel(true));
+                                            return sent;
+                                        })
+                                        .whenComplete((response, error) -> {
+                                            releasePermit(permit, error);
+                                            recordResult(breaker, permission, start, error);
+                                            meters.recordCall(System.nanoTime() - start, error);
+                                        });
+                            });
+                })
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        result.complete(response);
+                        return;
+                    }
+                    Throwable cause = unwrap(error);
+                    long delay = result.isDone() ? -1 : policy.nextDelayMillis(attempt, cause);
+                    if (delay < 0) {
+                        result.completeExceptionally(cause);
+                        return;
+                    }
+                    logger.debug("Attempt {} failed ({}), retrying in {} ms", attempt, cause.getMessage(), delay);
+                    metrics.retries.increment();
+                    // Wait on a timer instead of a thread
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                            .execute(() -> executeWithRetryAsync(request, attempt + 1, policy, result));
+                });
+    }
+    
+    /**
+     * Runs many blocking generateContent calls at once, each on its own virtual thread, and
+     * waits for all of them. Unlike a platform thread pool, a waiting call costs a few
+     * kilobytes of heap rather than a thread, so thousands can be in flight. Retries, rate
+     * limiting and the response cache apply to every call as usual.
+     * <p>
+     * Use a transport limited to HTTP/1.1, such as one from {@link VertexAiClientFactory}
+     * with virtual threads enabled. Over OkHttp 4's HTTP/2 each waiting call pins its carrier
+     * thread, which caps concurrency at the number of carriers.
+     * 
+     * @param requests the requests to send
+     * @param maxConcurrency the most calls in flight at any time
+     * @return one completed future per request, in request order
+     * @throws InterruptedException if interrupted while waiting; calls already started are cancelled
+     */
+    public List<CompletableFuture<GeminiResponse>> generateContentAll(List<GeminiRequest> requests, int maxConcurrency)
+            throws InterruptedException {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<GeminiResponse>> results = new ArrayList<>(requests.size());
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vertex-call-", 0).factory());
+        try {
+            for (GeminiRequest request : requests) {
+                permits.acquire();
+                CompletableFuture<GeminiResponse> result = new CompletableFuture<>();
+                results.add(result);
+                executor.execute(() -> {
+                    try {
+                        result.complete(generateContent(request));
+                    } catch (Throwable e) {
+                        // Complete even on an Error so the caller never sees a pending future
+                        result.completeExceptionally(e);
+                        if (e instanceof Error) {
+                            throw (Error) e;
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // Interrupting a virtual thread blocked on a socket aborts its call
+            executor.shutdownNow();
+            throw e;
+        } finally {
+            // Waits for every started call to finish
+            executor.close();
+        }
+        return results;
+    }
+    
+    private ModelRateLimiter.Permit acquirePermit() throws IOException {
+        ModelRateLimiter limiter = rateLimiter;
+        if (limiter == null) {
+            return null;
+        }
+        CompletableFuture<ModelRateLimiter.Permit> pending = limiter.acquire(getModelKey());
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            // Leave the queue, or give back the permit if it was granted in the meantime
+            if (!pending.cancel(false)) {
+                pending.join().onIgnore();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a rate limit permit");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to acquire a rate limit permit", e.getCause());
+        }
+    }
+    
+    private CompletableFuture<ModelRateLimiter.Permit> acquirePermitAsync() {
+        ModelRateLimiter limiter = rateLimiter;
+        return limiter == null ? CompletableFuture.completedFuture(null) : limiter.acquire(getModelKey());
+    }
+    
+    private static void recordResult(CircuitBreaker breaker, long permission, long startNanos, Throwable error) {
+        if (breaker != null) {
+            breaker.onResult(permission, System.nanoTime() - startNanos, unwrap(error));
+        }
+    }
+    
+    private static void releasePermit(ModelRateLimiter.Permit permit, Throwable error) {
+        if (permit == null) {
+            return;
+        }
+        Throwable cause = unwrap(error);
+        if (cause == null) {
+            permit.onSuccess();
+        } else if (cause instanceof VertexAiException && ((VertexAiException) cause).getStatusCode() == 429) {
+            permit.onThrottled();
+        } else {
+            permit.onIgnore();
+        }
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private CompletableFuture<GeminiResponse> send(EncodedRequest request, String accessToken) {
+        HedgingPolicy policy = hedgingPolicy;
+        EndpointSelector selector = endpointSelector;
+        if (policy != null && request.getCachedContent() == null) {
+            return sendHedged(selector, request, accessToken, policy);
+        }
+        return enqueueTo(selector, endpointFor(selector, request), request, accessToken);
+    }
+    
+    private CompletableFuture<GeminiResponse> sendHedged(EndpointSelector selector, EncodedRequest request,
+                                                         String accessToken, HedgingPolicy policy) {
+        RegionalEndpoint primaryEndpoint = selectEndpoint(selector, null);
+        Supplier<CompletableFuture<GeminiResponse>> hedge;
+        if (policy.getHedgeEndpoint() != null) {
+            Request hedgeRequest = buildHttpRequest(
+                    HttpUrl.get(buildModelUrl(policy.getHedgeEndpoint(), policy.getHedgeLocation(), "generateContent")),
+                    request, accessToken);
+            hedge = () -> enqueue(hedgeRequest);
+        } else {
+            // Without an explicit hedge endpoint, hedge to another region when routing is enabled
+            hedge = () -> enqueueTo(selector, selectEndpoint(selector, primaryEndpoint), request, accessToken);
+        }
+        return policy.execute(() -> enqueueTo(selector, primaryEndpoint, request, accessToken), hedge);
+    }
+    
+    /**
+     * Sends the request to the given regional endpoint, or to the configured endpoint if null,
+     * feeding the outcome back into the endpoint selector
+     */
+    private CompletableFuture<GeminiResponse> enqueueTo(EndpointSelector selector, RegionalEndpoint endpoint,
+                                                        EncodedRequest request, String accessToken) {
+        CompletableFuture<GeminiResponse> future = enqueue(buildHttpRequest(generateContentUrl(endpoint), request, accessToken));
+        if (endpoint != null) {
+            selector.onStart(endpoint);
+            long start = System.nanoTime();
+            future.whenComplete((response, error) ->
+                    selector.onComplete(endpoint, System.nanoTime() - start, unwrap(error)));
+        }
+        return future;
+    }
+    
+    /**
+     * Cached content only exists in the region it was created in, so a request that references
+     * it is pinned to that region rather than routed or hedged elsewhere
+     * 
+     * @return the endpoint for the request, or null for the configured endpoint
+     */
+    private RegionalEndpoint endpointFor(EndpointSelector selector, EncodedRequest request) {
+        String cachedContent = request.getCachedContent();
+        if (cachedContent == null) {
+            return selectEndpoint(selector, null);
+        }
+        String cacheLocation = cachedContentLocation(cachedContent);
+        if (selector == null || cacheLocation == null || cacheLocation.equals(location)) {
+            return null;
+        }
+        for (RegionalEndpoint endpoint : selector.getEndpoints()) {
+            if (endpoint.getLocation().equals(cacheLocation)) {
+                return endpoint;
+            }
+        }
+        // Caches are created through the configured endpoint, so fall back to it
+        return null;
+    }
+    
+    /**
+     * @param name a resource name such as projects/p/locations/us-central1/cachedContents/123
+     * @return the location segment of the name, or null if it has none
+     */
+    static String cachedContentLocation(String name) {
+        int start = name.indexOf("locations/");
+        if (start < 0) {
+            return null;
+        }
+        start += "locations/".length();
+        int end = name.indexOf('/', start);
+        return end < 0 ? name.substring(start) : name.substring(start, end);
+    }
+    
+    /**
+     * @return the endpoint chosen by the selector, or null if routing is disabled
+     */
+    private static RegionalEndpoint selectEndpoint(EndpointSelector selector, RegionalEndpoint exclude) {
+        return selector == null ? null : selector.select(exclude);
+    }
+    
+    private static GeminiResponse awaitHedged(CompletableFuture<GeminiResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    private CompletableFuture<GeminiResponse> enqueue(Request httpRequest) {
+        CompletableFuture<GeminiResponse> future = new CompletableFuture<>();
+        Call call = httpClient.newCall(httpRequest);
+        
+        logger.debug("Enqueuing request to Vertex AI: {}", httpRequest.url());
+        
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(sendFailure(httpRequest, e));
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        future.completeExceptionally(apiError(response));
+                        return;
+                    }
+                    
+                    GeminiResponse geminiResponse = readResponse(response, metrics);
+                    logger.debug("Received response from Vertex AI");
+                    
+                    future.complete(geminiResponse);
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        
+        // Cancelling the attempt releases the connection instead of waiting for the response
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Generates content using the streaming endpoint, delivering each partial candidate
+     * to the listener as soon as its server-sent event arrives.
+     * <p>
+     * The call goes through the circuit breaker and the rate limiter like generateContent.
+     * It holds its concurrency slot until the stream ends. For the slow-call threshold, its
+     * duration is the time until the response headers arrive.
+     * 
+     * @param request the request containing the prompt and other parameters
+     * @param listener receives the partial candidates in arrival order
+     * @throws IOException if there's an error with the API call or the stream is malformed
+     */
+    public void streamGenerateContent(GeminiRequest request, GeminiStreamListener listener) throws IOException {
+        CircuitBreaker breaker = circuitBreaker;
+        long permission = breaker != null ? breaker.acquirePermission() : 0;
+        
+        ModelRateLimiter.Permit permit;
+        try {
+            permit = acquirePermit();
+        } catch (IOException e) {
+            if (breaker != null) {
+                breaker.releasePermission(permission);
+            }
+            throw e;
+        }
+        
+        ClientMetrics meters = metrics;
+        HttpUrl url = streamGenerateContentUrl;
+        long start = System.nanoTime();
+        long responded = 0;
+        try {
+            Request httpRequest = buildHttpRequest(url, request, accessToken(meters)).newBuilder()
+                    .header("Accept", "text/event-stream")
+                    .build();
             
-            return gson.fromJson(responseBody, GeminiResponse.class);
+            logger.debug("Sending streaming request to Vertex AI: {}", url);
+            
+            try (Response response = httpClient.newCall(httpRequest).execute()) {
+                responded = System.nanoTime();
+                if (!response.isSuccessful()) {
+                    throw apiError(response);
+                }
+                
+                BufferedSource source = response.body().source();
+                StringBuilder eventData = new StringBuilder();
+                GeminiResponse.UsageMetadata usage = null;
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    if (line.isEmpty()) {
+                        usage = latest(usage, dispatchEvent(eventData, listener, meters));
+                    } else if (line.startsWith("data:")) {
+                        if (eventData.length() > 0) {
+                            eventData.append('\n');
+                        }
+                        eventData.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+                    }
+                    // Other SSE fields (event, id, retry) and comments are not used by Vertex AI
+                }
+                usage = latest(usage, dispatchEvent(eventData, listener, meters));
+                // Every chunk carries running totals, so only the last one is counted
+                recordUsage(usage, meters);
+            }
+            logger.debug("Streaming response from Vertex AI completed");
+            releasePermit(permit, null);
+            if (breaker != null) {
+                breaker.onResult(permission, responded - start, null);
+            }
+            meters.recordCall(System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            releasePermit(permit, e);
+            if (breaker != null) {
+                breaker.onResult(permission, (responded != 0 ? responded : System.nanoTime()) - start, e);
+            }
+            meters.recordCall(System.nanoTime() - start, e);
+            throw e;
         }
+        
+        listener.onComplete();
+    }
+    
+    /**
+     * Parses one server-sent event and hands its candidates to the listener
+     * 
+     * @return the usage reported in the event, or null if it had none
+     */
+    private GeminiResponse.UsageMetadata dispatchEvent(StringBuilder eventData, GeminiStreamListener listener,
+                                                       ClientMetrics meters) throws IOException {
+        if (eventData.length() == 0) {
+            return null;
+        }
+        GeminiResponse chunk;
+        long start = System.nanoTime();
+        try {
+            chunk = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(eventData.toString()));
+            meters.parse.record(System.nanoTime() - start);
+        } catch (JsonParseException | EOFException e) {
+            throw new IOException("Malformed streaming event from Vertex AI: " + e.getMessage(), e);
+        } finally {
+            eventData.setLength(0);
+        }
+        if (chunk == null) {
+            return null;
+        }
+        if (chunk.getCandidates() != null) {
+            for (GeminiResponse.Candidate candidate : chunk.getCandidates()) {
+                listener.onCandidate(candidate);
+            }
+        }
+        return chunk.getUsageMetadata();
+    }
+    
+    private static GeminiResponse.UsageMetadata latest(GeminiResponse.UsageMetadata previous,
+                                                       GeminiResponse.UsageMetadata current) {
+        return current != null ? current : previous;
+    }
+    
+    /**
+     * Stores a prompt prefix server-side so later requests can reference it through
+     * {@link GeminiRequest#setCachedContent(String)} instead of sending it again. Vertex AI
+     * rejects prefixes below a model-specific minimum token count.
+     * 
+     * @param contents the prefix to cache
+     * @param ttl how long the server keeps it, in whole seconds
+     * @return the created cache, including its name and expiry time
+     * @throws IOException if there's an error with the API call
+     */
+    public CachedContent createCachedContent(List<GeminiRequest.Content> contents, Duration ttl) throws IOException {
+        return createCachedContent(null, contents, ttl);
+    }
+    
+    /**
+     * Stores a system instruction together with a prompt prefix. Requests that reference the
+     * cache must not set their own system instruction.
+     * 
+     * @param systemInstruction the instruction to cache, may be null
+     * @param contents the prefix to cache
+     * @param ttl how long the server keeps it, in whole seconds
+     * @return the created cache, including its name and expiry time
+     * @throws IOException if there's an error with the API call
+     */
+    public CachedContent createCachedContent(GeminiRequest.Content systemInstruction, List<GeminiRequest.Content> contents,
+                                             Duration ttl) throws IOException {
+        String model = "projects/" + projectId + "/locations/" + location + "/publishers/" + publisher
+                + "/models/" + modelId;
+        RequestBody body = jsonBody(sink -> GeminiJsonCodec.writeCachedContent(model, systemInstruction, contents, ttl, sink));
+        return executeCachedContentCall(post(new Request.Builder().url(cachedContentsUrl), body));
+    }
+    
+    /**
+     * @param name the cached content resource name
+     * @return the cache, including its current expiry time
+     * @throws IOException if there's an error with the API call; a {@link VertexAiException}
+     *         with status 404 if the cache has expired or was deleted
+     */
+    public CachedContent getCachedContent(String name) throws IOException {
+        return executeCachedContentCall(new Request.Builder().url(cachedContentUrl(name)).get());
+    }
+    
+    /**
+     * Extends or shortens a cache's lifetime
+     * 
+     * @param name the cached content resource name
+     * @param ttl the new time to live, counted from now, in whole seconds
+     * @return the cache with its new expiry time
+     * @throws IOException if there's an error with the API call
+     */
+    public CachedContent updateCachedContentTtl(String name, Duration ttl) throws IOException {
+        HttpUrl url = cachedContentUrl(name).newBuilder().addQueryParameter("updateMask", "ttl").build();
+        RequestBody body = jsonBody(sink -> GeminiJsonCodec.writeCachedContentTtl(ttl, sink));
+        return executeCachedContentCall(new Request.Builder().url(url).patch(body));
+    }
+    
+    /**
+     * Deletes a cache before it expires
+     * 
+     * @param name the cached content resource name
+     * @throws IOException if there's an error with the API call
+     */
+    public void deleteCachedContent(String name) throws IOException {
+        Request request = new Request.Builder()
+                .url(cachedContentUrl(name))
+                .delete()
+                .addHeader("Authorization", "Bearer " + accessToken(metrics))
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw apiError(response);
+            }
+        }
+    }
+    
+    private CachedContent executeCachedContentCall(Request.Builder builder) throws IOException {
+        Request request = builder.addHeader("Authorization", "Bearer " + accessToken(metrics)).build();
+        logger.debug("Sending {} {} to Vertex AI", request.method(), request.url());
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw apiError(response);
+            }
+            return GeminiJsonCodec.readCachedContent(response.body().source());
+        }
+    }
+    
+    private HttpUrl cachedContentUrl(String name) {
+        return HttpUrl.get(vertexApiEndpoint + "/v1/" + name);
+    }
+    
+    private static RequestBody jsonBody(BodyWriter writer) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+            
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                writer.writeTo(sink);
+            }
+        };
+    }
+    
+    @FunctionalInterface
+    private interface BodyWriter {
+        void writeTo(BufferedSink sink) throws IOException;
+    }
+    
+    /**
+     * Adds a POST body, gzip-compressed while it is written if request compression is on.
+     * The compressed length isn't known up front, so the body is sent chunked.
+     */
+    private Request.Builder post(Request.Builder builder, RequestBody body) {
+        if (!requestCompression) {
+            return builder.post(body);
+        }
+        return builder.header("Content-Encoding", "gzip").post(new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+            
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                GzipSink gzip = new GzipSink(sink);
+                // JSON text still shrinks several times at the fastest level
+                gzip.deflater().setLevel(Deflater.BEST_SPEED);
+                try (BufferedSink compressed = Okio.buffer(gzip)) {
+                    body.writeTo(compressed);
+                }
+            }
+        });
+    }
+    
+    private Request buildHttpRequest(HttpUrl url, EncodedRequest request, String accessToken) {
+        BodyProgress progress = new BodyProgress();
+        // Serialized straight into the connection's sink; written again if OkHttp retries the call
+        RequestBody requestBody = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+            
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                // Time spent passing segments on to compression and the socket is left out of the
+                // serialize timer; the whole transfer is timed as vertex.client.http.upload
+                DownstreamTimingSink downstream = new DownstreamTimingSink(sink);
+                BufferedSink encoder = Okio.buffer(downstream);
+                long start = System.nanoTime();
+                request.writeTo(encoder);
+                encoder.emit();
+                metrics.serialize.record(System.nanoTime() - start - downstream.nanos);
+                progress.written = true;
+            }
+        };
+        
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .tag(BodyProgress.class, progress)
+                .addHeader("Authorization", "Bearer " + accessToken)
+                .addHeader("Content-Type", "application/json");
+        return post(builder, requestBody).build();
+    }
+    
+    /**
+     * Adds up the time spent in the wrapped sink, so it can be told apart from encoding
+     */
+    private static final class DownstreamTimingSink extends ForwardingSink {
+        long nanos;
+        
+        DownstreamTimingSink(Sink delegate) {
+            super(delegate);
+        }
+        
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            super.write(source, byteCount);
+            nanos += System.nanoTime() - start;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            super.flush();
+            nanos += System.nanoTime() - start;
+        }
+    }
+    
+    /**
+     * Tells whether a request's body has been handed to the connection
+     */
+    private static final class BodyProgress {
+        volatile boolean written;
+    }
+    
+    /**
+     * Marks a transport failure that happened before the request body was written, which the
+     * retry policy may repeat; failures after that could leave the call running on the server
+     */
+    private static IOException sendFailure(Request request, IOException error) {
+        BodyProgress progress = request.tag(BodyProgress.class);
+        if (progress == null || progress.written || error instanceof VertexAiException
+                || Thread.currentThread().isInterrupted()) {
+            return error;
+        }
+        return new RequestNotSentException(error);
+    }
+    
+    /**
+     * Parses a successful response body and records its token usage. The body is read while
+     * parsing, so the parse timer also includes receiving any part of the body that had not
+     * arrived yet.
+     */
+    private GeminiResponse readResponse(Response response, ClientMetrics meters) throws IOException {
+        long start = System.nanoTime();
+        GeminiResponse geminiResponse = lazyResponseParsing
+                ? LazyGeminiResponse.read(response.body().source())
+                : GeminiJsonCodec.readResponse(response.body().source());
+        meters.parse.record(System.nanoTime() - start);
+        if (geminiResponse != null) {
+            recordUsage(geminiResponse.getUsageMetadata(), meters);
+        }
+        return geminiResponse;
+    }
+    
+    private void recordUsage(GeminiResponse.UsageMetadata usage, ClientMetrics meters) {
+        if (usage == null) {
+            return;
+        }
+        meters.promptTokens.increment(usage.getPromptTokenCount());
+        meters.candidatesTokens.increment(usage.getCandidatesTokenCount());
+        TokenUsageTracker tracker = tokenUsageTracker;
+        if (tracker != null) {
+            tracker.record(modelKey, usage);
+        }
+    }
+    
+    private String accessToken(ClientMetrics meters) throws IOException {
+        long start = System.nanoTime();
+        String accessToken = authService.getAccessToken();
+        meters.token.record(System.nanoTime() - start);
+        return accessToken;
+    }
+    
+    private CompletableFuture<String> accessTokenAsync(ClientMetrics meters) {
+        long start = System.nanoTime();
+        return authService.getAccessTokenAsync()
+                .whenComplete((accessToken, error) -> meters.token.record(System.nanoTime() - start));
+    }
+    
+    private VertexAiException apiError(Response response) throws IOException {
+        String errorBody = response.body() != null ? response.body().string() : "No response body";
+        logger.error("API call failed with code {}: {}", response.code(), errorBody);
+        return new VertexAiException(response.code(), errorBody, parseRetryAfter(response.header("Retry-After")));
+    }
+    
+    /**
+     * Parses a Retry-After header given either as delta-seconds or as an HTTP date
+     */
+    private static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(date.getZone()), date);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+    
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+    
+    /**
+     * Sets the retry policy applied to generateContent and generateContentAsync.
+     * By default failed calls are not retried.
+     * 
+     * @param retryPolicy the policy to use
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+    
+    /**
+     * Sets the rate and concurrency limiter applied to every attempt of generateContent,
+     * generateContentAsync and streamGenerateContent. The limiter may be shared between clients; limits are kept per
+     * publisher/model.
+     * 
+     * @param rateLimiter the limiter to use, or null to disable limiting
+     */
+    public void setRateLimiter(ModelRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+    
+    public ModelRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+    
+    /**
+     * Sets the circuit breaker guarding every attempt of generateContent, generateContentAsync
+     * and streamGenerateContent.
+     * While the circuit is open calls fail immediately with a {@link CallNotPermittedException}.
+     * 
+     * @param circuitBreaker the circuit breaker to use, or null to disable it
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    /**
+     * Enables request hedging for generateContent and generateContentAsync
+     * 
+     * @param hedgingPolicy the hedging policy to use, or null to disable hedging
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+    
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+    
+    /**
+     * Routes generateContent calls across several regional endpoints instead of the single
+     * configured VERTEX_API_ENDPOINT and LOCATION
+     * 
+     * @param endpointSelector the selector to use, or null to always use the configured endpoint
+     */
+    public void setEndpointSelector(EndpointSelector endpointSelector) {
+        this.endpointSelector = endpointSelector;
+    }
+    
+    public EndpointSelector getEndpointSelector() {
+        return endpointSelector;
+    }
+    
+    /**
+     * Serves repeated deterministic requests (temperature 0) from a response cache. Identical
+     * requests issued concurrently share a single API call.
+     * 
+     * @param responseCache the cache to use, or null to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+    
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    /**
+     * Sends the client's timers and counters to the given registry. Meters are tagged with
+     * the publisher/model key, so one registry may be shared by several clients. By default
+     * each client records into its own {@link InMemoryMetricsRegistry}.
+     * <p>
+     * Recorded meters: {@code vertex.client.calls} per attempt, tagged with the HTTP status
+     * or exception name; {@code vertex.client.auth.token}; {@code vertex.client.request.serialize},
+     * the JSON encoding alone; {@code vertex.client.http.connect}, {@code vertex.client.http.upload}
+     * for writing the request body including compression and socket writes,
+     * {@code vertex.client.http.ttfb} and {@code vertex.client.http.body};
+     * {@code vertex.client.response.parse};
+     * the {@code vertex.client.retries} counter; the {@code vertex.client.cache} counter
+     * tagged with result hit or miss; and the {@code vertex.client.tokens} counter tagged with
+     * type prompt or candidates.
+     * 
+     * @param metricsRegistry the registry to use, or {@link MetricsRegistry#noop()} to disable instrumentation
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metrics = new ClientMetrics(metricsRegistry, modelKey);
+    }
+    
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics.getRegistry();
+    }
+    
+    /**
+     * Sets the tracker that accumulates the token counts reported by each API call, for
+     * tokens-per-second throughput and cost. Responses served from the response cache are
+     * not counted. The tracker may be shared between clients; usage is kept per publisher/model.
+     * 
+     * @param tokenUsageTracker the tracker to use, or null to stop tracking
+     */
+    public void setTokenUsageTracker(TokenUsageTracker tokenUsageTracker) {
+        this.tokenUsageTracker = tokenUsageTracker;
+    }
+    
+    public TokenUsageTracker getTokenUsageTracker() {
+        return tokenUsageTracker;
+    }
+    
+    /**
+     * Gzip-compresses request bodies as they are streamed to the connection, with
+     * {@code Content-Encoding: gzip}. Worth it for multi-megabyte prompts on constrained
+     * uplinks; for short prompts the deflater costs more than the bytes it saves. Applies to
+     * generateContent, streamGenerateContent and cachedContents.create calls.
+     * 
+     * @param requestCompression true to compress request bodies; off by default
+     */
+    public void setRequestCompression(boolean requestCompression) {
+        this.requestCompression = requestCompression;
+    }
+    
+    public boolean isRequestCompression() {
+        return requestCompression;
+    }
+    
+    /**
+     * Returns {@link LazyGeminiResponse}s from generateContent calls. They keep the raw JSON
+     * and only scan it for the generated text and token usage, so callers that read nothing
+     * else never allocate the candidate and safety rating objects. Streamed chunks are always
+     * parsed eagerly.
+     * 
+     * @param lazyResponseParsing true to parse responses on demand; off by default
+     */
+    public void setLazyResponseParsing(boolean lazyResponseParsing) {
+        this.lazyResponseParsing = lazyResponseParsing;
+    }
+    
+    public boolean isLazyResponseParsing() {
+        return lazyResponseParsing;
+    }
+    
+    /**
+     * @return the publisher/model key used for per-model limits
+     */
+    public String getModelKey() {
+        return modelKey;
+    }
+    
+    /**
+     * Derives a client that shares the transport's pool and dispatcher but also times the
+     * HTTP phases of every call
+     */
+    private OkHttpClient instrument(OkHttpClient transport) {
+        return transport.newBuilder()
+                .eventListenerFactory(MetricsEventListener.factory(() -> metrics, transport.eventListenerFactory()))
+                .build();
+    }
+    
+    /**
+     * Returns the generateContent URL, parsed once per endpoint rather than on every call
+     * 
+     * @param endpoint the regional endpoint, or null for the configured endpoint
+     * @return the complete URL for the API call
+     */
+    HttpUrl generateContentUrl(RegionalEndpoint endpoint) {
+        if (endpoint == null) {
+            return generateContentUrl;
+        }
+        return regionalUrls.computeIfAbsent(endpoint, regional ->
+                HttpUrl.get(buildModelUrl(regional.getBaseUrl(), regional.getLocation(), "generateContent")));
     }
     
     /**
@@ -106,8 +1226,25 @@ public class VertexAiClient {
      * 
      * @return the complete URL for the API call
      */
-    private String buildGenerateContentUrl() {
-        return String.format("%s/v1/projects/%s/locations/%s/publishers/%s/models/%s:generateContent",
-                vertexApiEndpoint, projectId, location, publisher, modelId);
+    private HttpUrl buildGenerateContentUrl() {
+        return HttpUrl.get(buildModelUrl(vertexApiEndpoint, location, "generateContent"));
+    }
+    
+    /**
+     * Builds the URL for the streamGenerateContent endpoint using server-sent events
+     * 
+     * @return the complete URL for the streaming API call
+     */
+    private HttpUrl buildStreamGenerateContentUrl() {
+        return HttpUrl.get(buildModelUrl(vertexApiEndpoint, location, "streamGenerateContent") + "?alt=sse");
+    }
+    
+    private HttpUrl buildCachedContentsUrl() {
+        return HttpUrl.get(vertexApiEndpoint + "/v1/projects/" + projectId + "/locations/" + location + "/cachedContents");
+    }
+    
+    private String buildModelUrl(String endpoint, String location, String method) {
+        return endpoint + "/v1/projects/" + projectId + "/locations/" + location
+                + "/publishers/" + publisher + "/models/" + modelId + ":" + method;
     }
 }
@@ -0,0 +1,209 @@
+package org.poc.ai.client;
+
+import okhttp3.*;
+import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.config.EnvironmentConfig;
+import org.poc.ai.config.HttpTransportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Creates Vertex AI clients that share a single HTTP transport, so clients for different
+ * models or tenants reuse the same connection pool, dispatcher and TLS sessions
+ */
+public class VertexAiClientFactory {
+    private static final Logger logger = LoggerFactory.getLogger(VertexAiClientFactory.class);
+    
+    private static final ReentrantLock defaultFactoryLock = new ReentrantLock();
+    private static volatile VertexAiClientFactory defaultFactory;
+    
+    private final OkHttpClient httpClient;
+    private final ConnectionPool connectionPool;
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    
+    public VertexAiClientFactory(HttpTransportConfig config) {
+        this.connectionPool = new ConnectionPool(config.getMaxIdleConnections(),
+                config.getKeepAliveSeconds(), TimeUnit.SECONDS);
+        
+        // Virtual threads suit callers that block inside callbacks; limits still apply
+        Dispatcher dispatcher = config.isVirtualThreads()
+                ? new Dispatcher(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vertex-dispatch-", 0).factory()))
+                : new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+        
+        // OkHttp 4 waits for HTTP/2 response headers in a synchronized block, which pins a
+        // virtual thread's carrier, so blocking calls on virtual threads get HTTP/1.1
+        List<Protocol> protocols = config.isPreferHttp2() && !config.isVirtualThreads()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+        if (config.isPreferHttp2() && config.isVirtualThreads()) {
+            logger.debug("Virtual threads enabled, using HTTP/1.1 instead of HTTP/2");
+        }
+        
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                .eventListener(new ConnectionStatsListener())
+                .connectTimeout(config.getTimeoutSeconds(), TimeUnit.SECONDS)
+                .readTimeout(config.getTimeoutSeconds(), TimeUnit.SECONDS)
+                .writeTimeout(config.getTimeoutSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+    
+    /**
+     * Gets the process-wide factory configured from environment variables. The first call
+     * pre-warms HTTP_PREWARM_CONNECTIONS connections to VERTEX_API_ENDPOINT.
+     * 
+     * @return the shared factory
+     */
+    public static VertexAiClientFactory getDefault() {
+        VertexAiClientFactory factory = defaultFactory;
+        if (factory == null) {
+            // Not synchronized: reading the .env file would pin a virtual thread's carrier
+            defaultFactoryLock.lock();
+            try {
+                factory = defaultFactory;
+                if (factory == null) {
+                    HttpTransportConfig config = HttpTransportConfig.fromEnvironment();
+                    factory = new VertexAiClientFactory(config);
+                    if (config.getPrewarmConnections() > 0) {
+                        factory.prewarm(EnvironmentConfig.get("VERTEX_API_ENDPOINT",
+                                "https://us-central1-aiplatform.googleapis.com"), config.getPrewarmConnections());
+                    }
+                    defaultFactory = factory;
+                }
+            } finally {
+                defaultFactoryLock.unlock();
+            }
+        }
+        return factory;
+    }
+    
+    /**
+     * Creates a client for the model configured in the environment
+     * 
+     * @param authService the authentication service used by the client
+     * @return a client sharing this factory's transport
+     */
+    public VertexAiClient createClient(GoogleAuthService authService) {
+        return createClient(authService, EnvironmentConfig.get("MODEL_ID", "gemini-flash"));
+    }
+    
+    /**
+     * Creates a client for the given model, using the environment for everything else
+     * 
+     * @param authService the authentication service used by the client
+     * @param modelId the model to call
+     * @return a client sharing this factory's transport
+     */
+    public VertexAiClient createClient(GoogleAuthService authService, String modelId) {
+        return createClient(authService,
+                EnvironmentConfig.get("PROJECT_ID"),
+                EnvironmentConfig.get("LOCATION", "us-central1"),
+                EnvironmentConfig.get("PUBLISHER", "google"),
+                modelId,
+                EnvironmentConfig.get("VERTEX_API_ENDPOINT", "https://us-central1-aiplatform.googleapis.com"));
+    }
+    
+    /**
+     * Creates a fully specified client sharing this factory's transport
+     */
+    public VertexAiClient createClient(GoogleAuthService authService, String projectId, String location,
+                                       String publisher, String modelId, String vertexApiEndpoint) {
+        return new VertexAiClient(authService, httpClient, projectId, location, publisher, modelId, vertexApiEndpoint);
+    }
+    
+    /**
+     * Opens connections to the endpoint ahead of the first real call so it doesn't pay
+     * the DNS, TCP and TLS handshake latency. The response status is irrelevant.
+     * <p>
+     * The connection count only applies to HTTP/1.1. An https endpoint reached with HTTP/2
+     * enabled multiplexes every call over one connection, so a single one is opened.
+     * 
+     * @param baseUrl the endpoint to connect to
+     * @param connections number of concurrent warm-up requests to send over HTTP/1.1
+     * @return a future completed once every warm-up request has finished
+     */
+    public CompletableFuture<Void> prewarm(String baseUrl, int connections) {
+        if (connections > 1 && HttpUrl.get(baseUrl).isHttps() && httpClient.protocols().contains(Protocol.HTTP_2)) {
+            logger.debug("HTTP/2 enabled, pre-warming one multiplexed connection instead of {}", connections);
+            connections = 1;
+        }
+        logger.debug("Pre-warming {} connection(s) to {}", connections, baseUrl);
+        
+        List<CompletableFuture<Void>> warmups = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            CompletableFuture<Void> warmup = new CompletableFuture<>();
+            Request request = new Request.Builder().url(baseUrl).head().build();
+            httpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    logger.debug("Connection pre-warm to {} failed: {}", baseUrl, e.getMessage());
+                    warmup.complete(null);
+                }
+                
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    warmup.complete(null);
+                }
+            });
+            warmups.add(warmup);
+        }
+        return CompletableFuture.allOf(warmups.toArray(new CompletableFuture[0]));
+    }
+    
+    /**
+     * @return the shared HTTP client
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+    
+    /**
+     * @return current connection pool statistics
+     */
+    public ConnectionPoolStats getPoolStats() {
+        int idle = connectionPool.idleConnectionCount();
+        int total = connectionPool.connectionCount();
+        return new ConnectionPoolStats(idle, Math.max(0, total - idle),
+                connectionsAcquired.get(), connectionsCreated.get());
+    }
+    
+    /**
+     * Closes pooled connections and stops the dispatcher threads
+     */
+    public void shutdown() {
+        httpClient.dispatcher().executorService().shutdown();
+        connectionPool.evictAll();
+    }
+    
+    /**
+     * Counts new versus reused connections across every call on the shared client
+     */
+    private class ConnectionStatsListener extends EventListener {
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectionsCreated.incrementAndGet();
+        }
+        
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.poc.ai.client;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown when the Vertex AI API answers with a non-successful HTTP status
+ */
+public class VertexAiException extends IOException {
+    private final int statusCode;
+    private final String responseBody;
+    private final Duration retryAfter;
+    
+    public VertexAiException(int statusCode, String responseBody, Duration retryAfter) {
+        super("API call failed with code " + statusCode + ": " + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.retryAfter = retryAfter;
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    public String getResponseBody() {
+        return responseBody;
+    }
+    
+    /**
+     * @return the delay requested by the server's Retry-After header, or null if none was sent
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,32 @@
+package org.poc.ai.config;
+
+import java.time.Duration;
+
+/**
+ * Parses durations written on the command line
+ */
+public final class Durations {
+    
+    private Durations() {
+    }
+    
+    /**
+     * Parses durations written as {@code 500ms}, {@code 30s}, {@code 2m} or plain seconds
+     * 
+     * @param value the duration text
+     * @return the parsed duration
+     * @throws NumberFormatException if the value is not a whole number with an optional unit
+     */
+    public static Duration parse(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
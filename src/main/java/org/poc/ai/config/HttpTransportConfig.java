@@ -0,0 +1,108 @@
+package org.poc.ai.config;
+
+/**
+ * Settings for the HTTP transport shared by Vertex AI clients
+ */
+public class HttpTransportConfig {
+    private int maxIdleConnections = 16;
+    private long keepAliveSeconds = 300;
+    private boolean preferHttp2 = true;
+    private int maxRequests = 256;
+    private int maxRequestsPerHost = 256;
+    private long timeoutSeconds = 30;
+    private int prewarmConnections = 0;
+    private boolean virtualThreads = false;
+    
+    /**
+     * Creates a configuration from environment variables, falling back to the defaults
+     * 
+     * @return the transport configuration
+     */
+    public static HttpTransportConfig fromEnvironment() {
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setMaxIdleConnections(Integer.parseInt(EnvironmentConfig.get("HTTP_POOL_MAX_IDLE",
+                String.valueOf(config.getMaxIdleConnections()))));
+        config.setKeepAliveSeconds(Long.parseLong(EnvironmentConfig.get("HTTP_POOL_KEEP_ALIVE_SECONDS",
+                String.valueOf(config.getKeepAliveSeconds()))));
+        config.setPreferHttp2(Boolean.parseBoolean(EnvironmentConfig.get("HTTP_PREFER_HTTP2",
+                String.valueOf(config.isPreferHttp2()))));
+        config.setMaxRequests(Integer.parseInt(EnvironmentConfig.get("VERTEX_MAX_REQUESTS",
+                String.valueOf(config.getMaxRequests()))));
+        config.setMaxRequestsPerHost(Integer.parseInt(EnvironmentConfig.get("VERTEX_MAX_REQUESTS_PER_HOST",
+                String.valueOf(config.getMaxRequestsPerHost()))));
+        config.setPrewarmConnections(Integer.parseInt(EnvironmentConfig.get("HTTP_PREWARM_CONNECTIONS",
+                String.valueOf(config.getPrewarmConnections()))));
+        config.setVirtualThreads(Boolean.parseBoolean(EnvironmentConfig.get("HTTP_VIRTUAL_THREADS",
+                String.valueOf(config.isVirtualThreads()))));
+        return config;
+    }
+    
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+    
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+    
+    public long getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+    
+    public void setKeepAliveSeconds(long keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+    
+    public boolean isPreferHttp2() {
+        return preferHttp2;
+    }
+    
+    public void setPreferHttp2(boolean preferHttp2) {
+        this.preferHttp2 = preferHttp2;
+    }
+    
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+    
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+    
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+    
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+    
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+    
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+    
+    public int getPrewarmConnections() {
+        return prewarmConnections;
+    }
+    
+    public void setPrewarmConnections(int prewarmConnections) {
+        this.prewarmConnections = prewarmConnections;
+    }
+    
+    /**
+     * @return whether async calls and their callbacks run on virtual threads instead of the
+     *         dispatcher's cached platform thread pool. Also limits the transport to HTTP/1.1,
+     *         whose blocking reads don't pin the carrier thread the way OkHttp 4's HTTP/2 does.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+}
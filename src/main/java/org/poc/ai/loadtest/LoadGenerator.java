@@ -0,0 +1,221 @@
+package org.poc.ai.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.client.VertexAiException;
+import org.poc.ai.model.GeminiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives a {@link VertexAiClient} with sustained load for capacity planning.
+ * <p>
+ * With a target QPS the generator uses an open model: requests start on a fixed schedule
+ * whether or not earlier ones have completed, and latency is measured from the scheduled
+ * start time, so a stalled server shows up in the percentiles instead of silently lowering
+ * the request rate (coordinated omission). Without a target QPS a fixed number of workers
+ * each send one request at a time.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    
+    private final VertexAiClient client;
+    private final LoadTestConfig config;
+    private final PromptSource prompts;
+    private final PrintStream progress;
+    
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final ReentrantLock totalLock = new ReentrantLock();
+    private final LongAdder succeeded = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private volatile long measureFromNanos;
+    
+    /**
+     * @param client the client to drive
+     * @param config the load test settings
+     * @param prompts the requests to send
+     * @param progress receives periodic progress lines, or null for none
+     */
+    public LoadGenerator(VertexAiClient client, LoadTestConfig config, PromptSource prompts, PrintStream progress) {
+        this.client = client;
+        this.config = config;
+        this.prompts = prompts;
+        this.progress = progress;
+    }
+    
+    /**
+     * Runs the load test for the configured duration and waits for outstanding requests
+     * 
+     * @return the results of the measured period, excluding warmup
+     * @throws InterruptedException if interrupted while running
+     */
+    public LoadTestResult run() throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + config.getDuration().toNanos();
+        measureFromNanos = start + config.getWarmup().toNanos();
+        
+        ScheduledExecutorService reporter = startReporter();
+        try {
+            if (config.isOpenModel()) {
+                runOpenModel(start, end);
+            } else {
+                runClosedModel(end);
+            }
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+                reporter.awaitTermination(1, TimeUnit.SECONDS);
+            }
+        }
+        double elapsedSeconds = Math.max(0, end - measureFromNanos) / 1e9;
+        
+        Map<String, Long> errorCounts = new HashMap<>();
+        errors.forEach((cause, count) -> errorCounts.put(cause, count.sum()));
+        drainHistogram();
+        return new LoadTestResult(total.copy(), succeeded.sum(), errorCounts, elapsedSeconds);
+    }
+    
+    private void runOpenModel(long start, long end) throws InterruptedException {
+        long intervalNanos = (long) (1e9 / config.getTargetQps());
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            // parkNanos may return early, and a request must never go out ahead of its schedule
+            for (long now = System.nanoTime(); now < intended; now = System.nanoTime()) {
+                LockSupport.parkNanos(intended - now);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            // When saturated the wait for a slot is charged to the request's latency
+            inFlight.acquire();
+            CompletableFuture<GeminiResponse> call;
+            try {
+                call = client.generateContentAsync(prompts.next());
+            } catch (RuntimeException e) {
+                // Rejected before it was sent, e.g. by request validation
+                record(intended, e);
+                inFlight.release();
+                continue;
+            }
+            call.whenComplete((response, error) -> {
+                record(intended, error);
+                inFlight.release();
+            });
+        }
+        
+        if (!inFlight.tryAcquire(config.getMaxInFlight(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Requests still outstanding {} s after the load test ended", DRAIN_TIMEOUT_SECONDS);
+        }
+    }
+    
+    private void runClosedModel(long end) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(config.getConcurrency());
+        for (int i = 0; i < config.getConcurrency(); i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    long started = System.nanoTime();
+                    Throwable error = null;
+                    try {
+                        client.generateContent(prompts.next());
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                    record(started, error);
+                }
+            });
+        }
+        workers.shutdown();
+        long remaining = end - System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        if (!workers.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+            logger.warn("Requests still outstanding {} s after the load test ended", DRAIN_TIMEOUT_SECONDS);
+            workers.shutdownNow();
+        }
+    }
+    
+    private void record(long startNanos, Throwable error) {
+        if (startNanos < measureFromNanos) {
+            return;
+        }
+        if (error == null) {
+            recorder.recordValue(Math.max(1, (System.nanoTime() - startNanos) / 1000));
+            succeeded.increment();
+        } else {
+            errors.computeIfAbsent(describe(error), cause -> new LongAdder()).increment();
+        }
+    }
+    
+    /**
+     * Groups failures by HTTP status for API errors and by exception type otherwise
+     */
+    static String describe(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof VertexAiException) {
+            return "HTTP " + ((VertexAiException) error).getStatusCode();
+        }
+        return error.getClass().getSimpleName();
+    }
+    
+    private ScheduledExecutorService startReporter() {
+        if (progress == null || config.getReportInterval().isZero()) {
+            return null;
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-test-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = config.getReportInterval().toMillis();
+        long started = System.nanoTime();
+        reporter.scheduleAtFixedRate(() -> {
+            Histogram interval = drainHistogram();
+            long failures = errors.values().stream().mapToLong(LongAdder::sum).sum();
+            progress.printf("[%4ds] %7.1f req/s  ok=%d failed=%d  p50=%.1fms p99=%.1fms%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started),
+                    interval.getTotalCount() * 1000.0 / intervalMillis, succeeded.sum(), failures,
+                    interval.getValueAtPercentile(50.0) / 1000.0, interval.getValueAtPercentile(99.0) / 1000.0);
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+    
+    /**
+     * Moves the values recorded since the last call into the run total
+     * 
+     * @return the values recorded since the last call
+     */
+    private Histogram drainHistogram() {
+        totalLock.lock();
+        try {
+            Histogram interval = recorder.getIntervalHistogram();
+            total.add(interval);
+            return interval;
+        } finally {
+            totalLock.unlock();
+        }
+    }
+}
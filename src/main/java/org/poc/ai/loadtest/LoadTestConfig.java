@@ -0,0 +1,186 @@
+package org.poc.ai.loadtest;
+
+import org.poc.ai.config.Durations;
+
+import java.time.Duration;
+
+/**
+ * Settings for a {@link LoadGenerator} run, parsed from {@code --name=value} command line options
+ */
+public class LoadTestConfig {
+    private double targetQps = 0;
+    private int concurrency = 16;
+    private int maxInFlight = 1024;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ZERO;
+    private Duration reportInterval = Duration.ofSeconds(5);
+    private String promptsFile;
+    private Double temperature = 0.7;
+    private Integer maxOutputTokens = 100;
+    private String accessToken;
+    
+    /**
+     * Parses options such as {@code --qps=50 --duration=2m --prompts=prompts.txt}
+     * 
+     * @param args the options, without the leading mode argument
+     * @return the parsed configuration
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    public static LoadTestConfig fromArgs(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "qps":
+                    config.setTargetQps(Double.parseDouble(value));
+                    break;
+                case "concurrency":
+                    config.setConcurrency(Integer.parseInt(value));
+                    break;
+                case "max-in-flight":
+                    config.setMaxInFlight(Integer.parseInt(value));
+                    break;
+                case "duration":
+                    config.setDuration(Durations.parse(value));
+                    break;
+                case "warmup":
+                    config.setWarmup(Durations.parse(value));
+                    break;
+                case "report-interval":
+                    config.setReportInterval(Durations.parse(value));
+                    break;
+                case "prompts":
+                    config.setPromptsFile(value);
+                    break;
+                case "temperature":
+                    config.setTemperature(Double.parseDouble(value));
+                    break;
+                case "max-output-tokens":
+                    config.setMaxOutputTokens(Integer.parseInt(value));
+                    break;
+                case "token":
+                    config.setAccessToken(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown load test option: --" + name);
+            }
+        }
+        return config;
+    }
+    
+    /**
+     * @return true if requests are sent at a fixed arrival rate rather than by a fixed number of workers
+     */
+    public boolean isOpenModel() {
+        return targetQps > 0;
+    }
+    
+    public double getTargetQps() {
+        return targetQps;
+    }
+    
+    /**
+     * @param targetQps requests started per second regardless of response times, or 0 to run
+     *                  a fixed number of workers instead
+     */
+    public void setTargetQps(double targetQps) {
+        this.targetQps = targetQps;
+    }
+    
+    public int getConcurrency() {
+        return concurrency;
+    }
+    
+    /**
+     * @param concurrency number of workers each sending one request at a time, used when no target QPS is set
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    /**
+     * @param maxInFlight upper bound on outstanding requests at a target QPS; further requests
+     *                    wait and the wait counts towards their latency
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+    
+    public Duration getDuration() {
+        return duration;
+    }
+    
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+    
+    public Duration getWarmup() {
+        return warmup;
+    }
+    
+    /**
+     * @param warmup initial period whose requests are sent but not included in the results
+     */
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+    
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+    
+    /**
+     * @param reportInterval how often progress is printed, or zero for no progress output
+     */
+    public void setReportInterval(Duration reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+    
+    public String getPromptsFile() {
+        return promptsFile;
+    }
+    
+    /**
+     * @param promptsFile file with one prompt per line, sent in round-robin order
+     */
+    public void setPromptsFile(String promptsFile) {
+        this.promptsFile = promptsFile;
+    }
+    
+    public Double getTemperature() {
+        return temperature;
+    }
+    
+    public void setTemperature(Double temperature) {
+        this.temperature = temperature;
+    }
+    
+    public Integer getMaxOutputTokens() {
+        return maxOutputTokens;
+    }
+    
+    public void setMaxOutputTokens(Integer maxOutputTokens) {
+        this.maxOutputTokens = maxOutputTokens;
+    }
+    
+    public String getAccessToken() {
+        return accessToken;
+    }
+    
+    /**
+     * @param accessToken fixed bearer token to send instead of service account credentials,
+     *                    for running against a local stub endpoint
+     */
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+}
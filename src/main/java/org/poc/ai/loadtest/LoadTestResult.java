@@ -0,0 +1,80 @@
+package org.poc.ai.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a load test run: latency distribution of successful calls, throughput and
+ * failures by cause
+ */
+public class LoadTestResult {
+    private final Histogram latencyMicros;
+    private final long succeeded;
+    private final long failed;
+    private final double elapsedSeconds;
+    private final Map<String, Long> errors;
+    
+    LoadTestResult(Histogram latencyMicros, long succeeded, Map<String, Long> errors, double elapsedSeconds) {
+        this.latencyMicros = latencyMicros;
+        this.succeeded = succeeded;
+        this.errors = new TreeMap<>(errors);
+        this.failed = this.errors.values().stream().mapToLong(Long::longValue).sum();
+        this.elapsedSeconds = elapsedSeconds;
+    }
+    
+    /**
+     * @return latencies of successful calls in microseconds
+     */
+    public Histogram getLatencyMicros() {
+        return latencyMicros;
+    }
+    
+    public long getSucceeded() {
+        return succeeded;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    /**
+     * @return number of failures keyed by HTTP status or exception type
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+    
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+    
+    /**
+     * @return completed calls per second over the measured period
+     */
+    public double getThroughput() {
+        return elapsedSeconds > 0 ? (succeeded + failed) / elapsedSeconds : 0.0;
+    }
+    
+    public void print(PrintStream out) {
+        out.printf("%nCompleted %d requests in %.1f s: %.1f req/s, %d succeeded, %d failed%n",
+                succeeded + failed, elapsedSeconds, getThroughput(), succeeded, failed);
+        if (latencyMicros.getTotalCount() > 0) {
+            out.printf("Latency (ms): p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f mean=%.2f%n",
+                    percentileMillis(50.0), percentileMillis(90.0), percentileMillis(99.0), percentileMillis(99.9),
+                    latencyMicros.getMaxValue() / 1000.0, latencyMicros.getMean() / 1000.0);
+        }
+        if (!errors.isEmpty()) {
+            out.println("Errors:");
+            for (Map.Entry<String, Long> error : errors.entrySet()) {
+                out.printf("  %-40s %d%n", error.getKey(), error.getValue());
+            }
+        }
+    }
+    
+    private double percentileMillis(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package org.poc.ai.loadtest;
+
+import org.poc.ai.model.GeminiRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out pre-built requests for a fixed set of prompts in round-robin order
+ */
+public class PromptSource {
+    private static final String DEFAULT_PROMPT = "Tell me a short joke about programming";
+    
+    private final List<GeminiRequest> requests;
+    private final AtomicLong next = new AtomicLong();
+    
+    public PromptSource(List<String> prompts, Double temperature, Integer maxOutputTokens) {
+        if (prompts.isEmpty()) {
+            throw new IllegalArgumentException("At least one prompt is required");
+        }
+        this.requests = new ArrayList<>(prompts.size());
+        for (String prompt : prompts) {
+            GeminiRequest request = GeminiRequest.createTextRequest(prompt);
+            GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+            config.setTemperature(temperature);
+            config.setMaxOutputTokens(maxOutputTokens);
+            request.setGenerationConfig(config);
+            requests.add(request);
+        }
+    }
+    
+    /**
+     * Creates a source from the configured prompts file, one prompt per non-blank line, or a
+     * single default prompt if no file is configured
+     * 
+     * @param config the load test settings
+     * @return the prompt source
+     * @throws IOException if the prompts file cannot be read
+     */
+    public static PromptSource fromConfig(LoadTestConfig config) throws IOException {
+        List<String> prompts = new ArrayList<>();
+        if (config.getPromptsFile() == null) {
+            prompts.add(DEFAULT_PROMPT);
+        } else {
+            for (String line : Files.readAllLines(Path.of(config.getPromptsFile()))) {
+                if (!line.isBlank()) {
+                    prompts.add(line.strip());
+                }
+            }
+        }
+        return new PromptSource(prompts, config.getTemperature(), config.getMaxOutputTokens());
+    }
+    
+    public GeminiRequest next() {
+        return requests.get((int) (next.getAndIncrement() % requests.size()));
+    }
+    
+    public int size() {
+        return requests.size();
+    }
+}
@@ -0,0 +1,26 @@
+package org.poc.ai.metrics;
+
+/**
+ * Monotonically increasing count of events
+ */
+public interface Counter {
+    
+    /**
+     * Adds one to the count
+     */
+    default void increment() {
+        increment(1);
+    }
+    
+    /**
+     * Adds to the count
+     * 
+     * @param amount the number of events to add
+     */
+    void increment(long amount);
+    
+    /**
+     * @return the current count
+     */
+    long getCount();
+}
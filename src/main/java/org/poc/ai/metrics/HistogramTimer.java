@@ -0,0 +1,54 @@
+package org.poc.ai.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer backed by a lock-free log-linear histogram, so percentiles are available without
+ * keeping individual samples
+ */
+public class HistogramTimer implements Timer {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    
+    @Override
+    public void record(long nanos) {
+        histogram.record(nanos);
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+    
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+    
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+    
+    /**
+     * @return the longest recorded duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    /**
+     * @return the mean duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+    
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration at that percentile in nanoseconds, accurate to about 3%
+     */
+    public long getValueAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+}
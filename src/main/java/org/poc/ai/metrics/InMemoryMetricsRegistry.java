@@ -0,0 +1,85 @@
+package org.poc.ai.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry that keeps every meter in process memory, for tests, the load-test tool and
+ * deployments without a metrics backend.
+ * <p>
+ * Timers are {@link HistogramTimer}s and counters are striped {@link LongAdder}s, so
+ * recording never takes a lock and concurrent threads rarely contend on the same cache line.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final Map<MetricId, HistogramTimer> timers = new ConcurrentHashMap<>();
+    private final Map<MetricId, AdderCounter> counters = new ConcurrentHashMap<>();
+    
+    @Override
+    public HistogramTimer timer(String name, String... tags) {
+        return timers.computeIfAbsent(new MetricId(name, tags), id -> new HistogramTimer());
+    }
+    
+    @Override
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(new MetricId(name, tags), id -> new AdderCounter());
+    }
+    
+    /**
+     * Looks up a timer without creating it
+     * 
+     * @param name the metric name
+     * @param tags alternating tag keys and values
+     * @return the timer, or null if nothing was recorded under this name and tags
+     */
+    public HistogramTimer findTimer(String name, String... tags) {
+        return timers.get(new MetricId(name, tags));
+    }
+    
+    /**
+     * Looks up a counter without creating it
+     * 
+     * @param name the metric name
+     * @param tags alternating tag keys and values
+     * @return the counter, or null if nothing was recorded under this name and tags
+     */
+    public Counter findCounter(String name, String... tags) {
+        return counters.get(new MetricId(name, tags));
+    }
+    
+    /**
+     * @return a snapshot of all timers, ordered by name
+     */
+    public Map<MetricId, HistogramTimer> getTimers() {
+        return sorted(timers);
+    }
+    
+    /**
+     * @return a snapshot of all counters, ordered by name
+     */
+    public Map<MetricId, Counter> getCounters() {
+        return sorted(counters);
+    }
+    
+    private static <T> Map<MetricId, T> sorted(Map<MetricId, ? extends T> meters) {
+        Map<MetricId, T> snapshot = new TreeMap<>((a, b) -> a.toString().compareTo(b.toString()));
+        snapshot.putAll(meters);
+        return Collections.unmodifiableMap(snapshot);
+    }
+    
+    private static final class AdderCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+        
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+        
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.poc.ai.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Name and tags identifying one meter. Tags are sorted by key, so the order they were
+ * given in does not matter.
+ */
+public final class MetricId {
+    private final String name;
+    private final Map<String, String> tags;
+    private final int hash;
+    
+    /**
+     * @param name the metric name
+     * @param tags alternating tag keys and values
+     * @throws IllegalArgumentException if a tag key has no value
+     */
+    public MetricId(String name, String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key/value pairs: " + String.join(",", tags));
+        }
+        List<String[]> pairs = new ArrayList<>(tags.length / 2);
+        for (int i = 0; i < tags.length; i += 2) {
+            pairs.add(new String[]{tags[i], tags[i + 1]});
+        }
+        pairs.sort((a, b) -> a[0].compareTo(b[0]));
+        Map<String, String> sorted = new LinkedHashMap<>();
+        for (String[] pair : pairs) {
+            sorted.put(pair[0], pair[1]);
+        }
+        this.name = name;
+        this.tags = Collections.unmodifiableMap(sorted);
+        this.hash = Objects.hash(name, this.tags);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * @return the tags, sorted by key
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+    
+    /**
+     * @param key the tag key
+     * @return the tag value, or null if the tag is not set
+     */
+    public String getTag(String key) {
+        return tags.get(key);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MetricId)) {
+            return false;
+        }
+        MetricId other = (MetricId) o;
+        return name.equals(other.name) && tags.equals(other.tags);
+    }
+    
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+    
+    @Override
+    public String toString() {
+        return tags.isEmpty() ? name : name + tags;
+    }
+}
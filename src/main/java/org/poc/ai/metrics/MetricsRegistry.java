@@ -0,0 +1,38 @@
+package org.poc.ai.metrics;
+
+/**
+ * Source of named, tagged timers and counters.
+ * <p>
+ * Tags are given as alternating key/value pairs, for example
+ * {@code timer("vertex.client.calls", "model", "google/gemini-flash", "status", "200")}.
+ * The same name and tags always return the same meter, so callers may look meters up once
+ * and keep them. Implementations must be thread-safe and cheap to record into; adapters to
+ * an external backend such as Micrometer only need to implement these two methods.
+ */
+public interface MetricsRegistry {
+    
+    /**
+     * Gets or creates a timer
+     * 
+     * @param name the metric name
+     * @param tags alternating tag keys and values
+     * @return the timer for this name and tags
+     */
+    Timer timer(String name, String... tags);
+    
+    /**
+     * Gets or creates a counter
+     * 
+     * @param name the metric name
+     * @param tags alternating tag keys and values
+     * @return the counter for this name and tags
+     */
+    Counter counter(String name, String... tags);
+    
+    /**
+     * @return a registry whose meters discard everything, for callers that want no instrumentation at all
+     */
+    static MetricsRegistry noop() {
+        return NoopMetricsRegistry.INSTANCE;
+    }
+}
@@ -0,0 +1,48 @@
+package org.poc.ai.metrics;
+
+/**
+ * Registry whose meters record nothing
+ */
+final class NoopMetricsRegistry implements MetricsRegistry {
+    static final NoopMetricsRegistry INSTANCE = new NoopMetricsRegistry();
+    
+    private static final Timer TIMER = new Timer() {
+        @Override
+        public void record(long nanos) {
+        }
+        
+        @Override
+        public long getCount() {
+            return 0;
+        }
+        
+        @Override
+        public long getTotalNanos() {
+            return 0;
+        }
+    };
+    
+    private static final Counter COUNTER = new Counter() {
+        @Override
+        public void increment(long amount) {
+        }
+        
+        @Override
+        public long getCount() {
+            return 0;
+        }
+    };
+    
+    private NoopMetricsRegistry() {
+    }
+    
+    @Override
+    public Timer timer(String name, String... tags) {
+        return TIMER;
+    }
+    
+    @Override
+    public Counter counter(String name, String... tags) {
+        return COUNTER;
+    }
+}
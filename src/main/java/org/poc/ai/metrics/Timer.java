@@ -0,0 +1,24 @@
+package org.poc.ai.metrics;
+
+/**
+ * Records the duration of a repeated operation
+ */
+public interface Timer {
+    
+    /**
+     * Records one duration
+     * 
+     * @param nanos the duration in nanoseconds
+     */
+    void record(long nanos);
+    
+    /**
+     * @return the number of recorded durations
+     */
+    long getCount();
+    
+    /**
+     * @return the sum of all recorded durations in nanoseconds
+     */
+    long getTotalNanos();
+}
@@ -0,0 +1,68 @@
+package org.poc.ai.metrics;
+
+/**
+ * Point-in-time token usage for one model
+ */
+public class TokenUsage {
+    private final String modelKey;
+    private final long calls;
+    private final long promptTokens;
+    private final long candidatesTokens;
+    private final long totalTokens;
+    private final double tokensPerSecond;
+    private final double estimatedCost;
+    
+    public TokenUsage(String modelKey, long calls, long promptTokens, long candidatesTokens,
+                      long totalTokens, double tokensPerSecond, double estimatedCost) {
+        this.modelKey = modelKey;
+        this.calls = calls;
+        this.promptTokens = promptTokens;
+        this.candidatesTokens = candidatesTokens;
+        this.totalTokens = totalTokens;
+        this.tokensPerSecond = tokensPerSecond;
+        this.estimatedCost = estimatedCost;
+    }
+    
+    public String getModelKey() {
+        return modelKey;
+    }
+    
+    /**
+     * @return number of calls that reported usage
+     */
+    public long getCalls() {
+        return calls;
+    }
+    
+    public long getPromptTokens() {
+        return promptTokens;
+    }
+    
+    public long getCandidatesTokens() {
+        return candidatesTokens;
+    }
+    
+    public long getTotalTokens() {
+        return totalTokens;
+    }
+    
+    /**
+     * @return total tokens per second averaged over the tracker's rolling window
+     */
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+    
+    /**
+     * @return the cost of all recorded tokens at the configured price, or 0 if no price was set
+     */
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %d prompt + %d candidates = %d tokens, %.1f tokens/s",
+                modelKey, calls, promptTokens, candidatesTokens, totalTokens, tokensPerSecond);
+    }
+}
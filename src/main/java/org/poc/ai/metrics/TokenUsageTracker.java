@@ -0,0 +1,167 @@
+package org.poc.ai.metrics;
+
+import org.poc.ai.model.GeminiResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-model token accounting for capacity planning and cost tracking.
+ * <p>
+ * Totals are striped {@link LongAdder}s. Throughput comes from a ring of one-second buckets
+ * covering the rolling window, so recording is a few atomic adds and never takes a lock.
+ * A bucket is cleared by the first thread to write into it in a new second; a concurrent
+ * add racing that reset can be lost, which only makes the rate approximate.
+ */
+public class TokenUsageTracker {
+    private static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    
+    private final int windowSeconds;
+    private final LongSupplier nanoClock;
+    private final Map<String, ModelUsage> models = new ConcurrentHashMap<>();
+    private final Map<String, double[]> prices = new ConcurrentHashMap<>();
+    
+    public TokenUsageTracker() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    /**
+     * @param window the period that tokens-per-second rates are averaged over, at least one second
+     */
+    public TokenUsageTracker(Duration window) {
+        this(window, System::nanoTime);
+    }
+    
+    TokenUsageTracker(Duration window, LongSupplier nanoClock) {
+        if (window.getSeconds() < 1) {
+            throw new IllegalArgumentException("window must be at least one second");
+        }
+        this.windowSeconds = (int) Math.min(Integer.MAX_VALUE, window.getSeconds());
+        this.nanoClock = nanoClock;
+    }
+    
+    /**
+     * Records the token counts of one call
+     * 
+     * @param modelKey the publisher/model key
+     * @param usage the usage reported by the server; null is ignored
+     */
+    public void record(String modelKey, GeminiResponse.UsageMetadata usage) {
+        if (usage == null) {
+            return;
+        }
+        ModelUsage model = models.computeIfAbsent(modelKey, key -> new ModelUsage(windowSeconds));
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+        model.calls.increment();
+        model.promptTokens.add(usage.getPromptTokenCount());
+        model.candidatesTokens.add(usage.getCandidatesTokenCount());
+        model.totalTokens.add(usage.getTotalTokenCount());
+        model.recent.add(second, usage.getTotalTokenCount());
+    }
+    
+    /**
+     * Sets the list price used for cost estimates
+     * 
+     * @param modelKey the publisher/model key
+     * @param inputPerMillionTokens price of one million prompt tokens
+     * @param outputPerMillionTokens price of one million generated tokens
+     */
+    public void setPrice(String modelKey, double inputPerMillionTokens, double outputPerMillionTokens) {
+        prices.put(modelKey, new double[]{inputPerMillionTokens, outputPerMillionTokens});
+    }
+    
+    /**
+     * @param modelKey the publisher/model key
+     * @return a snapshot of the model's usage; all zero if nothing was recorded
+     */
+    public TokenUsage getUsage(String modelKey) {
+        ModelUsage model = models.get(modelKey);
+        if (model == null) {
+            return new TokenUsage(modelKey, 0, 0, 0, 0, 0.0, 0.0);
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+        long prompt = model.promptTokens.sum();
+        long candidates = model.candidatesTokens.sum();
+        double[] price = prices.get(modelKey);
+        double cost = price == null ? 0.0 : (prompt * price[0] + candidates * price[1]) / 1_000_000.0;
+        return new TokenUsage(modelKey, model.calls.sum(), prompt, candidates, model.totalTokens.sum(),
+                (double) model.recent.sum(second) / windowSeconds, cost);
+    }
+    
+    /**
+     * @param modelKey the publisher/model key
+     * @return total tokens per second averaged over the rolling window
+     */
+    public double getTokensPerSecond(String modelKey) {
+        ModelUsage model = models.get(modelKey);
+        if (model == null) {
+            return 0.0;
+        }
+        return (double) model.recent.sum(TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong())) / windowSeconds;
+    }
+    
+    /**
+     * @return snapshots for every model with recorded usage
+     */
+    public Map<String, TokenUsage> getAllUsage() {
+        Map<String, TokenUsage> usage = new TreeMap<>();
+        for (String modelKey : models.keySet()) {
+            usage.put(modelKey, getUsage(modelKey));
+        }
+        return usage;
+    }
+    
+    private static final class ModelUsage {
+        final LongAdder calls = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder candidatesTokens = new LongAdder();
+        final LongAdder totalTokens = new LongAdder();
+        final RollingCounter recent;
+        
+        ModelUsage(int windowSeconds) {
+            this.recent = new RollingCounter(windowSeconds);
+        }
+    }
+    
+    /**
+     * Ring of one-second buckets, each tagged with the second it currently counts
+     */
+    private static final class RollingCounter {
+        private final AtomicLongArray seconds;
+        private final AtomicLongArray counts;
+        
+        RollingCounter(int windowSeconds) {
+            this.seconds = new AtomicLongArray(windowSeconds);
+            this.counts = new AtomicLongArray(windowSeconds);
+            for (int i = 0; i < windowSeconds; i++) {
+                seconds.set(i, Long.MIN_VALUE);
+            }
+        }
+        
+        void add(long second, long amount) {
+            int slot = (int) Math.floorMod(second, (long) seconds.length());
+            long stamp = seconds.get(slot);
+            if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+                counts.set(slot, 0);
+            }
+            counts.addAndGet(slot, amount);
+        }
+        
+        long sum(long now) {
+            long sum = 0;
+            for (int i = 0; i < seconds.length(); i++) {
+                long stamp = seconds.get(i);
+                if (stamp > now - seconds.length() && stamp <= now) {
+                    sum += counts.get(i);
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.poc.ai.model;
+
+import java.time.Instant;
+
+/**
+ * A prompt prefix stored server-side by Vertex AI, referenced from requests by its name
+ */
+public class CachedContent {
+    private String name;
+    private String model;
+    private Instant createTime;
+    private Instant updateTime;
+    private Instant expireTime;
+    private int totalTokenCount;
+    
+    /**
+     * @return the resource name, projects/.../locations/.../cachedContents/...
+     */
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * @return the model the cache was created for; it can only be used with that model
+     */
+    public String getModel() {
+        return model;
+    }
+    
+    public void setModel(String model) {
+        this.model = model;
+    }
+    
+    public Instant getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(Instant createTime) {
+        this.createTime = createTime;
+    }
+    
+    public Instant getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(Instant updateTime) {
+        this.updateTime = updateTime;
+    }
+    
+    /**
+     * @return when the server deletes the cache unless its TTL is extended first
+     */
+    public Instant getExpireTime() {
+        return expireTime;
+    }
+    
+    public void setExpireTime(Instant expireTime) {
+        this.expireTime = expireTime;
+    }
+    
+    /**
+     * @return the number of tokens held in the cache
+     */
+    public int getTotalTokenCount() {
+        return totalTokenCount;
+    }
+    
+    public void setTotalTokenCount(int totalTokenCount) {
+        this.totalTokenCount = totalTokenCount;
+    }
+}
@@ -0,0 +1,141 @@
+package org.poc.ai.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A read-only view of a candidate's text parts as one character sequence, without
+ * concatenating them.
+ * <p>
+ * Scorers and matchers that take a {@link CharSequence}, such as {@link java.util.regex.Pattern},
+ * can read a multi-part answer in place. Sequential {@link #charAt} calls stay within the
+ * current part, so a full scan costs the same as over a String. {@link #toString()} copies
+ * once, into an exactly sized builder, and returns the part itself when there is only one.
+ */
+public final class CandidateText implements CharSequence {
+    
+    private static final CandidateText EMPTY = new CandidateText(new String[0], new int[] {0});
+    
+    private final String[] parts;
+    // offsets[i] is where parts[i] starts; offsets[parts.length] is the total length
+    private final int[] offsets;
+    // Part holding the last character read, so sequential reads skip the search
+    private int current;
+    
+    private CandidateText(String[] parts, int[] offsets) {
+        this.parts = parts;
+        this.offsets = offsets;
+    }
+    
+    /**
+     * @param content a candidate's content; parts without text, such as inline data, are skipped
+     * @return the text of all the content's text parts, in order
+     */
+    public static CandidateText of(GeminiRequest.Content content) {
+        if (content == null || content.getParts() == null) {
+            return EMPTY;
+        }
+        List<GeminiRequest.Part> contentParts = content.getParts();
+        String[] parts = new String[contentParts.size()];
+        int count = 0;
+        for (GeminiRequest.Part part : contentParts) {
+            if (part != null && part.getText() != null && !part.getText().isEmpty()) {
+                parts[count++] = part.getText();
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            // Text of several gigabytes would not fit in one String either
+            offsets[i + 1] = Math.addExact(offsets[i], parts[i].length());
+        }
+        return new CandidateText(count == parts.length ? parts : Arrays.copyOf(parts, count), offsets);
+    }
+    
+    /**
+     * @return number of text parts, excluding empty ones
+     */
+    public int getPartCount() {
+        return parts.length;
+    }
+    
+    @Override
+    public int length() {
+        return offsets[parts.length];
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        int part = current;
+        if (index < offsets[part] || index >= offsets[part + 1]) {
+            part = partOf(index);
+            current = part;
+        }
+        return parts[part].charAt(index - offsets[part]);
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        if (start == end) {
+            return "";
+        }
+        int first = partOf(start);
+        if (end <= offsets[first + 1]) {
+            return parts[first].subSequence(start - offsets[first], end - offsets[first]);
+        }
+        return appendTo(new StringBuilder(end - start), start, end);
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+    
+    /**
+     * Appends the text without building an intermediate String, for example to assemble
+     * several candidates into one pre-sized builder
+     * 
+     * @param builder the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        for (String part : parts) {
+            builder.append(part);
+        }
+        return builder;
+    }
+    
+    @Override
+    public String toString() {
+        if (parts.length == 0) {
+            return "";
+        }
+        if (parts.length == 1) {
+            return parts[0];
+        }
+        return appendTo(new StringBuilder(length())).toString();
+    }
+    
+    private StringBuilder appendTo(StringBuilder builder, int start, int end) {
+        for (int part = partOf(start); part < parts.length && offsets[part] < end; part++) {
+            int from = Math.max(start, offsets[part]) - offsets[part];
+            int to = Math.min(end, offsets[part + 1]) - offsets[part];
+            builder.append(parts[part], from, to);
+        }
+        return builder;
+    }
+    
+    private int partOf(int index) {
+        int found = Arrays.binarySearch(offsets, 0, parts.length, index);
+        // Not a part start: the part that begins just before it
+        return found >= 0 ? found : -found - 2;
+    }
+}
@@ -0,0 +1,34 @@
+package org.poc.ai.model;
+
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * A generateContent request as the client sends it: the JSON body plus the few fields the
+ * client reads to route and cache it. {@link GeminiRequest} writes itself field by field
+ * through {@link GeminiJsonCodec}; {@link PromptTemplate} requests splice pre-encoded JSON.
+ * <p>
+ * {@link #writeTo} may be called more than once, for example when OkHttp retries a request
+ * or the response cache computes a key. Each call must write the same bytes.
+ */
+public interface EncodedRequest {
+    
+    /**
+     * Writes the request JSON
+     * 
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink or a file-backed part cannot be read or written
+     */
+    void writeTo(BufferedSink sink) throws IOException;
+    
+    /**
+     * @return the generation config, or null if none is set
+     */
+    GeminiRequest.GenerationConfig getGenerationConfig();
+    
+    /**
+     * @return the cached content resource name the request reads, or null
+     */
+    String getCachedContent();
+}
@@ -0,0 +1,1056 @@
+package org.poc.ai.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Hand-written JSON codec for the Gemini model classes.
+ * <p>
+ * Requests are written as UTF-8 straight into an okio sink and responses are read from an
+ * okio source with a streaming {@link JsonReader}, so neither direction builds the whole
+ * payload as a String or uses reflection. The output is byte-for-byte identical to
+ * {@code new Gson().toJson(...)}: fields in declaration order, nulls omitted, HTML-sensitive
+ * characters escaped and floating point values formatted with {@link Double#toString}.
+ * Fields added to the model classes must be added here as well.
+ */
+public final class GeminiJsonCodec {
+    
+    private static final int DECODE_BUFFER_BYTES = 1024;
+    private static final int STREAM_CHUNK_BYTES = 8 * 1024;
+    private static final int BASE64_CHUNK_BYTES = 6 * 1024;
+    private static final String[] ESCAPES = new String[128];
+    private static final boolean[] ESCAPED_BYTES = new boolean[256];
+    
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        // Gson escapes these by default so the JSON can be embedded in HTML
+        ESCAPES['<'] = "\\u003c";
+        ESCAPES['>'] = "\\u003e";
+        ESCAPES['&'] = "\\u0026";
+        ESCAPES['='] = "\\u003d";
+        ESCAPES['\''] = "\\u0027";
+        
+        // Every byte needing an escape, plus the lead byte of U+2028 and U+2029
+        for (int c = 0; c < ESCAPES.length; c++) {
+            ESCAPED_BYTES[c] = ESCAPES[c] != null;
+        }
+        ESCAPED_BYTES[0xE2] = true;
+    }
+    
+    private GeminiJsonCodec() {
+    }
+    
+    /**
+     * Writes a request as JSON
+     * 
+     * @param request the request to write
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink cannot be written
+     */
+    public static void writeRequest(GeminiRequest request, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        boolean first = true;
+        if (request.getContents() != null) {
+            first = name(sink, "contents", first);
+            writeContents(request.getContents(), sink);
+        }
+        if (request.getGenerationConfig() != null) {
+            first = name(sink, "generationConfig", first);
+            writeGenerationConfig(request.getGenerationConfig(), sink);
+        }
+        if (request.getSafetySettings() != null) {
+            first = name(sink, "safetySettings", first);
+            sink.writeByte('[');
+            GeminiRequest.SafetySetting[] settings = request.getSafetySettings();
+            for (int i = 0; i < settings.length; i++) {
+                if (i > 0) {
+                    sink.writeByte(',');
+                }
+                writeSafetySetting(settings[i], sink);
+            }
+            sink.writeByte(']');
+        }
+        if (request.getCachedContent() != null) {
+            first = name(sink, "cachedContent", first);
+            string(sink, request.getCachedContent());
+        }
+        if (request.getSystemInstruction() != null) {
+            name(sink, "systemInstruction", first);
+            writeContent(request.getSystemInstruction(), sink);
+        }
+        sink.writeByte('}');
+    }
+    
+    /**
+     * Writes the body of a cachedContents.create call
+     * 
+     * @param model the full model resource name, projects/.../publishers/.../models/...
+     * @param systemInstruction the system instruction to cache with the prefix, may be null
+     * @param contents the prompt prefix to cache
+     * @param ttl how long the server keeps the cache, in whole seconds
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink cannot be written
+     */
+    public static void writeCachedContent(String model, GeminiRequest.Content systemInstruction,
+                                          List<GeminiRequest.Content> contents, Duration ttl,
+                                          BufferedSink sink) throws IOException {
+        sink.writeUtf8("{\"model\":");
+        string(sink, model);
+        if (systemInstruction != null) {
+            sink.writeUtf8(",\"systemInstruction\":");
+            writeContent(systemInstruction, sink);
+        }
+        sink.writeUtf8(",\"contents\":");
+        writeContents(contents, sink);
+        sink.writeByte(',');
+        writeTtl(ttl, sink);
+        sink.writeByte('}');
+    }
+    
+    /**
+     * Writes the body of a cachedContents.patch call that only changes the TTL
+     * 
+     * @param ttl the new time to live, counted from now, in whole seconds
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink cannot be written
+     */
+    public static void writeCachedContentTtl(Duration ttl, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        writeTtl(ttl, sink);
+        sink.writeByte('}');
+    }
+    
+    /**
+     * Reads a cached content resource. Unknown fields are skipped.
+     * 
+     * @param source the source holding UTF-8 JSON
+     * @return the parsed resource, or null for an empty document
+     * @throws IOException if the source cannot be read
+     * @throws JsonSyntaxException if the JSON is malformed or does not match the model
+     */
+    public static CachedContent readCachedContent(BufferedSource source) throws IOException {
+        if (source.exhausted()) {
+            return null;
+        }
+        JsonReader reader = new JsonReader(Channels.newReader(source, newDecoder(), DECODE_BUFFER_BYTES));
+        try {
+            return readCachedContent(reader);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException | DateTimeParseException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+    
+    private static CachedContent readCachedContent(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return null;
+        }
+        CachedContent cachedContent = new CachedContent();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "name":
+                    cachedContent.setName(reader.nextString());
+                    break;
+                case "model":
+                    cachedContent.setModel(reader.nextString());
+                    break;
+                case "createTime":
+                    cachedContent.setCreateTime(Instant.parse(reader.nextString()));
+                    break;
+                case "updateTime":
+                    cachedContent.setUpdateTime(Instant.parse(reader.nextString()));
+                    break;
+                case "expireTime":
+                    cachedContent.setExpireTime(Instant.parse(reader.nextString()));
+                    break;
+                case "usageMetadata":
+                    cachedContent.setTotalTokenCount(readUsageMetadata(reader).getTotalTokenCount());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return cachedContent;
+    }
+    
+    /**
+     * Protobuf Duration JSON: seconds with an "s" suffix
+     */
+    private static void writeTtl(Duration ttl, BufferedSink sink) throws IOException {
+        sink.writeUtf8("\"ttl\":\"").writeDecimalLong(ttl.getSeconds()).writeUtf8("s\"");
+    }
+    
+    /**
+     * Writes a response as JSON
+     * 
+     * @param response the response to write
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink cannot be written
+     */
+    public static void writeResponse(GeminiResponse response, BufferedSink sink) throws IOException {
+        // Unparsed lazy responses are written as received, which may differ from Gson's formatting
+        if (response instanceof LazyGeminiResponse && ((LazyGeminiResponse) response).writeRawTo(sink)) {
+            return;
+        }
+        sink.writeByte('{');
+        boolean first = true;
+        if (response.getCandidates() != null) {
+            first = name(sink, "candidates", first);
+            sink.writeByte('[');
+            boolean firstCandidate = true;
+            for (GeminiResponse.Candidate candidate : response.getCandidates()) {
+                firstCandidate = separator(sink, firstCandidate);
+                writeCandidate(candidate, sink);
+            }
+            sink.writeByte(']');
+        }
+        if (response.getPromptFeedback() != null) {
+            first = name(sink, "promptFeedback", first);
+            sink.writeByte('{');
+            if (response.getPromptFeedback().getSafetyRatings() != null) {
+                name(sink, "safetyRatings", true);
+                writeSafetyRatings(response.getPromptFeedback().getSafetyRatings(), sink);
+            }
+            sink.writeByte('}');
+        }
+        if (response.getUsageMetadata() != null) {
+            name(sink, "usageMetadata", first);
+            GeminiResponse.UsageMetadata usage = response.getUsageMetadata();
+            sink.writeUtf8("{\"promptTokenCount\":").writeDecimalLong(usage.getPromptTokenCount())
+                    .writeUtf8(",\"candidatesTokenCount\":").writeDecimalLong(usage.getCandidatesTokenCount())
+                    .writeUtf8(",\"totalTokenCount\":").writeDecimalLong(usage.getTotalTokenCount())
+                    .writeUtf8(",\"cachedContentTokenCount\":").writeDecimalLong(usage.getCachedContentTokenCount())
+                    .writeByte('}');
+        }
+        sink.writeByte('}');
+    }
+    
+    /**
+     * Reads a response from JSON. Unknown fields are skipped.
+     * 
+     * @param source the source holding UTF-8 JSON
+     * @return the parsed response, or null for an empty document
+     * @throws IOException if the source cannot be read
+     * @throws JsonSyntaxException if the JSON is malformed or does not match the model
+     */
+    public static GeminiResponse readResponse(BufferedSource source) throws IOException {
+        if (source.exhausted()) {
+            return null;
+        }
+        JsonReader reader = newReader(source);
+        try {
+            return readResponse(reader);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+    
+    /**
+     * Reads only the text of the first candidate's first text part, skipping over everything
+     * else without building objects and stopping as soon as the text is found
+     * 
+     * @param source the source holding a UTF-8 JSON response
+     * @return the text, or null if the first candidate has none
+     * @throws IOException if the source cannot be read
+     * @throws JsonSyntaxException if the JSON is malformed or does not match the model
+     */
+    public static String readGeneratedText(BufferedSource source) throws IOException {
+        if (source.exhausted()) {
+            return null;
+        }
+        JsonReader reader = newReader(source);
+        try {
+            if (skipNull(reader) || !findField(reader, "candidates") || skipNull(reader)) {
+                return null;
+            }
+            reader.beginArray();
+            if (!reader.hasNext() || skipNull(reader) || !findField(reader, "content") || skipNull(reader)
+                    || !findField(reader, "parts") || skipNull(reader)) {
+                return null;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (skipNull(reader)) {
+                    continue;
+                }
+                if (findField(reader, "text") && !skipNull(reader)) {
+                    return reader.nextString();
+                }
+                // Inline data or file part: skip the rest of it
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                }
+                reader.endObject();
+            }
+            return null;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+    
+    /**
+     * Reads the first candidate's text and the usage metadata in one pass, for a lazy
+     * response whose caller needs both. Everything else is skipped without building objects.
+     */
+    static void readTextAndUsage(BufferedSource source, LazyGeminiResponse response) throws IOException {
+        String text = null;
+        GeminiResponse.UsageMetadata usage = null;
+        JsonReader reader = newReader(source);
+        try {
+            if (!skipNull(reader)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (skipNull(reader)) {
+                        continue;
+                    }
+                    if (name.equals("candidates")) {
+                        reader.beginArray();
+                        if (reader.hasNext() && !skipNull(reader)) {
+                            text = readCandidateText(reader);
+                        }
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                        }
+                        reader.endArray();
+                    } else if (name.equals("usageMetadata")) {
+                        usage = readUsageMetadata(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            }
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        response.scanned(text, usage);
+    }
+    
+    /**
+     * Reads a whole candidate, keeping only the text of its first text part
+     */
+    private static String readCandidateText(JsonReader reader) throws IOException {
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            if (!name.equals("content")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String contentName = reader.nextName();
+                if (skipNull(reader)) {
+                    continue;
+                }
+                if (!contentName.equals("parts")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (skipNull(reader)) {
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String partName = reader.nextName();
+                        if (partName.equals("text") && text == null) {
+                            if (!skipNull(reader)) {
+                                text = reader.nextString();
+                            }
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return text;
+    }
+    
+    /**
+     * Reads only a response's usage metadata, skipping over the candidates without building objects
+     * 
+     * @param source the source holding a UTF-8 JSON response
+     * @return the usage, or null if the response has none
+     * @throws IOException if the source cannot be read
+     * @throws JsonSyntaxException if the JSON is malformed or does not match the model
+     */
+    public static GeminiResponse.UsageMetadata readUsageMetadata(BufferedSource source) throws IOException {
+        if (source.exhausted()) {
+            return null;
+        }
+        JsonReader reader = newReader(source);
+        try {
+            if (skipNull(reader) || !findField(reader, "usageMetadata") || skipNull(reader)) {
+                return null;
+            }
+            return readUsageMetadata(reader);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+    
+    /**
+     * Advances to the value of a field, entering the object the reader is positioned at if
+     * it hasn't been entered yet. Fields before it are skipped.
+     * 
+     * @return false if the object has no such field; the reader is then at the object's end
+     */
+    private static boolean findField(JsonReader reader, String field) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+        }
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(field)) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+    
+    private static JsonReader newReader(BufferedSource source) {
+        // A small decode buffer: InputStreamReader always allocates 8 KB, more than most responses
+        return new JsonReader(Channels.newReader(source, newDecoder(), DECODE_BUFFER_BYTES));
+    }
+    
+    private static CharsetDecoder newDecoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    private static GeminiResponse readResponse(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return null;
+        }
+        GeminiResponse response = new GeminiResponse();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "candidates":
+                    List<GeminiResponse.Candidate> candidates = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        candidates.add(readCandidate(reader));
+                    }
+                    reader.endArray();
+                    response.setCandidates(candidates);
+                    break;
+                case "promptFeedback":
+                    GeminiResponse.PromptFeedback feedback = new GeminiResponse.PromptFeedback();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String feedbackName = reader.nextName();
+                        if (skipNull(reader)) {
+                            continue;
+                        }
+                        if (feedbackName.equals("safetyRatings")) {
+                            feedback.setSafetyRatings(readSafetyRatings(reader));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    response.setPromptFeedback(feedback);
+                    break;
+                case "usageMetadata":
+                    response.setUsageMetadata(readUsageMetadata(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return response;
+    }
+    
+    private static GeminiResponse.UsageMetadata readUsageMetadata(JsonReader reader) throws IOException {
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "promptTokenCount":
+                    usage.setPromptTokenCount(reader.nextInt());
+                    break;
+                case "candidatesTokenCount":
+                    usage.setCandidatesTokenCount(reader.nextInt());
+                    break;
+                case "totalTokenCount":
+                    usage.setTotalTokenCount(reader.nextInt());
+                    break;
+                case "cachedContentTokenCount":
+                    usage.setCachedContentTokenCount(reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return usage;
+    }
+    
+    private static GeminiResponse.Candidate readCandidate(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return null;
+        }
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "content":
+                    candidate.setContent(readContent(reader));
+                    break;
+                case "finishReason":
+                    candidate.setFinishReason(reader.nextString());
+                    break;
+                case "index":
+                    candidate.setIndex(reader.nextInt());
+                    break;
+                case "safetyRatings":
+                    candidate.setSafetyRatings(readSafetyRatings(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return candidate;
+    }
+    
+    private static GeminiRequest.Content readContent(JsonReader reader) throws IOException {
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "parts":
+                    List<GeminiRequest.Part> parts = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        parts.add(readPart(reader));
+                    }
+                    reader.endArray();
+                    content.setParts(parts);
+                    break;
+                case "role":
+                    content.setRole(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return content;
+    }
+    
+    private static GeminiRequest.Part readPart(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return null;
+        }
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "text":
+                    part.setText(reader.nextString());
+                    break;
+                case "inlineData":
+                    part.setInlineData(readBlob(reader));
+                    break;
+                case "fileData":
+                    part.setFileData(readFileData(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return part;
+    }
+    
+    /**
+     * Keeps the data as the base64 String the reader produced; it is only decoded when the
+     * caller streams it through {@link GeminiRequest.Blob#openData()}
+     */
+    private static GeminiRequest.Blob readBlob(JsonReader reader) throws IOException {
+        GeminiRequest.Blob blob = new GeminiRequest.Blob();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "mimeType":
+                    blob.setMimeType(reader.nextString());
+                    break;
+                case "data":
+                    blob.setData(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return blob;
+    }
+    
+    private static GeminiRequest.FileData readFileData(JsonReader reader) throws IOException {
+        GeminiRequest.FileData fileData = new GeminiRequest.FileData();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) {
+                continue;
+            }
+            switch (name) {
+                case "mimeType":
+                    fileData.setMimeType(reader.nextString());
+                    break;
+                case "fileUri":
+                    fileData.setFileUri(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return fileData;
+    }
+    
+    private static List<GeminiResponse.SafetyRating> readSafetyRatings(JsonReader reader) throws IOException {
+        List<GeminiResponse.SafetyRating> ratings = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (skipNull(reader)) {
+                ratings.add(null);
+                continue;
+            }
+            GeminiResponse.SafetyRating rating = new GeminiResponse.SafetyRating();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (skipNull(reader)) {
+                    continue;
+                }
+                switch (name) {
+                    case "category":
+                        rating.setCategory(reader.nextString());
+                        break;
+                    case "probability":
+                        rating.setProbability(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            ratings.add(rating);
+        }
+        reader.endArray();
+        return ratings;
+    }
+    
+    private static boolean skipNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+    
+    private static void writeContents(List<GeminiRequest.Content> contents, BufferedSink sink) throws IOException {
+        sink.writeByte('[');
+        boolean first = true;
+        for (GeminiRequest.Content content : contents) {
+            first = separator(sink, first);
+            writeContent(content, sink);
+        }
+        sink.writeByte(']');
+    }
+    
+    private static void writeContent(GeminiRequest.Content content, BufferedSink sink) throws IOException {
+        if (content == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('{');
+        boolean first = true;
+        if (content.getParts() != null) {
+            first = name(sink, "parts", first);
+            sink.writeByte('[');
+            boolean firstPart = true;
+            for (GeminiRequest.Part part : content.getParts()) {
+                firstPart = separator(sink, firstPart);
+                writePart(part, sink);
+            }
+            sink.writeByte(']');
+        }
+        if (content.getRole() != null) {
+            name(sink, "role", first);
+            string(sink, content.getRole());
+        }
+        sink.writeByte('}');
+    }
+    
+    private static void writePart(GeminiRequest.Part part, BufferedSink sink) throws IOException {
+        if (part == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('{');
+        boolean first = true;
+        if (part.getText() != null) {
+            first = name(sink, "text", first);
+            string(sink, part.getText());
+        } else if (part.getTextSource() != null) {
+            first = name(sink, "text", first);
+            try (Source source = part.getTextSource().open()) {
+                string(sink, source);
+            }
+        }
+        if (part.getInlineData() != null) {
+            first = name(sink, "inlineData", first);
+            writeBlob(part.getInlineData(), sink);
+        }
+        if (part.getFileData() != null) {
+            name(sink, "fileData", first);
+            sink.writeByte('{');
+            boolean firstField = true;
+            if (part.getFileData().getMimeType() != null) {
+                firstField = name(sink, "mimeType", firstField);
+                string(sink, part.getFileData().getMimeType());
+            }
+            if (part.getFileData().getFileUri() != null) {
+                name(sink, "fileUri", firstField);
+                string(sink, part.getFileData().getFileUri());
+            }
+            sink.writeByte('}');
+        }
+        sink.writeByte('}');
+    }
+    
+    private static void writeBlob(GeminiRequest.Blob blob, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        boolean first = true;
+        if (blob.getMimeType() != null) {
+            first = name(sink, "mimeType", first);
+            string(sink, blob.getMimeType());
+        }
+        if (blob.getData() != null) {
+            name(sink, "data", first);
+            string(sink, blob.getData());
+        } else if (blob.getDataSource() != null) {
+            name(sink, "data", first);
+            try (Source source = blob.getDataSource().open()) {
+                base64(sink, source);
+            }
+        }
+        sink.writeByte('}');
+    }
+    
+    /**
+     * Writes bytes from a source as a quoted base64 string, encoding one chunk at a time.
+     * Chunks are a multiple of three bytes so only the last one is padded. The padding is
+     * escaped like Gson escapes '=', so the output matches the same bytes set as a base64 String.
+     */
+    private static void base64(BufferedSink sink, Source data) throws IOException {
+        sink.writeByte('"');
+        BufferedSource source = Okio.buffer(data);
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] raw = new byte[BASE64_CHUNK_BYTES];
+        byte[] encoded = new byte[BASE64_CHUNK_BYTES / 3 * 4];
+        while (true) {
+            int filled = 0;
+            int read;
+            while (filled < raw.length && (read = source.read(raw, filled, raw.length - filled)) != -1) {
+                filled += read;
+            }
+            if (filled < raw.length) {
+                int length = encoder.encode(Arrays.copyOf(raw, filled), encoded);
+                int padding = (3 - filled % 3) % 3;
+                sink.write(encoded, 0, length - padding);
+                for (int i = 0; i < padding; i++) {
+                    sink.writeUtf8(ESCAPES['=']);
+                }
+                break;
+            }
+            encoder.encode(raw, encoded);
+            sink.write(encoded);
+        }
+        sink.writeByte('"');
+    }
+    
+    private static void writeGenerationConfig(GeminiRequest.GenerationConfig config, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        boolean first = true;
+        if (config.getTemperature() != null) {
+            first = name(sink, "temperature", first);
+            number(sink, config.getTemperature());
+        }
+        if (config.getMaxOutputTokens() != null) {
+            first = name(sink, "maxOutputTokens", first);
+            sink.writeDecimalLong(config.getMaxOutputTokens());
+        }
+        if (config.getTopP() != null) {
+            first = name(sink, "topP", first);
+            number(sink, config.getTopP());
+        }
+        if (config.getTopK() != null) {
+            first = name(sink, "topK", first);
+            sink.writeDecimalLong(config.getTopK());
+        }
+        if (config.getCandidateCount() != null) {
+            name(sink, "candidateCount", first);
+            sink.writeDecimalLong(config.getCandidateCount());
+        }
+        sink.writeByte('}');
+    }
+    
+    private static void writeSafetySetting(GeminiRequest.SafetySetting setting, BufferedSink sink) throws IOException {
+        if (setting == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('{');
+        boolean first = true;
+        if (setting.getCategory() != null) {
+            first = name(sink, "category", first);
+            string(sink, setting.getCategory());
+        }
+        if (setting.getThreshold() != null) {
+            name(sink, "threshold", first);
+            string(sink, setting.getThreshold());
+        }
+        sink.writeByte('}');
+    }
+    
+    private static void writeCandidate(GeminiResponse.Candidate candidate, BufferedSink sink) throws IOException {
+        if (candidate == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('{');
+        boolean first = true;
+        if (candidate.getContent() != null) {
+            first = name(sink, "content", first);
+            writeContent(candidate.getContent(), sink);
+        }
+        if (candidate.getFinishReason() != null) {
+            first = name(sink, "finishReason", first);
+            string(sink, candidate.getFinishReason());
+        }
+        first = name(sink, "index", first);
+        sink.writeDecimalLong(candidate.getIndex());
+        if (candidate.getSafetyRatings() != null) {
+            name(sink, "safetyRatings", first);
+            writeSafetyRatings(candidate.getSafetyRatings(), sink);
+        }
+        sink.writeByte('}');
+    }
+    
+    private static void writeSafetyRatings(List<GeminiResponse.SafetyRating> ratings, BufferedSink sink) throws IOException {
+        sink.writeByte('[');
+        boolean first = true;
+        for (GeminiResponse.SafetyRating rating : ratings) {
+            first = separator(sink, first);
+            if (rating == null) {
+                sink.writeUtf8("null");
+                continue;
+            }
+            sink.writeByte('{');
+            boolean firstField = true;
+            if (rating.getCategory() != null) {
+                firstField = name(sink, "category", firstField);
+                string(sink, rating.getCategory());
+            }
+            if (rating.getProbability() != null) {
+                name(sink, "probability", firstField);
+                string(sink, rating.getProbability());
+            }
+            sink.writeByte('}');
+        }
+        sink.writeByte(']');
+    }
+    
+    /**
+     * Writes a field name, preceded by a comma unless it is the first field
+     * 
+     * @return false, to be passed as {@code first} for the next field
+     */
+    private static boolean name(BufferedSink sink, String name, boolean first) throws IOException {
+        if (!first) {
+            sink.writeByte(',');
+        }
+        sink.writeByte('"').writeUtf8(name).writeByte('"').writeByte(':');
+        return false;
+    }
+    
+    private static boolean separator(BufferedSink sink, boolean first) throws IOException {
+        if (!first) {
+            sink.writeByte(',');
+        }
+        return false;
+    }
+    
+    private static void number(BufferedSink sink, double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification");
+        }
+        sink.writeUtf8(Double.toString(value));
+    }
+    
+    /**
+     * Writes UTF-8 text from a source as a quoted string, escaping it one chunk at a time so
+     * only a single {@link #STREAM_CHUNK_BYTES} array is allocated however long the text is
+     */
+    private static void string(BufferedSink sink, Source text) throws IOException {
+        sink.writeByte('"');
+        BufferedSource source = Okio.buffer(text);
+        byte[] chunk = new byte[STREAM_CHUNK_BYTES];
+        int carry = 0;
+        while (true) {
+            int read = source.read(chunk, carry, chunk.length - carry);
+            if (read == -1) {
+                // A truncated lead byte at the very end of the text
+                sink.write(chunk, 0, carry);
+                break;
+            }
+            int end = carry + read;
+            int runStart = 0;
+            int i = 0;
+            for (; i < end; i++) {
+                int b = chunk[i] & 0xFF;
+                if (!ESCAPED_BYTES[b]) {
+                    continue;
+                }
+                String escape;
+                if (b != 0xE2) {
+                    escape = ESCAPES[b];
+                } else if (i + 2 >= end) {
+                    // The rest of a possible U+2028 is in the next chunk
+                    break;
+                } else if (chunk[i + 1] == (byte) 0x80 && (chunk[i + 2] == (byte) 0xA8 || chunk[i + 2] == (byte) 0xA9)) {
+                    escape = chunk[i + 2] == (byte) 0xA8 ? "\\u2028" : "\\u2029";
+                } else {
+                    continue;
+                }
+                sink.write(chunk, runStart, i - runStart);
+                sink.writeUtf8(escape);
+                if (b == 0xE2) {
+                    i += 2;
+                }
+                runStart = i + 1;
+            }
+            sink.write(chunk, runStart, i - runStart);
+            carry = end - i;
+            System.arraycopy(chunk, i, chunk, 0, carry);
+        }
+        sink.writeByte('"');
+    }
+    
+    /**
+     * Writes a quoted string, copying unescaped runs straight from the String to the sink
+     */
+    private static void string(BufferedSink sink, String value) throws IOException {
+        sink.writeByte('"');
+        escaped(sink, value);
+        sink.writeByte('"');
+    }
+    
+    /**
+     * Writes the escaped content of a JSON string, without the quotes
+     */
+    static void escaped(BufferedSink sink, String value) throws IOException {
+        int runStart = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c < 128) {
+                escape = ESCAPES[c];
+            } else if (c == '\u2028') {
+                escape = "\\u2028";
+            } else if (c == '\u2029') {
+                escape = "\\u2029";
+            } else {
+                continue;
+            }
+            if (escape == null) {
+                continue;
+            }
+            if (runStart < i) {
+                sink.writeUtf8(value, runStart, i);
+            }
+            sink.writeUtf8(escape);
+            runStart = i + 1;
+        }
+        if (runStart < length) {
+            sink.writeUtf8(value, runStart, length);
+        }
+    }
+}
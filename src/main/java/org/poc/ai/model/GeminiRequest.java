@@ -1,15 +1,25 @@
 package org.poc.ai.model;
 
+import okio.BufferedSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 /**
  * Represents a request to the Gemini model
  */
-public class GeminiRequest {
+public class GeminiRequest implements EncodedRequest {
     private List<Content> contents;
     private GenerationConfig generationConfig;
     private SafetySetting[] safetySettings;
+    private String cachedContent;
+    private Content systemInstruction;
     
     public GeminiRequest() {
         this.contents = new ArrayList<>();
@@ -29,6 +39,11 @@ public class GeminiRequest {
         return request;
     }
     
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        GeminiJsonCodec.writeRequest(this, sink);
+    }
+    
     public List<Content> getContents() {
         return contents;
     }
@@ -37,6 +52,7 @@ public class GeminiRequest {
         this.contents = contents;
     }
     
+    @Override
     public GenerationConfig getGenerationConfig() {
         return generationConfig;
     }
@@ -53,6 +69,33 @@ public class GeminiRequest {
         this.safetySettings = safetySettings;
     }
     
+    @Override
+    public String getCachedContent() {
+        return cachedContent;
+    }
+    
+    /**
+     * Makes the model read a server-side cached prompt prefix before this request's contents,
+     * so the prefix is neither re-sent nor billed at the full input token rate
+     * 
+     * @param cachedContent the cached content resource name, projects/.../cachedContents/...
+     */
+    public void setCachedContent(String cachedContent) {
+        this.cachedContent = cachedContent;
+    }
+    
+    public Content getSystemInstruction() {
+        return systemInstruction;
+    }
+    
+    /**
+     * @param systemInstruction instructions the model follows for the whole conversation, such
+     *        as a persona or output format; only the parts are used, the role is ignored
+     */
+    public void setSystemInstruction(Content systemInstruction) {
+        this.systemInstruction = systemInstruction;
+    }
+    
     /**
      * Represents content in a Gemini request
      */
@@ -82,6 +125,80 @@ public class GeminiRequest {
      */
     public static class Part {
         private String text;
+        // Not a JSON field of its own: written as "text" by GeminiJsonCodec and skipped by Gson
+        private transient PartSource textSource;
+        private Blob inlineData;
+        private FileData fileData;
+        
+        /**
+         * Creates a text part that is streamed from a file when the request is written, so
+         * multi-megabyte documents are never loaded onto the heap
+         * 
+         * @param file a UTF-8 text file
+         * @return the part
+         */
+        public static Part fromFile(Path file) {
+            Part part = new Part();
+            part.setTextSource(PartSource.fromFile(file));
+            return part;
+        }
+        
+        /**
+         * Creates a text part that is streamed from a buffer when the request is written
+         * 
+         * @param buffer UTF-8 text between the buffer's position and limit
+         * @return the part
+         */
+        public static Part fromBuffer(ByteBuffer buffer) {
+            Part part = new Part();
+            part.setTextSource(PartSource.fromBuffer(buffer));
+            return part;
+        }
+        
+        /**
+         * Creates an inline data part, such as an image or a PDF, that is base64-encoded while
+         * it is streamed from a file into the request body
+         * 
+         * @param mimeType the IANA media type, for example image/png
+         * @param file the raw bytes
+         * @return the part
+         */
+        public static Part inlineData(String mimeType, Path file) {
+            return inlineData(mimeType, PartSource.fromFile(file));
+        }
+        
+        /**
+         * Creates an inline data part that is base64-encoded while it is streamed into the request body
+         * 
+         * @param mimeType the IANA media type, for example image/png
+         * @param data the raw bytes
+         * @return the part
+         */
+        public static Part inlineData(String mimeType, PartSource data) {
+            Blob blob = new Blob();
+            blob.setMimeType(mimeType);
+            blob.setDataSource(data);
+            Part part = new Part();
+            part.setInlineData(blob);
+            return part;
+        }
+        
+        /**
+         * Creates a part referring to a file the model reads itself, so the bytes aren't
+         * uploaded with every request
+         * 
+         * @param mimeType the IANA media type, for example application/pdf
+         * @param fileUri the file location, for example gs://bucket/report.pdf
+         * @return the part
+         */
+        public static Part fileData(String mimeType, String fileUri) {
+            FileData fileData = new FileData();
+            fileData.setMimeType(mimeType);
+            fileData.setFileUri(fileUri);
+            Part part = new Part();
+            part.setFileData(fileData);
+            return part;
+        }
         
         public String getText() {
             return text;
@@ -90,6 +207,146 @@ public class GeminiRequest {
         public void setText(String text) {
             this.text = text;
         }
+        
+        public Blob getInlineData() {
+            return inlineData;
+        }
+        
+        public void setInlineData(Blob inlineData) {
+            this.inlineData = inlineData;
+        }
+        
+        public FileData getFileData() {
+            return fileData;
+        }
+        
+        public void setFileData(FileData fileData) {
+            this.fileData = fileData;
+        }
+        
+        public PartSource getTextSource() {
+            return textSource;
+        }
+        
+        /**
+         * @param textSource text streamed into the request body; ignored if {@link #setText} was also called
+         */
+        public void setTextSource(PartSource textSource) {
+            this.textSource = textSource;
+        }
+    }
+    
+    /**
+     * Raw bytes sent inline with a request, or returned by the model, as base64 in JSON
+     */
+    public static class Blob {
+        private String mimeType;
+        private String data;
+        // Written as "data" by GeminiJsonCodec and skipped by Gson
+        private transient PartSource dataSource;
+        
+        public String getMimeType() {
+            return mimeType;
+        }
+        
+        public void setMimeType(String mimeType) {
+            this.mimeType = mimeType;
+        }
+        
+        /**
+         * @return the base64-encoded bytes, or null if they are streamed from a {@link PartSource}
+         */
+        public String getData() {
+            return data;
+        }
+        
+        public void setData(String data) {
+            this.data = data;
+        }
+        
+        public PartSource getDataSource() {
+            return dataSource;
+        }
+        
+        /**
+         * @param dataSource raw bytes base64-encoded into the request body; ignored if {@link #setData} was also called
+         */
+        public void setDataSource(PartSource dataSource) {
+            this.dataSource = dataSource;
+        }
+        
+        /**
+         * Opens the raw bytes. Base64 data is decoded as the stream is read, so a large
+         * image in a response is never copied into a decoded byte array.
+         * 
+         * @return the decoded bytes; the caller closes the stream
+         * @throws IOException if the data source cannot be opened
+         */
+        public InputStream openData() throws IOException {
+            if (data != null) {
+                return Base64.getDecoder().wrap(new AsciiInputStream(data));
+            }
+            if (dataSource != null) {
+                return Okio.buffer(dataSource.open()).inputStream();
+            }
+            return InputStream.nullInputStream();
+        }
+    }
+    
+    /**
+     * Reads an ASCII string, such as base64 text, as bytes without encoding it into an array first
+     */
+    private static final class AsciiInputStream extends InputStream {
+        private final String text;
+        private int position;
+        
+        AsciiInputStream(String text) {
+            this.text = text;
+        }
+        
+        @Override
+        public int read() {
+            return position < text.length() ? text.charAt(position++) & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= text.length()) {
+                return -1;
+            }
+            int count = Math.min(len, text.length() - position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) text.charAt(position++);
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * A file the model fetches itself, such as an object in Cloud Storage
+     */
+    public static class FileData {
+        private String mimeType;
+        private String fileUri;
+        
+        public String getMimeType() {
+            return mimeType;
+        }
+        
+        public void setMimeType(String mimeType) {
+            this.mimeType = mimeType;
+        }
+        
+        public String getFileUri() {
+            return fileUri;
+        }
+        
+        public void setFileUri(String fileUri) {
+            this.fileUri = fileUri;
+        }
     }
     
     /**
@@ -100,6 +357,7 @@ public class GeminiRequest {
         private Integer maxOutputTokens;
         private Double topP;
         private Integer topK;
+        private Integer candidateCount;
         
         public Double getTemperature() {
             return temperature;
@@ -132,6 +390,17 @@ public class GeminiRequest {
         public void setTopK(Integer topK) {
             this.topK = topK;
         }
+        
+        public Integer getCandidateCount() {
+            return candidateCount;
+        }
+        
+        /**
+         * @param candidateCount number of alternative answers to generate, for best-of-N selection
+         */
+        public void setCandidateCount(Integer candidateCount) {
+            this.candidateCount = candidateCount;
+        }
     }
     
     /**
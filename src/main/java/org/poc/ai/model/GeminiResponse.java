@@ -1,6 +1,8 @@
 package org.poc.ai.model;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Represents a response from the Gemini model
@@ -8,6 +10,7 @@ import java.util.List;
 public class GeminiResponse {
     private List<Candidate> candidates;
     private PromptFeedback promptFeedback;
+    private UsageMetadata usageMetadata;
     
     public List<Candidate> getCandidates() {
         return candidates;
@@ -26,22 +29,93 @@ public class GeminiResponse {
     }
     
     /**
-     * Gets the text content from the first candidate's first part
+     * @return the token counts billed for this call, or null if the server did not send them
+     */
+    public UsageMetadata getUsageMetadata() {
+        return usageMetadata;
+    }
+    
+    public void setUsageMetadata(UsageMetadata usageMetadata) {
+        this.usageMetadata = usageMetadata;
+    }
+    
+    /**
+     * Gets the text content from the first candidate's first text part. A long answer may be
+     * split over several parts; use {@link #getFullText()} to read all of them.
      * 
      * @return the generated text or null if no content is available
      */
     public String getGeneratedText() {
         if (candidates != null && !candidates.isEmpty()) {
             Candidate candidate = candidates.get(0);
-            if (candidate.getContent() != null && 
-                candidate.getContent().getParts() != null && 
-                !candidate.getContent().getParts().isEmpty()) {
-                return candidate.getContent().getParts().get(0).getText();
+            if (candidate.getContent() != null && candidate.getContent().getParts() != null) {
+                // Skip inline data and file parts
+                for (GeminiRequest.Part part : candidate.getContent().getParts()) {
+                    if (part != null && part.getText() != null) {
+                        return part.getText();
+                    }
+                }
             }
         }
         return null;
     }
     
+    /**
+     * Gets the first candidate's complete text, joining all of its text parts
+     * 
+     * @return the text, empty if there is no candidate or it has no text
+     */
+    public String getFullText() {
+        List<Candidate> list = getCandidates();
+        return list == null || list.isEmpty() || list.get(0) == null ? "" : list.get(0).getText();
+    }
+    
+    /**
+     * Gets each candidate's complete text, for example when several were requested with
+     * {@link GeminiRequest.GenerationConfig#setCandidateCount(Integer)}
+     * 
+     * @return one text per candidate, in response order; empty for a null candidate
+     */
+    public List<String> getCandidateTexts() {
+        List<Candidate> list = getCandidates();
+        if (list == null) {
+            return List.of();
+        }
+        List<String> texts = new ArrayList<>(list.size());
+        for (Candidate candidate : list) {
+            texts.add(candidate == null ? "" : candidate.getText());
+        }
+        return texts;
+    }
+    
+    /**
+     * Picks the highest scoring of several candidates in one pass. Each candidate's text is
+     * scored through a {@link CandidateText} view, so no candidate's parts are joined into a
+     * String unless the scorer asks for one.
+     * 
+     * @param scorer scores a candidate's text; higher is better
+     * @return the best candidate, the earliest one on a tie, or null if there are none
+     */
+    public Candidate getBestCandidate(ToDoubleFunction<? super CandidateText> scorer) {
+        List<Candidate> list = getCandidates();
+        if (list == null) {
+            return null;
+        }
+        Candidate best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Candidate candidate : list) {
+            if (candidate == null) {
+                continue;
+            }
+            double score = scorer.applyAsDouble(candidate.getTextView());
+            if (best == null || score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+    
     /**
      * Represents a candidate response from the model
      */
@@ -82,6 +156,20 @@ public class GeminiResponse {
         public void setSafetyRatings(List<SafetyRating> safetyRatings) {
             this.safetyRatings = safetyRatings;
         }
+        
+        /**
+         * @return all of this candidate's text parts joined, copied only if there is more than one
+         */
+        public String getText() {
+            return getTextView().toString();
+        }
+        
+        /**
+         * @return a view of this candidate's text parts that doesn't copy them
+         */
+        public CandidateText getTextView() {
+            return CandidateText.of(content);
+        }
     }
     
     /**
@@ -122,4 +210,56 @@ public class GeminiResponse {
             this.safetyRatings = safetyRatings;
         }
     }
+    
+    /**
+     * Token counts for a call. Streaming responses carry the running totals, so the last
+     * chunk holds the counts for the whole call.
+     */
+    public static class UsageMetadata {
+        private int promptTokenCount;
+        private int candidatesTokenCount;
+        private int totalTokenCount;
+        private int cachedContentTokenCount;
+        
+        /**
+         * @return the prompt tokens, including any read from cached content
+         */
+        public int getPromptTokenCount() {
+            return promptTokenCount;
+        }
+        
+        public void setPromptTokenCount(int promptTokenCount) {
+            this.promptTokenCount = promptTokenCount;
+        }
+        
+        /**
+         * @return the tokens generated across all candidates
+         */
+        public int getCandidatesTokenCount() {
+            return candidatesTokenCount;
+        }
+        
+        public void setCandidatesTokenCount(int candidatesTokenCount) {
+            this.candidatesTokenCount = candidatesTokenCount;
+        }
+        
+        public int getTotalTokenCount() {
+            return totalTokenCount;
+        }
+        
+        public void setTotalTokenCount(int totalTokenCount) {
+            this.totalTokenCount = totalTokenCount;
+        }
+        
+        /**
+         * @return the part of the prompt tokens that came from cached content, billed at a discount
+         */
+        public int getCachedContentTokenCount() {
+            return cachedContentTokenCount;
+        }
+        
+        public void setCachedContentTokenCount(int cachedContentTokenCount) {
+            this.cachedContentTokenCount = cachedContentTokenCount;
+        }
+    }
 }
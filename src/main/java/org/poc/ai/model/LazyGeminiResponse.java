@@ -0,0 +1,179 @@
+package org.poc.ai.model;
+
+import com.google.gson.JsonSyntaxException;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A response that keeps the raw JSON and parses only what is asked for.
+ * <p>
+ * {@link #getGeneratedText()} and {@link #getUsageMetadata()} scan the bytes for their
+ * fields, skipping everything else without building Candidate or SafetyRating objects. The
+ * usage scan picks up the text on its way, since the token tracker reads usage first. The
+ * first call to any other getter, or to a setter, parses the whole response once and then
+ * behaves like an eagerly parsed {@link GeminiResponse}. Malformed JSON is only detected
+ * when a scan or parse reaches it, and is reported by that accessor as a {@code JsonSyntaxException}.
+ */
+public class LazyGeminiResponse extends GeminiResponse {
+    
+    // Exactly sized, unlike the 8 KB okio segments the body arrived in, which go back to the pool
+    private final ByteString json;
+    private final ReentrantLock parseLock = new ReentrantLock();
+    private volatile boolean parsed;
+    private volatile boolean textScanned;
+    private volatile String generatedText;
+    private volatile boolean usageScanned;
+    private volatile UsageMetadata usageMetadata;
+    
+    private LazyGeminiResponse(ByteString json) {
+        this.json = json;
+    }
+    
+    /**
+     * Takes the rest of a source as the response's JSON
+     * 
+     * @param source the source holding UTF-8 JSON
+     * @return the response, or null for an empty document
+     * @throws IOException if the source cannot be read
+     */
+    public static LazyGeminiResponse read(BufferedSource source) throws IOException {
+        ByteString json = source.readByteString();
+        return json.size() == 0 ? null : new LazyGeminiResponse(json);
+    }
+    
+    /**
+     * @return true once the whole response has been parsed into objects
+     */
+    public boolean isParsed() {
+        return parsed;
+    }
+    
+    @Override
+    public String getGeneratedText() {
+        if (parsed) {
+            return super.getGeneratedText();
+        }
+        if (!textScanned) {
+            generatedText = read(GeminiJsonCodec::readGeneratedText);
+            textScanned = true;
+        }
+        return generatedText;
+    }
+    
+    @Override
+    public UsageMetadata getUsageMetadata() {
+        if (parsed) {
+            return super.getUsageMetadata();
+        }
+        if (!usageScanned) {
+            if (textScanned) {
+                usageMetadata = read(GeminiJsonCodec::readUsageMetadata);
+                usageScanned = true;
+            } else {
+                // Callers that want the usage almost always want the text as well
+                read(source -> {
+                    GeminiJsonCodec.readTextAndUsage(source, this);
+                    return null;
+                });
+            }
+        }
+        return usageMetadata;
+    }
+    
+    void scanned(String text, UsageMetadata usage) {
+        generatedText = text;
+        textScanned = true;
+        usageMetadata = usage;
+        usageScanned = true;
+    }
+    
+    @Override
+    public List<Candidate> getCandidates() {
+        parse();
+        return super.getCandidates();
+    }
+    
+    @Override
+    public void setCandidates(List<Candidate> candidates) {
+        parse();
+        super.setCandidates(candidates);
+    }
+    
+    @Override
+    public PromptFeedback getPromptFeedback() {
+        parse();
+        return super.getPromptFeedback();
+    }
+    
+    @Override
+    public void setPromptFeedback(PromptFeedback promptFeedback) {
+        parse();
+        super.setPromptFeedback(promptFeedback);
+    }
+    
+    @Override
+    public void setUsageMetadata(UsageMetadata usageMetadata) {
+        parse();
+        super.setUsageMetadata(usageMetadata);
+    }
+    
+    /**
+     * Copies the raw JSON, if the response hasn't been parsed and possibly changed since
+     * 
+     * @return false if the response has been parsed and must be written field by field
+     */
+    boolean writeRawTo(BufferedSink sink) throws IOException {
+        if (parsed) {
+            return false;
+        }
+        sink.write(json);
+        return true;
+    }
+    
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+        parseLock.lock();
+        try {
+            if (parsed) {
+                return;
+            }
+            GeminiResponse response = read(GeminiJsonCodec::readResponse);
+            // A literal null document leaves every field unset
+            if (response != null) {
+                super.setCandidates(response.getCandidates());
+                super.setPromptFeedback(response.getPromptFeedback());
+                super.setUsageMetadata(response.getUsageMetadata());
+            }
+            parsed = true;
+        } finally {
+            parseLock.unlock();
+        }
+    }
+    
+    private <T> T read(JsonRead<T> read) {
+        try {
+            return read.from(new Buffer().write(json));
+        } catch (EOFException e) {
+            // The whole document is in memory, so running out of input means it was truncated
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            // Reading an in-memory buffer does not fail otherwise
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface JsonRead<T> {
+        T from(BufferedSource source) throws IOException;
+    }
+}
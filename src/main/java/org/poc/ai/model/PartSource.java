@@ -0,0 +1,91 @@
+package org.poc.ai.model;
+
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Bytes that {@link GeminiJsonCodec} streams into a request body in chunks: UTF-8 text for
+ * a text part, escaped on the way, or the raw data of an inline blob, base64-encoded on the
+ * way. Neither is ever held on the heap as one String.
+ * <p>
+ * {@link #open()} may be called more than once, for example when OkHttp retries a request
+ * or the response cache computes a key. Each call must return the same bytes from the start.
+ */
+@FunctionalInterface
+public interface PartSource {
+    
+    /**
+     * @return a new source positioned at the start of the bytes; the caller closes it
+     * @throws IOException if the bytes cannot be opened
+     */
+    Source open() throws IOException;
+    
+    /**
+     * @param file the file, read again each time the request is written
+     * @return a source reading the file
+     */
+    static PartSource fromFile(Path file) {
+        return () -> Okio.source(file);
+    }
+    
+    /**
+     * @param channels opens a new channel each time the request is written, for example from
+     *        object storage or a socket; each channel is closed after it has been read
+     * @return a source reading the channels
+     */
+    static PartSource fromChannel(Supplier<? extends ReadableByteChannel> channels) {
+        return () -> Okio.source(Channels.newInputStream(channels.get()));
+    }
+    
+    /**
+     * @param buffer the bytes between the buffer's position and limit. Direct and
+     *        memory-mapped buffers are copied segment by segment. The buffer's position is not
+     *        changed, but its contents must not change while requests use it.
+     * @return a source reading the buffer
+     */
+    static PartSource fromBuffer(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        return () -> new ByteBufferSource(bytes.duplicate());
+    }
+    
+    /**
+     * Reads a ByteBuffer without copying it into a byte array first
+     */
+    final class ByteBufferSource implements Source {
+        private final ByteBuffer remaining;
+        
+        private ByteBufferSource(ByteBuffer remaining) {
+            this.remaining = remaining;
+        }
+        
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (!remaining.hasRemaining()) {
+                return -1;
+            }
+            int count = (int) Math.min(byteCount, remaining.remaining());
+            int position = remaining.position();
+            sink.write(remaining.slice(position, count));
+            remaining.position(position + count);
+            return count;
+        }
+        
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
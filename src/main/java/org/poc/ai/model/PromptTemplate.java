@@ -0,0 +1,152 @@
+package org.poc.ai.model;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * An immutable request shape for prompts that differ only in one piece of text.
+ * <p>
+ * {@link #compile} serializes a prototype request once, with a slot marker where the
+ * variable text goes, and keeps the JSON before and after the slot as byte arrays. The
+ * system instruction, generation config, safety settings and any constant parts are
+ * therefore encoded only once. {@code VertexAiClient.generateContent(PromptTemplate, String)}
+ * writes each request by copying the two arrays around the escaped text, with no model
+ * objects or reflection, and byte-for-byte the same as Gson would write the prototype with
+ * the marker replaced.
+ */
+public final class PromptTemplate {
+    
+    /**
+     * Slot marker used by {@link #compile(GeminiRequest)}
+     */
+    public static final String DEFAULT_SLOT = "{{text}}";
+    
+    private final byte[] prefix;
+    private final byte[] suffix;
+    // Snapshots of the fields the client reads; the config is never handed out
+    private final GeminiRequest.GenerationConfig generationConfig;
+    private final String cachedContent;
+    
+    private PromptTemplate(byte[] prefix, byte[] suffix, GeminiRequest.GenerationConfig generationConfig,
+                           String cachedContent) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.generationConfig = generationConfig;
+        this.cachedContent = cachedContent;
+    }
+    
+    /**
+     * Compiles a template whose variable text is marked by {@value #DEFAULT_SLOT}
+     * 
+     * @param prototype the request shape; it may be changed or reused afterwards
+     * @return the template
+     * @throws IllegalArgumentException if the marker doesn't occur exactly once
+     */
+    public static PromptTemplate compile(GeminiRequest prototype) {
+        return compile(prototype, DEFAULT_SLOT);
+    }
+    
+    /**
+     * Compiles a template
+     * 
+     * @param prototype the request shape; it may be changed or reused afterwards. File and
+     *        buffer-backed parts are read once, now.
+     * @param slot marks the variable text. It must occur exactly once, in a part's text or
+     *        any other string; text around it in the same string stays constant.
+     * @return the template
+     * @throws IllegalArgumentException if the marker doesn't occur exactly once
+     */
+    public static PromptTemplate compile(GeminiRequest prototype, String slot) {
+        ByteString json;
+        ByteString marker;
+        try {
+            Buffer buffer = new Buffer();
+            GeminiJsonCodec.writeRequest(prototype, buffer);
+            json = buffer.readByteString();
+            GeminiJsonCodec.escaped(buffer, slot);
+            marker = buffer.readByteString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        long index = json.indexOf(marker);
+        if (slot.isEmpty() || index == -1 || json.indexOf(marker, (int) index + 1) != -1) {
+            throw new IllegalArgumentException("Slot " + slot + " must occur exactly once in the prototype");
+        }
+        int end = (int) index + marker.size();
+        return new PromptTemplate(json.substring(0, (int) index).toByteArray(), json.substring(end).toByteArray(),
+                copyOf(prototype.getGenerationConfig()), prototype.getCachedContent());
+    }
+    
+    /**
+     * Creates a request with the slot replaced by the given text
+     * 
+     * @param text the variable text
+     * @return the request; nothing is encoded until it is written
+     */
+    public EncodedRequest newRequest(String text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+        return new TemplatedRequest(this, text);
+    }
+    
+    /**
+     * Writes the request JSON for the given text
+     * 
+     * @param text the variable text
+     * @param sink the sink receiving UTF-8 JSON
+     * @throws IOException if the sink cannot be written
+     */
+    public void writeTo(String text, BufferedSink sink) throws IOException {
+        sink.write(prefix);
+        GeminiJsonCodec.escaped(sink, text);
+        sink.write(suffix);
+    }
+    
+    private static GeminiRequest.GenerationConfig copyOf(GeminiRequest.GenerationConfig config) {
+        if (config == null) {
+            return null;
+        }
+        GeminiRequest.GenerationConfig copy = new GeminiRequest.GenerationConfig();
+        copy.setTemperature(config.getTemperature());
+        copy.setMaxOutputTokens(config.getMaxOutputTokens());
+        copy.setTopP(config.getTopP());
+        copy.setTopK(config.getTopK());
+        copy.setCandidateCount(config.getCandidateCount());
+        return copy;
+    }
+    
+    /**
+     * A request whose JSON is spliced from its template. It holds nothing besides the text.
+     */
+    private static final class TemplatedRequest implements EncodedRequest {
+        private final PromptTemplate template;
+        private final String text;
+        
+        private TemplatedRequest(PromptTemplate template, String text) {
+            this.template = template;
+            this.text = text;
+        }
+        
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            template.writeTo(text, sink);
+        }
+        
+        @Override
+        public GeminiRequest.GenerationConfig getGenerationConfig() {
+            // A copy, so callers cannot change the template
+            return copyOf(template.generationConfig);
+        }
+        
+        @Override
+        public String getCachedContent() {
+            return template.cachedContent;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.poc.ai.stub;
+
+import org.poc.ai.config.Durations;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of simulated response latencies for the {@link VertexStubServer}
+ */
+public interface LatencyDistribution {
+    
+    /**
+     * @return the next latency in nanoseconds
+     */
+    long sampleNanos();
+    
+    static LatencyDistribution fixed(Duration latency) {
+        long nanos = latency.toNanos();
+        return () -> nanos;
+    }
+    
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long maxNanos = max.toNanos();
+        return () -> minNanos == maxNanos ? minNanos : ThreadLocalRandom.current().nextLong(minNanos, maxNanos);
+    }
+    
+    static LatencyDistribution exponential(Duration mean) {
+        double meanNanos = mean.toNanos();
+        return () -> (long) (-meanNanos * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+    }
+    
+    /**
+     * Log-normal latencies, the usual shape of service response times: most calls close to
+     * the median with a long tail
+     * 
+     * @param median the 50th percentile
+     * @param p99 the 99th percentile, at least the median
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        // 2.326 is the 99th percentile of the standard normal distribution
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / 2.326;
+        return () -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+    }
+    
+    /**
+     * Parses {@code fixed:100ms}, {@code uniform:50ms:200ms}, {@code exponential:100ms} or
+     * {@code lognormal:<median>:<p99>}
+     * 
+     * @param spec the distribution specification
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed":
+                if (parts.length == 2) {
+                    return fixed(Durations.parse(parts[1]));
+                }
+                break;
+            case "uniform":
+                if (parts.length == 3) {
+                    return uniform(Durations.parse(parts[1]), Durations.parse(parts[2]));
+                }
+                break;
+            case "exponential":
+                if (parts.length == 2) {
+                    return exponential(Durations.parse(parts[1]));
+                }
+                break;
+            case "lognormal":
+                if (parts.length == 3) {
+                    return logNormal(Durations.parse(parts[1]), Durations.parse(parts[2]));
+                }
+                break;
+            default:
+        }
+        throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+    }
+}
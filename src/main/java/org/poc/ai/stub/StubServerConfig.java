@@ -0,0 +1,193 @@
+package org.poc.ai.stub;
+
+import java.time.Duration;
+
+/**
+ * Settings for the {@link VertexStubServer}, parsed from {@code --name=value} command line options
+ */
+public class StubServerConfig {
+    private int port = 0;
+    private LatencyDistribution latency = LatencyDistribution.fixed(Duration.ZERO);
+    private double errorRate = 0.0;
+    private int errorStatus = 503;
+    private int quotaPerSecond = 0;
+    private int responseTokens = 50;
+    private int candidates = 1;
+    private int streamTokensPerSecond = 100;
+    private int streamChunkTokens = 5;
+    private String accessToken = "stub-access-token";
+    private int tokenLifetimeSeconds = 3600;
+    
+    /**
+     * Parses options such as {@code --port=8089 --latency=lognormal:200ms:1s --quota=50}
+     * 
+     * @param args the options, without the leading mode argument
+     * @return the parsed configuration
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    public static StubServerConfig fromArgs(String[] args) {
+        StubServerConfig config = new StubServerConfig();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "port":
+                    config.setPort(Integer.parseInt(value));
+                    break;
+                case "latency":
+                    config.setLatency(LatencyDistribution.parse(value));
+                    break;
+                case "error-rate":
+                    config.setErrorRate(Double.parseDouble(value));
+                    break;
+                case "error-status":
+                    config.setErrorStatus(Integer.parseInt(value));
+                    break;
+                case "quota":
+                    config.setQuotaPerSecond(Integer.parseInt(value));
+                    break;
+                case "response-tokens":
+                    config.setResponseTokens(Integer.parseInt(value));
+                    break;
+                case "candidates":
+                    config.setCandidates(Integer.parseInt(value));
+                    break;
+                case "stream-tps":
+                    config.setStreamTokensPerSecond(Integer.parseInt(value));
+                    break;
+                case "stream-chunk-tokens":
+                    config.setStreamChunkTokens(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown stub server option: --" + name);
+            }
+        }
+        return config;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    /**
+     * @param port port to listen on, or 0 to pick a free one
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+    
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+    
+    /**
+     * @param latency time before the response, or before the first streamed chunk
+     */
+    public void setLatency(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+    
+    public double getErrorRate() {
+        return errorRate;
+    }
+    
+    /**
+     * @param errorRate fraction of model calls answered with the error status instead of a response
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+    
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+    
+    public void setErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+    
+    public int getQuotaPerSecond() {
+        return quotaPerSecond;
+    }
+    
+    /**
+     * @param quotaPerSecond model calls accepted per one-second window before answering 429,
+     *                       or 0 for no quota
+     */
+    public void setQuotaPerSecond(int quotaPerSecond) {
+        this.quotaPerSecond = quotaPerSecond;
+    }
+    
+    public int getResponseTokens() {
+        return responseTokens;
+    }
+    
+    /**
+     * @param responseTokens number of words generated per candidate, at least one
+     */
+    public void setResponseTokens(int responseTokens) {
+        if (responseTokens < 1) {
+            throw new IllegalArgumentException("responseTokens must be at least 1 but was " + responseTokens);
+        }
+        this.responseTokens = responseTokens;
+    }
+    
+    public int getCandidates() {
+        return candidates;
+    }
+    
+    /**
+     * @param candidates number of candidates per response, at least one
+     */
+    public void setCandidates(int candidates) {
+        if (candidates < 1) {
+            throw new IllegalArgumentException("candidates must be at least 1 but was " + candidates);
+        }
+        this.candidates = candidates;
+    }
+    
+    public int getStreamTokensPerSecond() {
+        return streamTokensPerSecond;
+    }
+    
+    /**
+     * @param streamTokensPerSecond generation speed used to pace streamed chunks
+     */
+    public void setStreamTokensPerSecond(int streamTokensPerSecond) {
+        this.streamTokensPerSecond = streamTokensPerSecond;
+    }
+    
+    public int getStreamChunkTokens() {
+        return streamChunkTokens;
+    }
+    
+    /**
+     * @param streamChunkTokens number of words per server-sent event
+     */
+    public void setStreamChunkTokens(int streamChunkTokens) {
+        this.streamChunkTokens = streamChunkTokens;
+    }
+    
+    public String getAccessToken() {
+        return accessToken;
+    }
+    
+    /**
+     * @param accessToken token issued by the /token route
+     */
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+    
+    public int getTokenLifetimeSeconds() {
+        return tokenLifetimeSeconds;
+    }
+    
+    public void setTokenLifetimeSeconds(int tokenLifetimeSeconds) {
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+    }
+}
@@ -0,0 +1,306 @@
+package org.poc.ai.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okio.Buffer;
+import org.poc.ai.model.GeminiJsonCodec;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable stand-in for the Vertex AI endpoints, for benchmarks and chaos tests without network.
+ * <p>
+ * Serves {@code :generateContent}, {@code :streamGenerateContent} (server-sent events) and an
+ * OAuth {@code /token} route on the JDK's selector-based HTTP server, with each exchange
+ * handled on a virtual thread. Simulated latency does not hold even those: the handler reads
+ * the request and schedules the response on a timer, so thousands of slow calls can be in
+ * flight. Responses are serialized once at startup. Model calls can fail at a configured rate
+ * and are answered with 429 once a per-second quota is used up.
+ * <p>
+ * Embedders should start the JVM with {@code -Dsun.net.httpserver.nodelay=true}. Without
+ * TCP_NODELAY the separate header and body writes stall on delayed ACKs for about 40 ms.
+ * The JDK reads the property once for all its HTTP servers, so the stub does not set it.
+ */
+public class VertexStubServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(VertexStubServer.class);
+    private static final String[] WORDS = {
+            "the", "model", "answers", "with", "a", "steady", "stream", "of", "plausible", "words"
+    };
+    
+    private final StubServerConfig config;
+    private final HttpServer server;
+    private final ExecutorService handlerExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final byte[] responseBody;
+    private final List<byte[]> streamEvents;
+    private final byte[] tokenBody;
+    
+    private final AtomicLong quotaWindow = new AtomicLong();
+    private final AtomicInteger quotaUsed = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder tokensIssued = new LongAdder();
+    
+    /**
+     * Starts the server
+     * 
+     * @param config the stub behaviour
+     * @throws IOException if the port cannot be bound
+     */
+    public VertexStubServer(StubServerConfig config) throws IOException {
+        this.config = config;
+        this.responseBody = serialize(buildResponse(config.getCandidates(), words(0, config.getResponseTokens()), "STOP",
+                config.getResponseTokens() * config.getCandidates()));
+        this.streamEvents = buildStreamEvents(config);
+        this.tokenBody = String.format("{\"access_token\":\"%s\",\"expires_in\":%d,\"token_type\":\"Bearer\"}",
+                config.getAccessToken(), config.getTokenLifetimeSeconds()).getBytes(StandardCharsets.UTF_8);
+        
+        this.handlerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vertex-stub-handler-", 0).factory());
+        this.scheduler = Executors.newScheduledThreadPool(2, daemonThreads("vertex-stub-scheduler"));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.getPort()), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(handlerExecutor);
+        server.start();
+        logger.info("Vertex AI stub listening on {}", getBaseUrl());
+    }
+    
+    /**
+     * @return the URL to use as VERTEX_API_ENDPOINT, or as token_uri in a service account key
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    public long getRequestCount() {
+        return requests.sum();
+    }
+    
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+    
+    public long getInjectedErrorCount() {
+        return injectedErrors.sum();
+    }
+    
+    public long getTokensIssued() {
+        return tokensIssued.sum();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        handlerExecutor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        String path = exchange.getRequestURI().getPath();
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, "{\"error\":{\"code\":405,\"message\":\"Method not allowed\"}}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        
+        if (path.equals("/token")) {
+            tokensIssued.increment();
+            respond(exchange, 200, tokenBody);
+            return;
+        }
+        boolean streaming = path.endsWith(":streamGenerateContent");
+        if (!streaming && !path.endsWith(":generateContent")) {
+            respond(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not found\"}}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        
+        requests.increment();
+        if (!acquireQuota()) {
+            throttled.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Quota exceeded for stub model"));
+            return;
+        }
+        
+        long delayNanos = Math.max(0, config.getLatency().sampleNanos());
+        if (config.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.getErrorRate()) {
+            injectedErrors.increment();
+            schedule(delayNanos, exchange, () -> respond(exchange, config.getErrorStatus(),
+                    error(config.getErrorStatus(), "UNAVAILABLE", "Injected failure")));
+        } else if (streaming) {
+            schedule(delayNanos, exchange, () -> startStream(exchange));
+        } else {
+            schedule(delayNanos, exchange, () -> respond(exchange, 200, responseBody));
+        }
+    }
+    
+    /**
+     * Fixed one-second windows: cheap, and close enough to Vertex AI's per-minute quotas
+     * scaled down for tests
+     */
+    private boolean acquireQuota() {
+        int quota = config.getQuotaPerSecond();
+        if (quota <= 0) {
+            return true;
+        }
+        long window = System.nanoTime() / TimeUnit.SECONDS.toNanos(1);
+        long current = quotaWindow.get();
+        if (window != current && quotaWindow.compareAndSet(current, window)) {
+            quotaUsed.set(0);
+        }
+        return quotaUsed.incrementAndGet() <= quota;
+    }
+    
+    private void startStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        long chunkIntervalNanos = config.getStreamTokensPerSecond() > 0
+                ? TimeUnit.SECONDS.toNanos(config.getStreamChunkTokens()) / config.getStreamTokensPerSecond()
+                : 0;
+        writeEvent(exchange, 0, chunkIntervalNanos);
+    }
+    
+    /**
+     * Writes one event and schedules the next, so a paced stream never holds a thread
+     */
+    private void writeEvent(HttpExchange exchange, int index, long intervalNanos) throws IOException {
+        OutputStream out = exchange.getResponseBody();
+        out.write(streamEvents.get(index));
+        out.flush();
+        if (index + 1 == streamEvents.size()) {
+            exchange.close();
+            return;
+        }
+        schedule(intervalNanos, exchange, () -> writeEvent(exchange, index + 1, intervalNanos));
+    }
+    
+    private void schedule(long delayNanos, HttpExchange exchange, ExchangeTask task) {
+        if (delayNanos == 0) {
+            run(exchange, task);
+            return;
+        }
+        scheduler.schedule(() -> handlerExecutor.execute(() -> run(exchange, task)), delayNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Runs a response step, closing the exchange if it fails so the client is not left waiting
+     */
+    private static void run(HttpExchange exchange, ExchangeTask task) {
+        try {
+            task.run();
+        } catch (IOException e) {
+            // The client went away, for example after cancelling a hedged call
+            logger.debug("Stub response aborted: {}", e.getMessage());
+            exchange.close();
+        } catch (RuntimeException e) {
+            logger.warn("Stub response failed", e);
+            exchange.close();
+        }
+    }
+    
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private static byte[] error(int code, String status, String message) {
+        return String.format("{\"error\":{\"code\":%d,\"message\":\"%s\",\"status\":\"%s\"}}", code, message, status)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static List<byte[]> buildStreamEvents(StubServerConfig config) {
+        List<byte[]> events = new ArrayList<>();
+        int chunkTokens = Math.max(1, config.getStreamChunkTokens());
+        for (int start = 0; start < config.getResponseTokens(); start += chunkTokens) {
+            int end = Math.min(start + chunkTokens, config.getResponseTokens());
+            String finishReason = end == config.getResponseTokens() ? "STOP" : null;
+            byte[] json = serialize(buildResponse(1, words(start, end), finishReason, end));
+            Buffer event = new Buffer().writeUtf8("data: ").write(json).writeUtf8("\r\n\r\n");
+            events.add(event.readByteArray());
+        }
+        return events;
+    }
+    
+    /**
+     * Builds a response whose usage counts one token per word. Prompts are not tokenized,
+     * so the prompt count is always zero.
+     */
+    private static GeminiResponse buildResponse(int candidates, String text, String finishReason, int outputTokens) {
+        List<GeminiResponse.Candidate> list = new ArrayList<>();
+        for (int i = 0; i < candidates; i++) {
+            GeminiRequest.Part part = new GeminiRequest.Part();
+            part.setText(text);
+            GeminiRequest.Content content = new GeminiRequest.Content();
+            content.setParts(List.of(part));
+            content.setRole("model");
+            GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+            candidate.setContent(content);
+            candidate.setFinishReason(finishReason);
+            candidate.setIndex(i);
+            list.add(candidate);
+        }
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setCandidatesTokenCount(outputTokens);
+        usage.setTotalTokenCount(outputTokens);
+        GeminiResponse response = new GeminiResponse();
+        response.setCandidates(list);
+        response.setUsageMetadata(usage);
+        return response;
+    }
+    
+    private static String words(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append(WORDS[i % WORDS.length]).append(' ');
+        }
+        return text.toString();
+    }
+    
+    private static byte[] serialize(GeminiResponse response) {
+        Buffer buffer = new Buffer();
+        try {
+            GeminiJsonCodec.writeResponse(response, buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.readByteArray();
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    @FunctionalInterface
+    private interface ExchangeTask {
+        void run() throws IOException;
+    }
+}
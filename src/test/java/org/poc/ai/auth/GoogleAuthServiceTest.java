@@ -2,14 +2,28 @@ package org.poc.ai.auth;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.auth.oauth2.AccessToken;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.poc.ai.testing.MutableClock;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -96,20 +110,135 @@ public class GoogleAuthServiceTest {
                    exception.getMessage().contains("invalid_grant"));
     }
     
+    @Test
+    public void testGetAccessToken_CachesToken() throws IOException {
+        stubTokenEndpoint("cached-token", 3600);
+        
+        // Call the method under test several times
+        for (int i = 0; i < 5; i++) {
+            assertEquals("cached-token", authService.getAccessToken());
+        }
+        
+        // Only the first call should reach the token endpoint
+        verify(1, postRequestedFor(urlEqualTo("/token")));
+        assertEquals(1, authService.getRefreshCount());
+        assertEquals(4, authService.getCacheHitCount());
+    }
+    
+    @Test
+    public void testGetAccessToken_ConcurrentCallersShareOneRefresh() throws Exception {
+        stubFor(post(urlEqualTo("/token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"access_token\":\"shared-token\",\"expires_in\":3600,\"token_type\":\"Bearer\"}")));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> authService.getAccessToken()));
+            }
+            for (Future<String> result : results) {
+                assertEquals("shared-token", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        verify(1, postRequestedFor(urlEqualTo("/token")));
+        assertEquals(1, authService.getRefreshCount());
+    }
+    
+    @Test
+    public void testGetAccessToken_RefreshesInBackgroundBeforeExpiry() throws Exception {
+        MutableClock clock = new MutableClock(Instant.now());
+        authService = new TestGoogleAuthService(credentialsFile.toString(), wireMockServer.baseUrl(), clock);
+        stubTokenEndpoint("expiring-token", 3600);
+        
+        assertEquals("expiring-token", authService.getAccessToken());
+        
+        // Inside the 5 minute margin the cached token is still returned while a refresh runs in the background
+        clock.advance(Duration.ofMinutes(56));
+        assertEquals("expiring-token", authService.getAccessToken());
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (authService.getRefreshCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        assertEquals(2, authService.getRefreshCount());
+        verify(2, postRequestedFor(urlEqualTo("/token")));
+    }
+    
+    @Test
+    public void testGetAccessToken_ShortLivedTokenIsNotRefreshedOnEveryCall() throws Exception {
+        MutableClock clock = new MutableClock(Instant.now());
+        authService = new TestGoogleAuthService(credentialsFile.toString(), wireMockServer.baseUrl(), clock);
+        // Lives for 60s, shorter than the 5 minute refresh margin, which is cut to half the lifetime
+        stubTokenEndpoint("short-lived-token", 60);
+        
+        assertEquals("short-lived-token", authService.getAccessToken());
+        clock.advance(Duration.ofSeconds(20));
+        assertEquals("short-lived-token", authService.getAccessToken());
+        Thread.sleep(100);
+        assertEquals(1, authService.getRefreshCount());
+        
+        clock.advance(Duration.ofSeconds(15));
+        authService.getAccessToken();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (authService.getRefreshCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, authService.getRefreshCount());
+    }
+    
+    @Test
+    public void testNonPositiveRefreshMarginIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GoogleAuthService(credentialsFile.toString(), Duration.ZERO));
+    }
+    
+    @Test
+    public void testGetAccessTokenAsync_SharesCachedToken() throws Exception {
+        stubTokenEndpoint("async-token", 3600);
+        
+        // The first call refreshes on the background thread, the rest are served from cache
+        assertEquals("async-token", authService.getAccessTokenAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(authService.getAccessTokenAsync().isDone());
+        assertEquals("async-token", authService.getAccessTokenAsync().get());
+        
+        verify(1, postRequestedFor(urlEqualTo("/token")));
+    }
+    
+    private void stubTokenEndpoint(String token, int expiresIn) {
+        stubFor(post(urlEqualTo("/token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"access_token\":\"" + token + "\",\"expires_in\":" + expiresIn + ",\"token_type\":\"Bearer\"}")));
+    }
+    
     /**
      * A test implementation of GoogleAuthService that uses the WireMock server
      * instead of the real Google token endpoint
      */
     private static class TestGoogleAuthService extends GoogleAuthService {
         private final String tokenEndpoint;
+        private final Clock clock;
         
         public TestGoogleAuthService(String credentialsPath, String tokenEndpoint) {
-            super(credentialsPath);
+            this(credentialsPath, tokenEndpoint, Clock.systemUTC());
+        }
+        
+        public TestGoogleAuthService(String credentialsPath, String tokenEndpoint, Clock clock) {
+            super(credentialsPath, Duration.ofMinutes(5), clock);
             this.tokenEndpoint = tokenEndpoint;
+            this.clock = clock;
         }
         
         @Override
-        public String getAccessToken() throws IOException {
+        protected AccessToken fetchToken() throws IOException {
             // For testing, we'll simulate the token request to the WireMock server
             try {
                 // Make a POST request to the token endpoint
@@ -129,17 +258,12 @@ public class GoogleAuthServiceTest {
                             (response.body() != null ? response.body().string() : ""));
                 }
                 
-                // Parse the response to get the access token
-                String responseBody = response.body().string();
-                
-                // Simple parsing for test purposes
-                if (responseBody.contains("\"access_token\":\"")) {
-                    int start = responseBody.indexOf("\"access_token\":\"") + 16;
-                    int end = responseBody.indexOf("\"", start);
-                    return responseBody.substring(start, end);
-                }
+                // Parse the response to get the access token and its lifetime
+                JsonObject json = JsonParser.parseString(response.body().string()).getAsJsonObject();
+                String tokenValue = json.has("access_token") ? json.get("access_token").getAsString() : "mock-access-token";
+                long expiresIn = json.has("expires_in") ? json.get("expires_in").getAsLong() : 3600;
                 
-                return "mock-access-token";
+                return new AccessToken(tokenValue, new Date(clock.millis() + expiresIn * 1000));
             } catch (Exception e) {
                 throw new IOException("Error getting access token: " + e.getMessage(), e);
             }
@@ -0,0 +1,176 @@
+package org.poc.ai.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
+
+/**
+ * Tests for the BatchingClient using an in-memory backend
+ */
+public class BatchingClientTest {
+    
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private BatchingClient batchingClient;
+    
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (batchingClient != null) {
+            batchingClient.close();
+        }
+    }
+    
+    @Test
+    public void testRequestsAreCoalescedIntoBatches() throws Exception {
+        batchingClient = new BatchingClient(echoBackend(), config(10, 1000, 100));
+        
+        List<CompletableFuture<GeminiResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            futures.add(batchingClient.submit(GeminiRequest.createTextRequest("prompt " + i)));
+        }
+        
+        // Every caller gets the response for its own request
+        for (int i = 0; i < 25; i++) {
+            assertEquals("echo: prompt " + i, futures.get(i).get(5, TimeUnit.SECONDS).getGeneratedText());
+        }
+        
+        // Two full batches are sent by size, the remainder when the window closes
+        assertEquals(List.of(10, 10, 5), batchSizes);
+        assertEquals(3, batchingClient.getBatchesDispatched());
+    }
+    
+    @Test
+    public void testPartialBatchIsFlushedWhenWindowCloses() throws Exception {
+        batchingClient = new BatchingClient(echoBackend(), config(100, 20, 100));
+        
+        CompletableFuture<GeminiResponse> future = batchingClient.submit(GeminiRequest.createTextRequest("lonely"));
+        
+        assertEquals("echo: lonely", future.get(5, TimeUnit.SECONDS).getGeneratedText());
+        assertEquals(List.of(1), batchSizes);
+    }
+    
+    @Test
+    public void testTrySubmitRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BatchBackend blockingBackend = batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echoBackend().dispatch(batch);
+        };
+        batchingClient = new BatchingClient(blockingBackend, config(1, 0, 2));
+        
+        // The first request is taken by the flusher, which then blocks in the backend
+        batchingClient.submit(GeminiRequest.createTextRequest("in flight"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batchingClient.getQueuedCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        
+        // Two more fill the queue, the next one is rejected
+        batchingClient.trySubmit(GeminiRequest.createTextRequest("queued 1"));
+        batchingClient.trySubmit(GeminiRequest.createTextRequest("queued 2"));
+        CompletableFuture<GeminiResponse> rejected = batchingClient.trySubmit(GeminiRequest.createTextRequest("overflow"));
+        
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, batchingClient.getRejectedCount());
+        
+        release.countDown();
+    }
+    
+    @Test
+    public void testBackendFailureIsDeliveredToCaller() throws Exception {
+        batchingClient = new BatchingClient(batch -> {
+            throw new IllegalStateException("backend down");
+        }, config(10, 5, 100));
+        
+        CompletableFuture<GeminiResponse> future = batchingClient.submit(GeminiRequest.createTextRequest("prompt"));
+        
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("backend down", exception.getCause().getMessage());
+    }
+    
+    @Test
+    public void testShortBackendResultFailsBatchAndKeepsFlushing() throws Exception {
+        AtomicBoolean truncate = new AtomicBoolean(true);
+        batchingClient = new BatchingClient(batch -> {
+            List<CompletableFuture<GeminiResponse>> results = echoBackend().dispatch(batch);
+            return truncate.getAndSet(false) ? results.subList(0, results.size() - 1) : results;
+        }, config(10, 5, 100));
+        
+        CompletableFuture<GeminiResponse> failed = batchingClient.submit(GeminiRequest.createTextRequest("prompt"));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        
+        // The flusher survives and serves the next batch
+        CompletableFuture<GeminiResponse> next = batchingClient.submit(GeminiRequest.createTextRequest("again"));
+        assertEquals("echo: again", next.get(5, TimeUnit.SECONDS).getGeneratedText());
+    }
+    
+    @Test
+    public void testRequestsAcceptedDuringCloseAreDispatched() throws Exception {
+        batchingClient = new BatchingClient(echoBackend(), config(10, 1, 1000));
+        
+        List<CompletableFuture<GeminiResponse>> accepted = new CopyOnWriteArrayList<>();
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread submitter = new Thread(() -> {
+                try {
+                    while (true) {
+                        accepted.add(batchingClient.submit(GeminiRequest.createTextRequest("prompt")));
+                    }
+                } catch (IllegalStateException | InterruptedException e) {
+                    // Closed
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        Thread.sleep(20);
+        batchingClient.close();
+        for (Thread submitter : submitters) {
+            submitter.join(5000);
+        }
+        
+        // Every request the client took in before closing gets its response
+        for (CompletableFuture<GeminiResponse> future : accepted) {
+            assertEquals("echo: prompt", future.get(5, TimeUnit.SECONDS).getGeneratedText());
+        }
+    }
+    
+    private BatchConfig config(int maxBatchSize, long windowMillis, int queueCapacity) {
+        BatchConfig config = new BatchConfig();
+        config.setMaxBatchSize(maxBatchSize);
+        config.setBatchWindowMillis(windowMillis);
+        config.setQueueCapacity(queueCapacity);
+        return config;
+    }
+    
+    private BatchBackend echoBackend() {
+        return batch -> {
+            batchSizes.add(batch.size());
+            List<CompletableFuture<GeminiResponse>> results = new ArrayList<>();
+            for (GeminiRequest request : batch) {
+                results.add(CompletableFuture.completedFuture(
+                        createMockResponse("echo: " + request.getContents().get(0).getParts().get(0).getText())));
+            }
+            return results;
+        };
+    }
+}
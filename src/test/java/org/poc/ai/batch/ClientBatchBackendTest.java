@@ -0,0 +1,65 @@
+package org.poc.ai.batch;
+
+import org.junit.jupiter.api.Test;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the ClientBatchBackend behind a BatchingClient
+ */
+public class ClientBatchBackendTest {
+    
+    @Test
+    public void testSaturatedWorkersHoldBackSubmitters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GeminiResponse response = new GeminiResponse();
+        VertexAiClient client = mock(VertexAiClient.class);
+        when(client.generateContent(any())).thenAnswer(invocation -> {
+            release.await();
+            return response;
+        });
+        BatchConfig config = new BatchConfig();
+        config.setMaxBatchSize(1);
+        config.setBatchWindowMillis(0);
+        config.setQueueCapacity(1);
+        
+        try (ClientBatchBackend backend = new ClientBatchBackend(client, 1)) {
+            BatchingClient batchingClient = new BatchingClient(backend, config);
+            
+            // The first request occupies the only worker, the flusher then waits for it with the second
+            CompletableFuture<GeminiResponse> first = batchingClient.submit(GeminiRequest.createTextRequest("in flight"));
+            CompletableFuture<GeminiResponse> second = batchingClient.submit(GeminiRequest.createTextRequest("dispatching"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (batchingClient.getQueuedCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            
+            // One more fills the queue and stays there, so the next one is rejected
+            CompletableFuture<GeminiResponse> queued = batchingClient.trySubmit(GeminiRequest.createTextRequest("queued"));
+            Thread.sleep(100);
+            assertEquals(1, batchingClient.getQueuedCount());
+            CompletableFuture<GeminiResponse> rejected = batchingClient.trySubmit(GeminiRequest.createTextRequest("overflow"));
+            
+            ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+            verify(client, timeout(5000).times(1)).generateContent(any());
+            
+            release.countDown();
+            for (CompletableFuture<GeminiResponse> future : List.of(first, second, queued)) {
+                assertSame(response, future.get(5, TimeUnit.SECONDS));
+            }
+            batchingClient.close();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.poc.ai.cache;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.StaticTokenAuthService;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.CachedContent;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.testing.MutableClock;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the CachedContentRegistry using WireMock to mock the cachedContents API
+ */
+public class CachedContentRegistryTest {
+    
+    private static final String COLLECTION = "/v1/projects/test-project/locations/test-location/cachedContents";
+    private static final String NAME = "projects/test-project/locations/test-location/cachedContents/123";
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+    
+    private WireMockServer wireMockServer;
+    private VertexAiClient client;
+    
+    @BeforeEach
+    public void setup() {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        WireMock.configureFor("localhost", wireMockServer.port());
+        
+        client = new VertexAiClient(new StaticTokenAuthService("mock-access-token"), new OkHttpClient(),
+                "test-project", "test-location", "google", "gemini-flash", wireMockServer.baseUrl());
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+    
+    @Test
+    public void testPrefixIsUploadedOnce() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        CachedContentRegistry registry = registry(NOW);
+        AtomicInteger prefixCalls = new AtomicInteger();
+        
+        CachedContent first = registry.getOrCreate("doc-1", () -> {
+            prefixCalls.incrementAndGet();
+            return prefix();
+        });
+        CachedContent second = registry.getOrCreate("doc-1", () -> {
+            prefixCalls.incrementAndGet();
+            return prefix();
+        });
+        
+        assertSame(first, second);
+        assertEquals(NAME, first.getName());
+        assertEquals(NOW.plusSeconds(3600), first.getExpireTime());
+        assertEquals(40000, first.getTotalTokenCount());
+        assertEquals(1, prefixCalls.get());
+        assertEquals(1, registry.getCreateCount());
+        assertEquals(1, registry.getReuseCount());
+        verify(1, postRequestedFor(urlPathEqualTo(COLLECTION))
+                .withHeader("Authorization", equalTo("Bearer mock-access-token"))
+                .withRequestBody(equalToJson("{\"model\":\"projects/test-project/locations/test-location/publishers/google/models/gemini-flash\","
+                        + "\"contents\":[{\"parts\":[{\"text\":\"A long shared document\"}],\"role\":\"user\"}],"
+                        + "\"ttl\":\"3600s\"}")));
+    }
+    
+    @Test
+    public void testNearExpiryExtendsTtl() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        stubFor(patch(urlPathEqualTo("/v1/" + NAME))
+                .withQueryParam("updateMask", equalTo("ttl"))
+                .willReturn(okJson(handle(NOW.plusSeconds(3300 + 3600)))));
+        MutableClock clock = new MutableClock(NOW);
+        CachedContentRegistry registry = new CachedContentRegistry(client, Duration.ofHours(1), Duration.ofMinutes(5), clock);
+        
+        registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        clock.set(NOW.plusSeconds(3300));
+        CachedContent extended = registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        
+        assertEquals(NOW.plusSeconds(6900), extended.getExpireTime());
+        assertEquals(1, registry.getCreateCount());
+        assertEquals(1, registry.getRefreshCount());
+        verify(patchRequestedFor(urlPathEqualTo("/v1/" + NAME))
+                .withRequestBody(equalToJson("{\"ttl\":\"3600s\"}")));
+    }
+    
+    @Test
+    public void testFailedExtensionKeepsLiveHandle() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        stubFor(patch(urlPathEqualTo("/v1/" + NAME))
+                .willReturn(aResponse().withStatus(503).withBody("{\"error\":{\"code\":503}}")));
+        MutableClock clock = new MutableClock(NOW);
+        CachedContentRegistry registry = new CachedContentRegistry(client, Duration.ofHours(1), Duration.ofMinutes(5), clock);
+        
+        CachedContent created = registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        clock.set(NOW.plusSeconds(3300));
+        assertSame(created, registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix));
+        
+        // The next call retries the extension
+        stubFor(patch(urlPathEqualTo("/v1/" + NAME))
+                .willReturn(okJson(handle(NOW.plusSeconds(3300 + 3600)))));
+        CachedContent extended = registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        
+        assertEquals(NOW.plusSeconds(6900), extended.getExpireTime());
+        assertEquals(1, registry.getCreateCount());
+        assertEquals(1, registry.getRefreshCount());
+        verify(2, patchRequestedFor(urlPathEqualTo("/v1/" + NAME)));
+    }
+    
+    @Test
+    public void testRecreatesWhenServerDroppedCache() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        stubFor(patch(urlPathEqualTo("/v1/" + NAME))
+                .willReturn(aResponse().withStatus(404).withBody("{\"error\":{\"code\":404}}")));
+        MutableClock clock = new MutableClock(NOW);
+        CachedContentRegistry registry = new CachedContentRegistry(client, Duration.ofHours(1), Duration.ofMinutes(5), clock);
+        
+        registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        clock.set(NOW.plusSeconds(3300));
+        registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        
+        assertEquals(2, registry.getCreateCount());
+        assertEquals(0, registry.getRefreshCount());
+        verify(2, postRequestedFor(urlPathEqualTo(COLLECTION)));
+    }
+    
+    @Test
+    public void testInvalidateDeletesCache() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        stubFor(delete(urlPathEqualTo("/v1/" + NAME))
+                .willReturn(okJson("{}")));
+        CachedContentRegistry registry = registry(NOW);
+        
+        CachedContent handle = registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        GeminiRequest request = CachedContentRegistry.createTextRequest(handle, "Summarize section 2");
+        registry.invalidate("doc-1");
+        
+        assertEquals(NAME, request.getCachedContent());
+        assertNull(registry.get("doc-1"));
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.lockCount());
+        verify(deleteRequestedFor(urlPathEqualTo("/v1/" + NAME)));
+    }
+    
+    @Test
+    public void testFailedCreateDoesNotKeepLock() {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(aResponse().withStatus(400).withBody("prefix too short")));
+        CachedContentRegistry registry = registry(NOW);
+        
+        for (int i = 0; i < 10; i++) {
+            String key = "doc-" + i;
+            assertThrows(IOException.class, () -> registry.getOrCreate(key, CachedContentRegistryTest::prefix));
+        }
+        
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.lockCount());
+    }
+    
+    @Test
+    public void testSystemInstructionIsCached() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        GeminiRequest.Content systemInstruction = GeminiRequest.createTextRequest("Answer in French").getContents().get(0);
+        systemInstruction.setRole(null);
+        
+        CachedContent handle = client.createCachedContent(systemInstruction, prefix(), Duration.ofHours(1));
+        
+        assertEquals(NAME, handle.getName());
+        verify(postRequestedFor(urlPathEqualTo(COLLECTION))
+                .withRequestBody(equalToJson("{\"model\":\"projects/test-project/locations/test-location/publishers/google/models/gemini-flash\","
+                        + "\"systemInstruction\":{\"parts\":[{\"text\":\"Answer in French\"}]},"
+                        + "\"contents\":[{\"parts\":[{\"text\":\"A long shared document\"}],\"role\":\"user\"}],"
+                        + "\"ttl\":\"3600s\"}")));
+    }
+    
+    @Test
+    public void testRequestReferencesCache() throws IOException {
+        stubFor(post(urlPathEqualTo(COLLECTION))
+                .willReturn(okJson(handle(NOW.plusSeconds(3600)))));
+        stubFor(post(urlPathMatching(".*:generateContent"))
+                .willReturn(okJson("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Section 2 covers caching.\"}],\"role\":\"model\"},\"index\":0}],"
+                        + "\"usageMetadata\":{\"promptTokenCount\":40010,\"candidatesTokenCount\":5,\"totalTokenCount\":40015,\"cachedContentTokenCount\":40000}}")));
+        CachedContentRegistry registry = registry(NOW);
+        
+        CachedContent handle = registry.getOrCreate("doc-1", CachedContentRegistryTest::prefix);
+        String text = client.generateContent(CachedContentRegistry.createTextRequest(handle, "Summarize section 2"))
+                .getGeneratedText();
+        
+        assertEquals("Section 2 covers caching.", text);
+        verify(postRequestedFor(urlPathMatching(".*:generateContent"))
+                .withRequestBody(matchingJsonPath("$.cachedContent", equalTo(NAME))));
+    }
+    
+    private CachedContentRegistry registry(Instant now) {
+        return new CachedContentRegistry(client, Duration.ofHours(1), Duration.ofMinutes(5), Clock.fixed(now, ZoneOffset.UTC));
+    }
+    
+    private static List<GeminiRequest.Content> prefix() {
+        return GeminiRequest.createTextRequest("A long shared document").getContents();
+    }
+    
+    private static String handle(Instant expireTime) {
+        return "{\"name\":\"" + NAME + "\","
+                + "\"model\":\"projects/test-project/locations/test-location/publishers/google/models/gemini-flash\","
+                + "\"createTime\":\"" + NOW + "\",\"updateTime\":\"" + NOW + "\",\"expireTime\":\"" + expireTime + "\","
+                + "\"usageMetadata\":{\"totalTokenCount\":40000}}";
+    }
+}
@@ -0,0 +1,238 @@
+package org.poc.ai.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
+
+/**
+ * Tests for the segment-file backed DiskResponseCache
+ */
+public class DiskResponseCacheTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    public void testResponsesSurviveReopen() throws IOException {
+        String key = ResponseCache.key("google/gemini-flash", GeminiRequest.createTextRequest("Test prompt"));
+        try (DiskResponseCache cache = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            assertNull(cache.get(key));
+            cache.put(key, createMockResponse("persisted"));
+            assertEquals("persisted", cache.get(key).getGeneratedText());
+        }
+        
+        try (DiskResponseCache reopened = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            assertEquals(1, reopened.size());
+            assertEquals("persisted", reopened.get(key).getGeneratedText());
+            assertEquals(1, reopened.getHitCount());
+        }
+    }
+    
+    @Test
+    public void testInstancesSharingADirectorySeeEachOthersWrites() throws IOException {
+        try (DiskResponseCache first = open(Duration.ofMinutes(5), 1024 * 1024);
+             DiskResponseCache second = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            first.put("a", createMockResponse("from first"));
+            second.put("b", createMockResponse("from second"));
+            
+            assertEquals("from first", second.get("a").getGeneratedText());
+            assertEquals("from second", first.get("b").getGeneratedText());
+        }
+    }
+    
+    @Test
+    public void testExpiredRecordsAreMisses() throws Exception {
+        try (DiskResponseCache cache = open(Duration.ofMillis(20), 1024 * 1024)) {
+            cache.put("key", createMockResponse("stale"));
+            Thread.sleep(50);
+            
+            assertNull(cache.get("key"));
+            assertEquals(1, cache.getExpirationCount());
+            
+            // The expired record is dropped from the index and counted as dead once
+            long dead = cache.getDeadBytes();
+            assertTrue(dead > 0);
+            assertEquals(0, cache.size());
+            assertNull(cache.get("key"));
+            assertEquals(dead, cache.getDeadBytes());
+        }
+    }
+    
+    @Test
+    public void testRemovingExpiredRecordsKeepsOthersReachable() throws Exception {
+        try (DiskResponseCache cache = open(Duration.ofMillis(300), 1024 * 1024)) {
+            for (int i = 0; i < 400; i += 2) {
+                cache.put("key-" + i, createMockResponse("old"));
+            }
+            Thread.sleep(350);
+            for (int i = 1; i < 400; i += 2) {
+                cache.put("key-" + i, createMockResponse("new"));
+            }
+            
+            for (int i = 0; i < 400; i += 2) {
+                assertNull(cache.get("key-" + i));
+            }
+            assertEquals(200, cache.size());
+            for (int i = 1; i < 400; i += 2) {
+                assertEquals("new", cache.get("key-" + i).getGeneratedText(), "key-" + i);
+            }
+        }
+    }
+    
+    @Test
+    public void testMaxBytesBeyondOneCompactedSegmentIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DiskResponseCache(directory, Duration.ofMinutes(5),
+                1024 * 1024, Duration.ZERO, 4L * 1024 * 1024 * 1024));
+    }
+    
+    @Test
+    public void testExpiredRecordsTriggerCompaction() throws Exception {
+        try (DiskResponseCache cache = new DiskResponseCache(directory, Duration.ofMillis(50), 2048,
+                Duration.ofMillis(100))) {
+            for (int i = 0; i < 20; i++) {
+                cache.put("key-" + i, createMockResponse("short-lived"));
+            }
+            assertTrue(cache.getSegmentCount() > 1);
+            
+            // Never read again: the compactor's sweep finds them
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getCompactionCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            
+            assertEquals(1, cache.getCompactionCount());
+            assertEquals(0, cache.size());
+            assertEquals(1, cache.getSegmentCount());
+        }
+    }
+    
+    @Test
+    public void testMaxBytesEvictsOldestRecords() throws IOException {
+        long maxBytes = 8 * 1024;
+        try (DiskResponseCache cache = new DiskResponseCache(directory, Duration.ofMinutes(5), 2048,
+                Duration.ZERO, maxBytes)) {
+            for (int i = 0; i < 200; i++) {
+                cache.put("key-" + i, createMockResponse("value " + i));
+            }
+            
+            assertTrue(cache.getEvictionCount() > 0);
+            assertTrue(cache.getCompactionCount() > 0);
+            assertEquals("value 199", cache.get("key-199").getGeneratedText());
+            assertNull(cache.get("key-0"));
+        }
+        long onDisk;
+        try (Stream<Path> files = Files.list(directory)) {
+            onDisk = files.filter(path -> path.toString().endsWith(".dat")).mapToLong(path -> path.toFile().length()).sum();
+        }
+        assertTrue(onDisk <= maxBytes, onDisk + " bytes on disk");
+    }
+    
+    @Test
+    public void testCompactionByAnotherInstanceIsPickedUp() throws IOException {
+        try (DiskResponseCache reader = open(Duration.ofMinutes(5), 2048);
+             DiskResponseCache writer = open(Duration.ofMinutes(5), 2048)) {
+            for (int i = 0; i < 10; i++) {
+                writer.put("key-" + i, createMockResponse("value " + i));
+            }
+            assertEquals("value 3", reader.get("key-3").getGeneratedText());
+            
+            assertNull(reader.get("missing"));
+            writer.compact();
+            writer.put("late", createMockResponse("late"));
+            
+            // The moved generation makes the reader rescan on its next miss
+            assertEquals("late", reader.get("late").getGeneratedText());
+            assertEquals(1, reader.getSegmentCount());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("value " + i, reader.get("key-" + i).getGeneratedText());
+            }
+        }
+    }
+    
+    @Test
+    public void testCompactionKeepsOnlyLatestRecords() throws IOException {
+        try (DiskResponseCache cache = open(Duration.ofMinutes(5), 2048)) {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 10; i++) {
+                    cache.put("key-" + i, createMockResponse("round " + round));
+                }
+            }
+            assertTrue(cache.getSegmentCount() > 1);
+            assertTrue(cache.getDeadBytes() > 0);
+            
+            cache.compact();
+            
+            assertEquals(1, cache.getSegmentCount());
+            assertEquals(0, cache.getDeadBytes());
+            assertEquals(10, cache.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("round 4", cache.get("key-" + i).getGeneratedText());
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".dat")).count());
+        }
+    }
+    
+    @Test
+    public void testTornTailIsIgnoredAndOverwritten() throws IOException {
+        try (DiskResponseCache cache = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            cache.put("complete", createMockResponse("complete"));
+        }
+        
+        // Simulate a writer that crashed halfway through an append
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".dat")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 42, 42, 42}));
+        }
+        
+        try (DiskResponseCache reopened = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            assertEquals(1, reopened.size());
+            reopened.put("after-crash", createMockResponse("after crash"));
+        }
+        try (DiskResponseCache reopened = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            assertEquals("complete", reopened.get("complete").getGeneratedText());
+            assertEquals("after crash", reopened.get("after-crash").getGeneratedText());
+        }
+    }
+    
+    @Test
+    public void testResponseCacheWarmStartsFromDiskTier() throws IOException {
+        String key = ResponseCache.key("google/gemini-flash", GeminiRequest.createTextRequest("Test prompt"));
+        try (DiskResponseCache disk = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(5));
+            cache.setDiskTier(disk);
+            cache.get(key, () -> createMockResponse("loaded once"));
+        }
+        
+        try (DiskResponseCache disk = open(Duration.ofMinutes(5), 1024 * 1024)) {
+            ResponseCache restarted = new ResponseCache(10_000, Duration.ofMinutes(5));
+            restarted.setDiskTier(disk);
+            GeminiResponse response = restarted.get(key, () -> {
+                throw new IOException("should be served from disk");
+            });
+            assertEquals("loaded once", response.getGeneratedText());
+            assertEquals(1, restarted.size());
+        }
+    }
+    
+    private DiskResponseCache open(Duration ttl, long segmentSize) throws IOException {
+        return new DiskResponseCache(directory, ttl, segmentSize, Duration.ZERO);
+    }
+}
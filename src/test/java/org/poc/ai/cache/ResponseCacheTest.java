@@ -0,0 +1,205 @@
+package org.poc.ai.cache;
+
+import com.google.gson.Gson;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
+
+/**
+ * Tests for the in-memory ResponseCache
+ */
+public class ResponseCacheTest {
+    
+    @Test
+    public void testKeyIsStableAndModelSpecific() {
+        GeminiRequest first = deterministicRequest("Test prompt");
+        GeminiRequest second = deterministicRequest("Test prompt");
+        
+        assertEquals(ResponseCache.key("google/gemini-flash", first), ResponseCache.key("google/gemini-flash", second));
+        assertNotEquals(ResponseCache.key("google/gemini-flash", first), ResponseCache.key("google/gemini-pro", first));
+        assertNotEquals(ResponseCache.key("google/gemini-flash", first),
+                ResponseCache.key("google/gemini-flash", deterministicRequest("Other prompt")));
+    }
+    
+    @Test
+    public void testKeyStreamsFileParts(@TempDir Path dir) throws IOException {
+        String text = "x".repeat(8 * 1024 * 1024);
+        Path file = Files.writeString(dir.resolve("prompt.txt"), text);
+        GeminiRequest request = deterministicRequest(null);
+        request.getContents().get(0).setParts(List.of(GeminiRequest.Part.fromFile(file)));
+        ResponseCache.key("google/gemini-flash", request);
+        
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        String key = ResponseCache.key("google/gemini-flash", request);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        
+        // An 8 MB prompt is hashed through a few segments rather than copied onto the heap
+        assertTrue(allocated < 1024 * 1024, allocated + " bytes allocated");
+        assertEquals(ResponseCache.key("google/gemini-flash", deterministicRequest(text)), key);
+    }
+    
+    @Test
+    public void testOnlyZeroTemperatureRequestsAreCacheable() {
+        assertTrue(ResponseCache.isCacheable(deterministicRequest("Test prompt")));
+        assertFalse(ResponseCache.isCacheable(GeminiRequest.createTextRequest("Test prompt")));
+        
+        GeminiRequest sampled = deterministicRequest("Test prompt");
+        sampled.getGenerationConfig().setTemperature(0.7);
+        assertFalse(ResponseCache.isCacheable(sampled));
+    }
+    
+    @Test
+    public void testHitsAvoidLoading() throws IOException {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        
+        for (int i = 0; i < 3; i++) {
+            GeminiResponse response = cache.get("key", () -> {
+                loads.incrementAndGet();
+                return createMockResponse("cached");
+            });
+            assertEquals("cached", response.getGeneratedText());
+        }
+        
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+    
+    @Test
+    public void testEntriesExpireAfterTtl() throws Exception {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMillis(20));
+        cache.put("key", createMockResponse("stale"));
+        
+        assertNotNull(cache.getIfPresent("key"));
+        Thread.sleep(50);
+        assertNull(cache.getIfPresent("key"));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.getWeight());
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        GeminiResponse response = createMockResponse("same size");
+        long weight = new Gson().toJson(response).length();
+        ResponseCache cache = new ResponseCache(weight * 2, Duration.ofMinutes(1));
+        
+        cache.put("a", response);
+        cache.put("b", response);
+        cache.getIfPresent("a");
+        cache.put("c", response);
+        
+        assertNotNull(cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertNotNull(cache.getIfPresent("c"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void testConcurrentIdenticalRequestsShareOneLoad() throws Exception {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        try {
+            List<Future<GeminiResponse>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("key", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return createMockResponse("shared");
+                })));
+            }
+            
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<GeminiResponse> result : results) {
+                assertEquals("shared", result.get(5, TimeUnit.SECONDS).getGeneratedText());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(1, loads.get());
+        assertEquals(7, cache.getDeduplicatedCount() + cache.getHitCount());
+    }
+    
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(1));
+        
+        CompletableFuture<GeminiResponse> failed = cache.getAsync("key",
+                () -> CompletableFuture.failedFuture(new IOException("unavailable")));
+        assertTrue(failed.isCompletedExceptionally());
+        
+        GeminiResponse response = cache.getAsync("key",
+                () -> CompletableFuture.completedFuture(createMockResponse("recovered"))).get();
+        assertEquals("recovered", response.getGeneratedText());
+        assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void testLoaderThrowingDoesNotBlockLaterLoads() throws Exception {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(1));
+        
+        CompletableFuture<GeminiResponse> failed = cache.getAsync("key", () -> {
+            throw new IllegalStateException("no permit");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        
+        GeminiResponse response = cache.getAsync("key",
+                () -> CompletableFuture.completedFuture(createMockResponse("recovered"))).get(5, TimeUnit.SECONDS);
+        assertEquals("recovered", response.getGeneratedText());
+    }
+    
+    @Test
+    public void testCancellingOneWaiterDoesNotFailOthers() throws Exception {
+        ResponseCache cache = new ResponseCache(10_000, Duration.ofMinutes(1));
+        CompletableFuture<GeminiResponse> load = new CompletableFuture<>();
+        
+        CompletableFuture<GeminiResponse> first = cache.getAsync("key", () -> load);
+        CompletableFuture<GeminiResponse> second = cache.getAsync("key", () -> load);
+        first.cancel(true);
+        load.complete(createMockResponse("shared"));
+        
+        assertTrue(first.isCancelled());
+        assertEquals("shared", second.get(5, TimeUnit.SECONDS).getGeneratedText());
+        assertEquals(1, cache.getDeduplicatedCount());
+        assertEquals(1, cache.size());
+    }
+    
+    private GeminiRequest deterministicRequest(String prompt) {
+        GeminiRequest request = GeminiRequest.createTextRequest(prompt);
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.0);
+        request.setGenerationConfig(config);
+        return request;
+    }
+}
@@ -0,0 +1,143 @@
+package org.poc.ai.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the CircuitBreaker state machine
+ */
+public class CircuitBreakerTest {
+    
+    private final List<String> transitions = new ArrayList<>();
+    
+    @Test
+    public void testOpensWhenFailureRateReachesThreshold() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMinutes(1));
+        
+        for (int i = 0; i < 5; i++) {
+            breaker.onResult(breaker.acquirePermission(), 1_000, null);
+        }
+        for (int i = 0; i < 5; i++) {
+            breaker.onResult(breaker.acquirePermission(), 1_000, new VertexAiException(503, "unavailable", null));
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+        
+        // Open circuits reject without calling out
+        assertThrows(CallNotPermittedException.class, breaker::acquirePermission);
+        assertEquals(1, breaker.getNotPermittedCount());
+    }
+    
+    @Test
+    public void testClientErrorsAreNotCountedAsFailures() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMinutes(1));
+        
+        for (int i = 0; i < 20; i++) {
+            breaker.onResult(breaker.acquirePermission(), 1_000, new VertexAiException(400, "bad request", null));
+        }
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    public void testOpensWhenSlowCallRateReachesThreshold() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMinutes(1));
+        long slow = TimeUnit.SECONDS.toNanos(2);
+        
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.acquirePermission(), slow, null);
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    public void testHalfOpenProbesCloseCircuitOnSuccess() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMillis(20));
+        tripOpen(breaker);
+        
+        Thread.sleep(40);
+        
+        // Only the permitted number of probes get through
+        long first = breaker.acquirePermission();
+        long second = breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CallNotPermittedException.class, breaker::acquirePermission);
+        
+        breaker.onResult(first, 1_000, null);
+        breaker.onResult(second, 1_000, null);
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+    
+    @Test
+    public void testHalfOpenProbeFailureReopensCircuit() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMillis(20));
+        tripOpen(breaker);
+        
+        Thread.sleep(40);
+        
+        long first = breaker.acquirePermission();
+        long second = breaker.acquirePermission();
+        breaker.onResult(first, 1_000, new SocketTimeoutException("timeout"));
+        breaker.onResult(second, 1_000, null);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3, breaker.getTransitionCount());
+    }
+    
+    @Test
+    public void testCallSpanningTransitionIsNotCountedAsProbe() throws Exception {
+        CircuitBreaker breaker = createBreaker(Duration.ofMillis(20));
+        // Permitted while closed, still running when the circuit opens and goes half-open
+        long slowFailure = breaker.acquirePermission();
+        long slowRejected = breaker.acquirePermission();
+        tripOpen(breaker);
+        
+        Thread.sleep(40);
+        long probe = breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        
+        // Their outcomes neither count as a probe nor hand back a probe slot
+        breaker.onResult(slowFailure, 1_000, new VertexAiException(503, "unavailable", null));
+        breaker.onResult(slowRejected, 1_000, new VertexAiException(400, "bad request", null));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.acquirePermission();
+        assertThrows(CallNotPermittedException.class, breaker::acquirePermission);
+        
+        breaker.onResult(probe, 1_000, null);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN"), transitions);
+    }
+    
+    private void tripOpen(CircuitBreaker breaker) throws CallNotPermittedException {
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.acquirePermission(), 1_000, new VertexAiException(500, "internal", null));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    private CircuitBreaker createBreaker(Duration waitInOpen) {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setSlidingWindowSize(10);
+        config.setMinimumNumberOfCalls(10);
+        config.setFailureRateThreshold(50.0);
+        config.setSlowCallDurationThreshold(Duration.ofSeconds(1));
+        config.setSlowCallRateThreshold(80.0);
+        config.setWaitDurationInOpenState(waitInOpen);
+        config.setPermittedCallsInHalfOpenState(2);
+        
+        CircuitBreaker breaker = new CircuitBreaker("vertex-ai", config);
+        breaker.addListener((name, from, to) -> transitions.add(from + "->" + to));
+        return breaker;
+    }
+}
@@ -0,0 +1,190 @@
+package org.poc.ai.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.google.gson.Gson;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for multi-region routing using one WireMock server per region
+ */
+public class EndpointSelectorTest {
+    
+    private WireMockServer fastRegion;
+    private WireMockServer slowRegion;
+    private WireMockServer brokenRegion;
+    private VertexAiClient vertexAiClient;
+    private final Gson gson = new Gson();
+    
+    @BeforeEach
+    public void setup() throws IOException {
+        fastRegion = startRegion("us-central1", 0, 200);
+        slowRegion = startRegion("europe-west4", 150, 200);
+        brokenRegion = startRegion("asia-northeast1", 0, 503);
+        
+        GoogleAuthService mockAuthService = mock(GoogleAuthService.class);
+        when(mockAuthService.getAccessToken()).thenReturn("mock-access-token");
+        when(mockAuthService.getAccessTokenAsync()).thenReturn(CompletableFuture.completedFuture("mock-access-token"));
+        
+        vertexAiClient = new VertexAiClient(
+                mockAuthService,
+                new OkHttpClient(),
+                "test-project",
+                "us-central1",
+                "google",
+                "gemini-flash",
+                fastRegion.baseUrl()
+        );
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        fastRegion.stop();
+        slowRegion.stop();
+        brokenRegion.stop();
+    }
+    
+    @Test
+    public void testTrafficPrefersFastRegionAndEjectsBrokenOne() {
+        RegionalEndpoint fast = new RegionalEndpoint("us-central1", fastRegion.baseUrl());
+        RegionalEndpoint slow = new RegionalEndpoint("europe-west4", slowRegion.baseUrl());
+        RegionalEndpoint broken = new RegionalEndpoint("asia-northeast1", brokenRegion.baseUrl());
+        EndpointSelector selector = new EndpointSelector(List.of(fast, slow, broken), 3, 0.5, Duration.ofMinutes(1));
+        vertexAiClient.setEndpointSelector(selector);
+        
+        int failures = 0;
+        for (int i = 0; i < 60; i++) {
+            try {
+                vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+            } catch (IOException e) {
+                failures++;
+            }
+        }
+        
+        // The broken region is ejected after a few failures and gets no more traffic
+        assertTrue(broken.isEjected());
+        assertEquals(1, broken.getEjectionCount());
+        assertTrue(failures <= 3, "failures " + failures);
+        
+        // Most calls land on the region with the lowest weighted latency
+        assertTrue(fast.getRequestCount() > slow.getRequestCount(),
+                "fast " + fast.getRequestCount() + " vs slow " + slow.getRequestCount());
+        assertTrue(slow.getLatencyMillis() > fast.getLatencyMillis());
+        assertEquals(0, fast.getInFlight());
+    }
+    
+    @Test
+    public void testSelectFallsBackWhenAllEndpointsAreEjected() {
+        RegionalEndpoint only = new RegionalEndpoint("asia-northeast1", brokenRegion.baseUrl());
+        EndpointSelector selector = new EndpointSelector(List.of(only), 1, 0.5, Duration.ofMinutes(1));
+        vertexAiClient.setEndpointSelector(selector);
+        
+        assertThrows(VertexAiException.class, () -> vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt")));
+        assertTrue(only.isEjected());
+        
+        // Still routed rather than failing without a request
+        assertSame(only, selector.select());
+    }
+    
+    @Test
+    public void testCachedContentRequestsArePinnedToCacheRegion() throws Exception {
+        RegionalEndpoint fast = new RegionalEndpoint("us-central1", fastRegion.baseUrl());
+        RegionalEndpoint slow = new RegionalEndpoint("europe-west4", slowRegion.baseUrl());
+        vertexAiClient.setEndpointSelector(new EndpointSelector(List.of(fast, slow), 3, 0.5, Duration.ofMinutes(1)));
+        HedgingPolicy hedging = new HedgingPolicy(50.0, Duration.ofMillis(1), Duration.ofMillis(1), 1.0);
+        vertexAiClient.setHedgingPolicy(hedging);
+        
+        for (int i = 0; i < 5; i++) {
+            GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+            request.setCachedContent("projects/test-project/locations/europe-west4/cachedContents/1");
+            assertEquals("Hello from europe-west4", vertexAiClient.generateContent(request).getGeneratedText());
+            assertEquals("Hello from europe-west4", vertexAiClient.generateContentAsync(request).get().getGeneratedText());
+        }
+        
+        // Neither routed to the faster region nor hedged, although the cache's region is slower
+        assertEquals(10, slow.getRequestCount());
+        assertEquals(0, fast.getRequestCount());
+        assertEquals(0, hedging.getHedgeCount());
+        fastRegion.verify(0, postRequestedFor(anyUrl()));
+        
+        // A cache in the configured location goes to the configured endpoint
+        GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+        request.setCachedContent("projects/test-project/locations/us-central1/cachedContents/2");
+        assertEquals("Hello from us-central1", vertexAiClient.generateContent(request).getGeneratedText());
+        assertEquals(0, fast.getRequestCount());
+        fastRegion.verify(1, postRequestedFor(anyUrl()));
+    }
+    
+    @Test
+    public void testSelectorSwappedMidCallStillGetsOutcome() throws Exception {
+        RegionalEndpoint fast = new RegionalEndpoint("us-central1", fastRegion.baseUrl());
+        EndpointSelector selector = new EndpointSelector(List.of(fast)) {
+            @Override
+            public RegionalEndpoint select(RegionalEndpoint exclude) {
+                // Routing is turned off while this call is being routed
+                vertexAiClient.setEndpointSelector(null);
+                return super.select(exclude);
+            }
+        };
+        
+        vertexAiClient.setEndpointSelector(selector);
+        vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        vertexAiClient.setEndpointSelector(selector);
+        vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt")).get();
+        
+        // Both calls went to the selected endpoint and were reported back to the same selector
+        assertEquals(2, fast.getRequestCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fast.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, fast.getInFlight());
+    }
+    
+    @Test
+    public void testFromSpecParsesLocationsAndExplicitUrls() {
+        EndpointSelector selector = EndpointSelector.fromSpec("us-central1, europe-west4=http://localhost:8080");
+        
+        assertEquals(2, selector.getEndpoints().size());
+        assertEquals("https://us-central1-aiplatform.googleapis.com", selector.getEndpoints().get(0).getBaseUrl());
+        assertEquals("europe-west4", selector.getEndpoints().get(1).getLocation());
+        assertEquals("http://localhost:8080", selector.getEndpoints().get(1).getBaseUrl());
+    }
+    
+    private WireMockServer startRegion(String location, int delayMillis, int status) {
+        WireMockServer server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        
+        GeminiResponse response = new GeminiResponse();
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        part.setText("Hello from " + location);
+        content.setParts(List.of(part));
+        candidate.setContent(content);
+        response.setCandidates(List.of(candidate));
+        
+        server.stubFor(post(urlPathMatching(".*/locations/" + location + "/.*:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(status)
+                        .withFixedDelay(delayMillis)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(status == 200 ? gson.toJson(response) : "unavailable")));
+        return server;
+    }
+}
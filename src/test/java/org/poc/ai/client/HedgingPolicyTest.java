@@ -0,0 +1,178 @@
+package org.poc.ai.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.google.gson.Gson;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
+
+/**
+ * Tests for request hedging using a slow primary and a fast secondary WireMock server
+ */
+public class HedgingPolicyTest {
+    
+    private WireMockServer primaryServer;
+    private WireMockServer hedgeServer;
+    private VertexAiClient vertexAiClient;
+    private final Gson gson = new Gson();
+    
+    @BeforeEach
+    public void setup() throws IOException {
+        primaryServer = new WireMockServer(wireMockConfig().dynamicPort());
+        primaryServer.start();
+        hedgeServer = new WireMockServer(wireMockConfig().dynamicPort());
+        hedgeServer.start();
+        
+        GoogleAuthService mockAuthService = mock(GoogleAuthService.class);
+        when(mockAuthService.getAccessToken()).thenReturn("mock-access-token");
+        when(mockAuthService.getAccessTokenAsync()).thenReturn(CompletableFuture.completedFuture("mock-access-token"));
+        
+        vertexAiClient = new VertexAiClient(
+                mockAuthService,
+                new OkHttpClient(),
+                "test-project",
+                "us-central1",
+                "google",
+                "gemini-flash",
+                primaryServer.baseUrl()
+        );
+        
+        primaryServer.stubFor(post(urlPathMatching(".*/locations/us-central1/.*:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(3000)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("slow primary")))));
+        hedgeServer.stubFor(post(urlPathMatching(".*/locations/europe-west4/.*:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("fast hedge")))));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        primaryServer.stop();
+        hedgeServer.stop();
+    }
+    
+    @Test
+    public void testHedgeToSecondRegionWinsOverSlowPrimary() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(95.0, Duration.ofMillis(50), Duration.ofMillis(10), 1.0);
+        policy.setHedgeEndpoint(hedgeServer.baseUrl(), "europe-west4");
+        vertexAiClient.setHedgingPolicy(policy);
+        
+        long start = System.nanoTime();
+        GeminiResponse response = vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals("fast hedge", response.getGeneratedText());
+        assertTrue(elapsedMillis < 2000, "elapsed " + elapsedMillis + "ms");
+        assertEquals(1, policy.getHedgeCount());
+        assertEquals(1, policy.getHedgeWinCount());
+        assertEquals(1, policy.getLatencyHistogram().getCount());
+        
+        primaryServer.verify(1, postRequestedFor(urlPathMatching(".*:generateContent")));
+        hedgeServer.verify(1, postRequestedFor(urlPathMatching(".*:generateContent")));
+    }
+    
+    @Test
+    public void testHedgeBudgetCapsHedgeRatio() throws Exception {
+        // A ratio of zero never earns enough budget for a hedge
+        HedgingPolicy policy = new HedgingPolicy(95.0, Duration.ofMillis(50), Duration.ofMillis(10), 0.0);
+        policy.setHedgeEndpoint(hedgeServer.baseUrl(), "europe-west4");
+        vertexAiClient.setHedgingPolicy(policy);
+        
+        GeminiResponse response = vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"))
+                .get(10, TimeUnit.SECONDS);
+        
+        assertEquals("slow primary", response.getGeneratedText());
+        assertEquals(0, policy.getHedgeCount());
+        assertEquals(1, policy.getBudgetExhaustedCount());
+        hedgeServer.verify(0, postRequestedFor(urlPathMatching(".*:generateContent")));
+    }
+    
+    @Test
+    public void testFastPrimaryIsNotHedged() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(95.0, Duration.ofSeconds(5), Duration.ofMillis(10), 1.0);
+        
+        CompletableFuture<String> result = policy.execute(
+                () -> CompletableFuture.completedFuture("primary"),
+                () -> CompletableFuture.completedFuture("hedge"));
+        
+        assertEquals("primary", result.get());
+        assertEquals(0, policy.getHedgeCount());
+        assertEquals(0.0, policy.getHedgeRatio());
+    }
+    
+    @Test
+    public void testDelayFollowsPrimaryLatency() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(95.0, Duration.ofMillis(1), Duration.ofMillis(1), 1.0);
+        
+        // The primary fails after the hedge was sent and the hedge answers: one delivered
+        // result, but no primary latency to learn from
+        CompletableFuture<String> failingPrimary = new CompletableFuture<>();
+        CompletableFuture<String> slowHedge = new CompletableFuture<>();
+        CompletableFuture<String> result = policy.execute(() -> failingPrimary, () -> slowHedge);
+        awaitHedges(policy, 1);
+        failingPrimary.completeExceptionally(new IOException("reset"));
+        slowHedge.complete("hedge");
+        
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, policy.getLatencyHistogram().getCount());
+        assertEquals(0, policy.getPrimaryLatencyHistogram().getCount());
+        
+        // A primary cut short by a winning hedge counts with the time it had run
+        CompletableFuture<String> stuckPrimary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        result = policy.execute(() -> stuckPrimary, () -> hedge);
+        awaitHedges(policy, 2);
+        Thread.sleep(50);
+        hedge.complete("hedge");
+        
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertTrue(stuckPrimary.isCancelled());
+        assertEquals(1, policy.getPrimaryLatencyHistogram().getCount());
+        assertTrue(policy.getPrimaryLatencyHistogram().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(50));
+        
+        // Once enough primaries completed, their percentile sets the delay
+        for (int i = 0; i < 25; i++) {
+            policy.execute(() -> CompletableFuture.supplyAsync(() -> {
+                sleep(30);
+                return "primary";
+            }), () -> new CompletableFuture<>()).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(policy.getCurrentDelayMillis() >= 30, "delay " + policy.getCurrentDelayMillis() + "ms");
+    }
+    
+    private static void awaitHedges(HedgingPolicy policy, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (policy.getHedgeCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, policy.getHedgeCount());
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.poc.ai.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ModelRateLimiter token bucket and adaptive concurrency limit
+ */
+public class ModelRateLimiterTest {
+    
+    private static final String MODEL = "google/gemini-flash";
+    
+    @Test
+    public void testTokenBucketAllowsBurstThenPaces() throws Exception {
+        RateLimitConfig config = config(20.0, 2, 100);
+        ModelRateLimiter limiter = new ModelRateLimiter(config);
+        
+        long start = System.nanoTime();
+        List<CompletableFuture<ModelRateLimiter.Permit>> permits = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            permits.add(limiter.acquire(MODEL));
+        }
+        
+        // The burst is granted immediately, the rest wait without blocking this thread
+        assertTrue(permits.get(0).isDone());
+        assertTrue(permits.get(1).isDone());
+        assertFalse(permits.get(5).isDone());
+        
+        for (CompletableFuture<ModelRateLimiter.Permit> permit : permits) {
+            permit.get(5, TimeUnit.SECONDS).onSuccess();
+        }
+        
+        // Four paced permits at 20/s take at least 200ms
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 190, "elapsed " + elapsedMillis + "ms");
+    }
+    
+    @Test
+    public void testConcurrencyLimitQueuesExcessRequests() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(1000.0, 100, 2));
+        
+        ModelRateLimiter.Permit first = limiter.acquire(MODEL).get();
+        limiter.acquire(MODEL).get();
+        CompletableFuture<ModelRateLimiter.Permit> third = limiter.acquire(MODEL);
+        
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.getQueued(MODEL));
+        
+        // Releasing a slot hands it to the waiting request
+        first.onIgnore();
+        assertTrue(third.isDone());
+        assertEquals(2, limiter.getInFlight(MODEL));
+    }
+    
+    @Test
+    public void testCancelledWaiterDoesNotLeakSlot() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(1000.0, 100, 1));
+        
+        ModelRateLimiter.Permit first = limiter.acquire(MODEL).get();
+        CompletableFuture<ModelRateLimiter.Permit> abandoned = limiter.acquire(MODEL);
+        CompletableFuture<ModelRateLimiter.Permit> waiting = limiter.acquire(MODEL);
+        abandoned.cancel(false);
+        
+        // The slot skips the cancelled waiter and goes to the next one
+        first.onIgnore();
+        assertTrue(waiting.isDone());
+        assertEquals(1, limiter.getInFlight(MODEL));
+        
+        waiting.get().onIgnore();
+        assertEquals(0, limiter.getInFlight(MODEL));
+        assertEquals(0, limiter.getQueued(MODEL));
+    }
+    
+    @Test
+    public void testCancelledPacedPermitDoesNotLeakSlot() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(20.0, 1, 1));
+        
+        limiter.acquire(MODEL).get().onIgnore();
+        // Waits for the next token, then cancelled before it arrives
+        limiter.acquire(MODEL).cancel(false);
+        Thread.sleep(100);
+        
+        assertEquals(0, limiter.getInFlight(MODEL));
+        assertEquals(0, limiter.getQueued(MODEL));
+    }
+    
+    @Test
+    public void testCancelledPacedPermitsReturnTheirTokens() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(2.0, 1, 100));
+        
+        limiter.acquire(MODEL).get().onIgnore();
+        // A burst of callers queue for tokens half a second apart, then all give up
+        List<CompletableFuture<ModelRateLimiter.Permit>> abandoned = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            abandoned.add(limiter.acquire(MODEL));
+        }
+        abandoned.forEach(permit -> permit.cancel(false));
+        
+        // The next caller waits for the next token, not behind the abandoned ones
+        limiter.acquire(MODEL).get(1, TimeUnit.SECONDS).onIgnore();
+    }
+    
+    @Test
+    public void testLimitShrinksOnThrottlingAndRecovers() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(1000.0, 1000, 16));
+        
+        limiter.acquire(MODEL).get().onThrottled();
+        assertEquals(12, limiter.getConcurrencyLimit(MODEL));
+        limiter.acquire(MODEL).get().onThrottled();
+        assertEquals(9, limiter.getConcurrencyLimit(MODEL));
+        assertEquals(2, limiter.getThrottledCount(MODEL));
+        
+        // Healthy calls grow the limit back additively
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(MODEL).get().onSuccess();
+        }
+        assertTrue(limiter.getConcurrencyLimit(MODEL) > 9);
+    }
+    
+    @Test
+    public void testModelsAreLimitedIndependently() throws Exception {
+        ModelRateLimiter limiter = new ModelRateLimiter(config(1000.0, 100, 1));
+        
+        limiter.acquire("google/gemini-flash").get();
+        CompletableFuture<ModelRateLimiter.Permit> otherModel = limiter.acquire("google/gemini-pro");
+        
+        assertTrue(otherModel.isDone());
+    }
+    
+    private RateLimitConfig config(double permitsPerSecond, int burst, int concurrency) {
+        RateLimitConfig config = new RateLimitConfig();
+        config.setPermitsPerSecond(permitsPerSecond);
+        config.setBurst(burst);
+        config.setInitialConcurrency(concurrency);
+        return config;
+    }
+}
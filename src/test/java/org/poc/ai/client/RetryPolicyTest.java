@@ -0,0 +1,70 @@
+package org.poc.ai.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the RetryPolicy backoff computation
+ */
+public class RetryPolicyTest {
+    
+    @Test
+    public void testOnlyTransientFailuresAreRetryable() {
+        RetryPolicy policy = RetryPolicy.defaultPolicy();
+        
+        assertTrue(policy.isRetryable(new VertexAiException(429, "quota", null)));
+        assertTrue(policy.isRetryable(new VertexAiException(503, "unavailable", null)));
+        assertTrue(policy.isRetryable(new ConnectException("refused")));
+        assertTrue(policy.isRetryable(new SocketTimeoutException("connect timed out")));
+        assertTrue(policy.isRetryable(new RequestNotSentException(new IOException("unexpected end of stream"))));
+        assertFalse(policy.isRetryable(new SocketTimeoutException("timeout")));
+        assertFalse(policy.isRetryable(new IOException("Error getting access token: invalid_grant")));
+        assertFalse(policy.isRetryable(new VertexAiException(400, "bad request", null)));
+        assertFalse(policy.isRetryable(new VertexAiException(403, "forbidden", null)));
+        assertFalse(policy.isRetryable(new IllegalStateException("bug")));
+    }
+    
+    @Test
+    public void testFullJitterStaysWithinExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofMillis(1000));
+        IOException error = new VertexAiException(503, "unavailable", null);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.nextDelayMillis(1, error) <= 100);
+            assertTrue(policy.nextDelayMillis(3, error) <= 400);
+            long capped = policy.nextDelayMillis(8, error);
+            assertTrue(capped >= 0 && capped <= 1000);
+        }
+    }
+    
+    @Test
+    public void testRetryAfterIsHonored() {
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofSeconds(5));
+        
+        long delay = policy.nextDelayMillis(1, new VertexAiException(429, "quota", Duration.ofSeconds(2)));
+        assertEquals(2000, delay);
+        assertEquals(2000, policy.getTotalBackoffMillis());
+        
+        // A Retry-After beyond the maximum delay gives up instead of waiting
+        assertEquals(-1, policy.nextDelayMillis(1, new VertexAiException(429, "quota", Duration.ofMinutes(5))));
+    }
+    
+    @Test
+    public void testAttemptsAreBounded() {
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(1));
+        IOException error = new VertexAiException(500, "internal", null);
+        
+        assertTrue(policy.nextDelayMillis(1, error) >= 0);
+        assertTrue(policy.nextDelayMillis(2, error) >= 0);
+        assertEquals(-1, policy.nextDelayMillis(3, error));
+        
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getExhaustedCount());
+    }
+}
@@ -0,0 +1,151 @@
+package org.poc.ai.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.gson.Gson;
+import okhttp3.Protocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.config.HttpTransportConfig;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the VertexAiClientFactory shared transport
+ */
+public class VertexAiClientFactoryTest {
+    
+    private WireMockServer wireMockServer;
+    private GoogleAuthService mockAuthService;
+    private VertexAiClientFactory factory;
+    private final Gson gson = new Gson();
+    
+    @BeforeEach
+    public void setup() throws IOException {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        WireMock.configureFor("localhost", wireMockServer.port());
+        
+        mockAuthService = mock(GoogleAuthService.class);
+        when(mockAuthService.getAccessToken()).thenReturn("mock-access-token");
+        
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setMaxIdleConnections(4);
+        factory = new VertexAiClientFactory(config);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        factory.shutdown();
+        wireMockServer.stop();
+    }
+    
+    @Test
+    public void testClientsShareOneConnection() throws IOException {
+        stubGenerateContent("flash", "Flash response");
+        stubGenerateContent("pro", "Pro response");
+        
+        // Two clients for different models created from the same factory
+        VertexAiClient flashClient = createClient("flash");
+        VertexAiClient proClient = createClient("pro");
+        
+        assertEquals("Flash response", flashClient.generateContent(GeminiRequest.createTextRequest("Hi")).getGeneratedText());
+        assertEquals("Pro response", proClient.generateContent(GeminiRequest.createTextRequest("Hi")).getGeneratedText());
+        assertEquals("Flash response", flashClient.generateContent(GeminiRequest.createTextRequest("Hi")).getGeneratedText());
+        
+        // Only the first call opened a connection, the others reused it
+        ConnectionPoolStats stats = factory.getPoolStats();
+        assertEquals(3, stats.getConnectionsAcquired());
+        assertEquals(1, stats.getConnectionsCreated());
+        assertEquals(1, stats.getIdleConnections());
+        assertEquals(0, stats.getActiveConnections());
+        assertEquals(2.0 / 3.0, stats.getReuseRate(), 0.0001);
+    }
+    
+    @Test
+    public void testVirtualThreadsUseHttp1() {
+        HttpTransportConfig config = new HttpTransportConfig();
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), new VertexAiClientFactory(config).getHttpClient().protocols());
+        
+        // HTTP/2 stream reads would pin the carrier threads
+        config.setVirtualThreads(true);
+        assertEquals(List.of(Protocol.HTTP_1_1), new VertexAiClientFactory(config).getHttpClient().protocols());
+    }
+    
+    @Test
+    public void testPrewarmOpensConnectionBeforeFirstCall() throws Exception {
+        stubGenerateContent("flash", "Flash response");
+        
+        factory.prewarm(wireMockServer.baseUrl(), 1).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1, factory.getPoolStats().getConnectionsCreated());
+        assertEquals(1, factory.getPoolStats().getIdleConnections());
+        
+        // The first real call reuses the warmed connection
+        createClient("flash").generateContent(GeminiRequest.createTextRequest("Hi"));
+        assertEquals(1, factory.getPoolStats().getConnectionsCreated());
+    }
+    
+    @Test
+    public void testPrewarmOpensOneConnectionUnderHttp2() throws Exception {
+        WireMockServer httpsServer = new WireMockServer(wireMockConfig().dynamicPort().dynamicHttpsPort());
+        httpsServer.start();
+        try {
+            // The test certificate is not trusted, but the connection attempt is what counts
+            factory.prewarm("https://127.0.0.1:" + httpsServer.httpsPort(), 4).get(5, TimeUnit.SECONDS);
+            
+            assertEquals(1, factory.getPoolStats().getConnectionsCreated());
+        } finally {
+            httpsServer.stop();
+        }
+    }
+    
+    @Test
+    public void testPrewarmOpensEveryConnectionUnderHttp1() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setPreferHttp2(false);
+        VertexAiClientFactory http1Factory = new VertexAiClientFactory(config);
+        try {
+            stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200).withFixedDelay(200)));
+            
+            http1Factory.prewarm(wireMockServer.baseUrl(), 3).get(5, TimeUnit.SECONDS);
+            
+            assertEquals(3, http1Factory.getPoolStats().getConnectionsCreated());
+        } finally {
+            http1Factory.shutdown();
+        }
+    }
+    
+    private VertexAiClient createClient(String modelId) {
+        return factory.createClient(mockAuthService, "test-project", "test-location", "google",
+                modelId, wireMockServer.baseUrl());
+    }
+    
+    private void stubGenerateContent(String modelId, String text) {
+        GeminiResponse response = new GeminiResponse();
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        part.setText(text);
+        content.setParts(List.of(part));
+        candidate.setContent(content);
+        response.setCandidates(List.of(candidate));
+        
+        stubFor(post(urlPathMatching(".*/models/" + modelId + ":generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(response))));
+    }
+}
@@ -2,21 +2,40 @@ package org.poc.ai.client;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.google.gson.Gson;
+import okhttp3.Call;
+import okhttp3.EventListener;
 import okhttp3.OkHttpClient;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.poc.ai.auth.GoogleAuthService;
+import org.poc.ai.cache.ResponseCache;
+import org.poc.ai.metrics.InMemoryMetricsRegistry;
+import org.poc.ai.metrics.TokenUsage;
 import org.poc.ai.model.GeminiRequest;
 import org.poc.ai.model.GeminiResponse;
+import org.poc.ai.model.LazyGeminiResponse;
+import org.poc.ai.model.PromptTemplate;
 
 import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
 
 /**
  * Tests for the VertexAiClient using WireMock to mock external services
@@ -38,6 +57,7 @@ public class VertexAiClientTest {
         // Create mock auth service
         mockAuthService = mock(GoogleAuthService.class);
         when(mockAuthService.getAccessToken()).thenReturn("mock-access-token");
+        when(mockAuthService.getAccessTokenAsync()).thenReturn(CompletableFuture.completedFuture("mock-access-token"));
         
         // Create client with mocked dependencies
         vertexAiClient = new VertexAiClient(
@@ -90,6 +110,48 @@ public class VertexAiClientTest {
                 .withHeader("Content-Type", containing("application/json")));
     }
     
+    @Test
+    public void testGenerateContent_CompressesRequestBody() throws IOException {
+        stubFor(post(urlPathMatching(".*:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Compressed")))));
+        vertexAiClient.setRequestCompression(true);
+        
+        GeminiResponse response = vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        
+        assertEquals("Compressed", response.getGeneratedText());
+        // WireMock gunzips the body before matching
+        verify(postRequestedFor(urlPathMatching(".*:generateContent"))
+                .withHeader("Content-Encoding", equalTo("gzip"))
+                .withRequestBody(equalToJson(gson.toJson(GeminiRequest.createTextRequest("Test prompt")))));
+    }
+    
+    @Test
+    public void testGenerateContent_LazyResponseParsing() throws IOException {
+        GeminiResponse mockResponse = createMockResponse("Parsed on demand");
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setPromptTokenCount(3);
+        usage.setCandidatesTokenCount(7);
+        usage.setTotalTokenCount(10);
+        mockResponse.setUsageMetadata(usage);
+        stubFor(post(urlPathMatching(".*:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(mockResponse))));
+        vertexAiClient.setLazyResponseParsing(true);
+        
+        GeminiResponse response = vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        
+        LazyGeminiResponse lazy = assertInstanceOf(LazyGeminiResponse.class, response);
+        assertEquals("Parsed on demand", lazy.getGeneratedText());
+        // Token usage was tracked from a scan, without parsing the candidates
+        assertFalse(lazy.isParsed());
+        assertEquals(7, vertexAiClient.getTokenUsageTracker().getUsage(vertexAiClient.getModelKey()).getCandidatesTokens());
+    }
+    
     @Test
     public void testGenerateContent_ApiError() throws IOException {
         // Setup WireMock stub for error response
@@ -115,24 +177,577 @@ public class VertexAiClientTest {
         verify(mockAuthService, times(1)).getAccessToken();
     }
     
-    /**
-     * Helper method to create a mock GeminiResponse
-     */
-    private GeminiResponse createMockResponse(String text) {
-        GeminiResponse response = new GeminiResponse();
+    @Test
+    public void testGenerateContentAsync_Success() throws Exception {
+        stubFor(post(urlPathMatching("/v1/projects/test-project/locations/test-location/publishers/google/models/gemini-flash:generateContent"))
+                .withHeader("Authorization", equalTo("Bearer mock-access-token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Async response")))));
+        
+        // Fire several calls before waiting on any of them
+        List<CompletableFuture<GeminiResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt " + i)));
+        }
+        
+        for (CompletableFuture<GeminiResponse> future : futures) {
+            assertEquals("Async response", future.get(5, TimeUnit.SECONDS).getGeneratedText());
+        }
+        
+        // The async path never asks for a blocking token
+        verify(mockAuthService, never()).getAccessToken();
+        verify(10, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContentAsync_ApiError() {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(400)
+                        .withBody("{\"error\": {\"code\": 400, \"message\": \"Invalid request\"}}")));
+        
+        CompletableFuture<GeminiResponse> future = vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IOException);
+        assertTrue(exception.getCause().getMessage().contains("Invalid request"));
+    }
+    
+    @Test
+    public void testGenerateContentAsync_CancelAbortsCall() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(5000)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Too late")))));
+        CompletableFuture<Void> canceled = new CompletableFuture<>();
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .eventListener(new EventListener() {
+                    @Override
+                    public void canceled(Call call) {
+                        canceled.complete(null);
+                    }
+                })
+                .build();
+        VertexAiClient client = new VertexAiClient(mockAuthService, httpClient, "test-project", "test-location",
+                "google", "gemini-flash", wireMockServer.baseUrl());
+        
+        CompletableFuture<GeminiResponse> future = client.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (findAll(postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent"))).isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        future.cancel(true);
+        
+        // The OkHttp call is cancelled well before the delayed response would arrive
+        canceled.get(1, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    public void testGenerateContentAsync_CancelStopsPendingRetry() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(503).withHeader("Retry-After", "1").withBody("unavailable")));
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofSeconds(2));
+        vertexAiClient.setRetryPolicy(policy);
+        
+        CompletableFuture<GeminiResponse> future = vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (policy.getRetryCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        future.cancel(true);
+        Thread.sleep(1300);
+        
+        verify(1, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContent_RetriesThrottlingAndServerErrors() throws IOException {
+        String url = "/v1/projects/test-project/locations/test-location/publishers/google/models/gemini-flash:generateContent";
+        
+        // 429 with Retry-After, then 503, then success
+        stubFor(post(urlPathEqualTo(url)).inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0").withBody("quota exceeded"))
+                .willSetStateTo("throttled"));
+        stubFor(post(urlPathEqualTo(url)).inScenario("retry")
+                .whenScenarioStateIs("throttled")
+                .willReturn(aResponse().withStatus(503).withBody("unavailable"))
+                .willSetStateTo("recovered"));
+        stubFor(post(urlPathEqualTo(url)).inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Third time lucky")))));
+        
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        vertexAiClient.setRetryPolicy(policy);
+        
+        GeminiResponse response = vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        
+        assertEquals("Third time lucky", response.getGeneratedText());
+        verify(3, postRequestedFor(urlPathEqualTo(url)));
+        assertEquals(2, policy.getRetryCount());
+    }
+    
+    @Test
+    public void testGenerateContentAsync_RetriesUntilExhausted() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(503).withBody("unavailable")));
+        
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        vertexAiClient.setRetryPolicy(policy);
+        
+        CompletableFuture<GeminiResponse> future = vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals(503, ((VertexAiException) exception.getCause()).getStatusCode());
+        verify(3, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+        assertEquals(1, policy.getExhaustedCount());
+    }
+    
+    @Test
+    public void testGenerateContent_DoesNotRetryClientErrors() {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(400).withBody("bad request")));
+        
+        vertexAiClient.setRetryPolicy(new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100)));
+        
+        assertThrows(VertexAiException.class, () -> vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt")));
+        verify(1, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContent_DoesNotRetryReadTimeoutAfterRequestWasSent() {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(1000).withBody("{}")));
+        VertexAiClient client = new VertexAiClient(mockAuthService,
+                new OkHttpClient.Builder().readTimeout(Duration.ofMillis(200)).build(),
+                "test-project", "test-location", "google", "gemini-flash", wireMockServer.baseUrl());
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        client.setRetryPolicy(policy);
+        
+        // The server may already be generating, so sending it again could double the cost
+        assertThrows(SocketTimeoutException.class, () -> client.generateContent(GeminiRequest.createTextRequest("Test prompt")));
+        verify(1, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+        assertEquals(0, policy.getRetryCount());
+    }
+    
+    @Test
+    public void testGenerateContent_DoesNotRetryAuthFailure() throws IOException {
+        when(mockAuthService.getAccessToken()).thenThrow(new IOException("Error getting access token: invalid_grant"));
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        vertexAiClient.setRetryPolicy(policy);
+        
+        assertThrows(IOException.class, () -> vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt")));
+        verify(mockAuthService, times(1)).getAccessToken();
+        verify(0, postRequestedFor(anyUrl()));
+        assertEquals(0, policy.getRetryCount());
+    }
+    
+    @Test
+    public void testGenerateContentAsync_RetriesConnectFailure() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        VertexAiClient client = new VertexAiClient(mockAuthService, new OkHttpClient(),
+                "test-project", "test-location", "google", "gemini-flash", "http://localhost:" + closedPort);
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        client.setRetryPolicy(policy);
+        
+        CompletableFuture<GeminiResponse> future = client.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RequestNotSentException.class, exception.getCause());
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getExhaustedCount());
+    }
+    
+    @Test
+    public void testGenerateContent_ThrottlingShrinksConcurrencyLimit() {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(429).withBody("quota exceeded")));
+        
+        RateLimitConfig config = new RateLimitConfig();
+        config.setInitialConcurrency(8);
+        ModelRateLimiter limiter = new ModelRateLimiter(config);
+        vertexAiClient.setRateLimiter(limiter);
+        
+        assertThrows(VertexAiException.class, () -> vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt")));
+        
+        assertEquals(6, limiter.getConcurrencyLimit("google/gemini-flash"));
+        assertEquals(1, limiter.getThrottledCount("google/gemini-flash"));
+        assertEquals(0, limiter.getInFlight("google/gemini-flash"));
+    }
+    
+    @Test
+    public void testGenerateContent_AbandonedWaitReleasesSlot() throws Exception {
+        String modelKey = "google/gemini-flash";
+        RateLimitConfig config = new RateLimitConfig();
+        config.setInitialConcurrency(1);
+        ModelRateLimiter limiter = new ModelRateLimiter(config);
+        vertexAiClient.setRateLimiter(limiter);
+        ModelRateLimiter.Permit held = limiter.acquire(modelKey).get();
+        
+        // A blocking caller is interrupted and an async caller cancels while both wait for the slot
+        Thread blocked = new Thread(() -> assertThrows(IOException.class,
+                () -> vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"))));
+        blocked.start();
+        CompletableFuture<GeminiResponse> cancelled = vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.getQueued(modelKey) < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        blocked.interrupt();
+        blocked.join(5000);
+        cancelled.cancel(false);
+        
+        held.onIgnore();
+        assertEquals(0, limiter.getInFlight(modelKey));
+        assertEquals(0, limiter.getQueued(modelKey));
+        verify(0, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContent_OpenCircuitFailsFast() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(503).withBody("unavailable")));
+        
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setSlidingWindowSize(4);
+        config.setMinimumNumberOfCalls(4);
+        CircuitBreaker breaker = new CircuitBreaker("vertex-ai", config);
+        vertexAiClient.setCircuitBreaker(breaker);
+        
+        GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+        for (int i = 0; i < 4; i++) {
+            assertThrows(VertexAiException.class, () -> vertexAiClient.generateContent(request));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        
+        // Further calls, sync or async, never reach the server
+        assertThrows(CallNotPermittedException.class, () -> vertexAiClient.generateContent(request));
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> vertexAiClient.generateContentAsync(request).get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof CallNotPermittedException);
+        verify(4, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContentAsync_CancelWhileQueuedReturnsProbe() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse().withStatus(503).withBody("unavailable")));
+        
+        CircuitBreakerConfig breakerConfig = new CircuitBreakerConfig();
+        breakerConfig.setSlidingWindowSize(4);
+        breakerConfig.setMinimumNumberOfCalls(4);
+        breakerConfig.setWaitDurationInOpenState(Duration.ofMillis(20));
+        breakerConfig.setPermittedCallsInHalfOpenState(1);
+        CircuitBreaker breaker = new CircuitBreaker("vertex-ai", breakerConfig);
+        vertexAiClient.setCircuitBreaker(breaker);
+        
+        GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+        for (int i = 0; i < 4; i++) {
+            assertThrows(VertexAiException.class, () -> vertexAiClient.generateContent(request));
+        }
+        Thread.sleep(40);
+        
+        String modelKey = "google/gemini-flash";
+        RateLimitConfig limitConfig = new RateLimitConfig();
+        limitConfig.setInitialConcurrency(1);
+        ModelRateLimiter limiter = new ModelRateLimiter(limitConfig);
+        vertexAiClient.setRateLimiter(limiter);
+        ModelRateLimiter.Permit held = limiter.acquire(modelKey).get();
+        
+        // The only probe is taken by a call that is cancelled while it waits for a slot
+        CompletableFuture<GeminiResponse> cancelled = vertexAiClient.generateContentAsync(request);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        cancelled.cancel(false);
+        held.onIgnore();
+        
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Recovered")))));
+        GeminiResponse response = vertexAiClient.generateContent(request);
+        
+        assertEquals("Recovered", response.getGeneratedText());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    public void testGenerateContent_DeterministicRequestsAreServedFromCache() throws IOException {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Cached answer")))));
+        vertexAiClient.setResponseCache(new ResponseCache(1_000_000, Duration.ofMinutes(5)));
+        
+        GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.0);
+        request.setGenerationConfig(config);
+        
+        assertEquals("Cached answer", vertexAiClient.generateContent(request).getGeneratedText());
+        assertEquals("Cached answer", vertexAiClient.generateContent(request).getGeneratedText());
+        
+        // Sampling requests bypass the cache
+        vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        
+        verify(2, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+        assertEquals(1, vertexAiClient.getResponseCache().getHitCount());
+        
+        InMemoryMetricsRegistry metrics = (InMemoryMetricsRegistry) vertexAiClient.getMetricsRegistry();
+        assertEquals(1, metrics.findCounter("vertex.client.cache", "model", "google/gemini-flash", "result", "hit").getCount());
+        assertEquals(1, metrics.findCounter("vertex.client.cache", "model", "google/gemini-flash", "result", "miss").getCount());
+    }
+    
+    @Test
+    public void testGenerateContent_PromptTemplateSendsSplicedBodyAndSharesCache() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Templated answer")))));
+        vertexAiClient.setResponseCache(new ResponseCache(1_000_000, Duration.ofMinutes(5)));
+        GeminiRequest prototype = GeminiRequest.createTextRequest("Question: " + PromptTemplate.DEFAULT_SLOT);
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.0);
+        prototype.setGenerationConfig(config);
+        PromptTemplate template = PromptTemplate.compile(prototype);
+        
+        assertEquals("Templated answer", vertexAiClient.generateContent(template, "What is \"AI\"?").getGeneratedText());
+        assertEquals("Templated answer", vertexAiClient.generateContentAsync(template, "What is \"AI\"?")
+                .get(5, TimeUnit.SECONDS).getGeneratedText());
+        
+        // Same body as the equivalent hand-built request, so both share one cache entry
+        GeminiRequest equivalent = GeminiRequest.createTextRequest("Question: What is \"AI\"?");
+        equivalent.setGenerationConfig(config);
+        vertexAiClient.generateContent(equivalent);
+        
+        verify(1, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent"))
+                .withRequestBody(equalToJson(gson.toJson(equivalent))));
+        assertEquals(2, vertexAiClient.getResponseCache().getHitCount());
+    }
+    
+    @Test
+    public void testGenerateContent_RecordsStageMetrics() throws IOException {
+        String url = "/v1/projects/test-project/locations/test-location/publishers/google/models/gemini-flash:generateContent";
+        stubFor(post(urlPathEqualTo(url)).inScenario("metrics")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(503).withBody("unavailable"))
+                .willSetStateTo("recovered"));
+        stubFor(post(urlPathEqualTo(url)).inScenario("metrics")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Measured")))));
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        vertexAiClient.setMetricsRegistry(metrics);
+        vertexAiClient.setRetryPolicy(new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10)));
+        
+        vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        
+        String model = "google/gemini-flash";
+        assertEquals(1, metrics.findTimer("vertex.client.calls", "model", model, "status", "503").getCount());
+        assertEquals(1, metrics.findTimer("vertex.client.calls", "status", "200", "model", model).getCount());
+        assertEquals(1, metrics.findCounter("vertex.client.retries", "model", model).getCount());
+        assertEquals(2, metrics.findTimer("vertex.client.auth.token", "model", model).getCount());
+        assertEquals(2, metrics.findTimer("vertex.client.request.serialize", "model", model).getCount());
+        assertEquals(2, metrics.findTimer("vertex.client.http.upload", "model", model).getCount());
+        assertEquals(2, metrics.findTimer("vertex.client.http.ttfb", "model", model).getCount());
+        assertEquals(1, metrics.findTimer("vertex.client.http.connect", "model", model).getCount());
+        assertEquals(1, metrics.findTimer("vertex.client.response.parse", "model", model).getCount());
+        assertTrue(metrics.findTimer("vertex.client.http.body", "model", model).getCount() >= 1);
+    }
+    
+    @Test
+    public void testGenerateContent_SerializeTimerExcludesCompressionAndUpload() throws IOException {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Measured")))));
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        vertexAiClient.setMetricsRegistry(metrics);
+        vertexAiClient.setRequestCompression(true);
+        // Random letters barely compress, so gzip does most of the work while the body is written
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 4_000_000; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        GeminiRequest request = GeminiRequest.createTextRequest(text.toString());
+        
+        for (int i = 0; i < 3; i++) {
+            vertexAiClient.generateContent(request);
+        }
+        
+        String model = "google/gemini-flash";
+        long serialize = metrics.findTimer("vertex.client.request.serialize", "model", model).getTotalNanos();
+        long upload = metrics.findTimer("vertex.client.http.upload", "model", model).getTotalNanos();
+        assertEquals(3, metrics.findTimer("vertex.client.http.upload", "model", model).getCount());
+        assertTrue(serialize < upload * 3 / 4, "serialize " + serialize / 1_000_000 + "ms, upload " + upload / 1_000_000 + "ms");
+    }
+    
+    @Test
+    public void testGenerateContent_TracksTokenUsage() throws Exception {
+        GeminiResponse mockResponse = createMockResponse("Counted");
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setPromptTokenCount(12);
+        usage.setCandidatesTokenCount(3);
+        usage.setTotalTokenCount(15);
+        mockResponse.setUsageMetadata(usage);
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(mockResponse))));
+        
+        GeminiResponse response = vertexAiClient.generateContent(GeminiRequest.createTextRequest("Test prompt"));
+        vertexAiClient.generateContentAsync(GeminiRequest.createTextRequest("Test prompt")).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(15, response.getUsageMetadata().getTotalTokenCount());
+        TokenUsage tracked = vertexAiClient.getTokenUsageTracker().getUsage("google/gemini-flash");
+        assertEquals(2, tracked.getCalls());
+        assertEquals(24, tracked.getPromptTokens());
+        assertEquals(6, tracked.getCandidatesTokens());
+        assertTrue(tracked.getTokensPerSecond() > 0);
+        InMemoryMetricsRegistry metrics = (InMemoryMetricsRegistry) vertexAiClient.getMetricsRegistry();
+        assertEquals(6, metrics.findCounter("vertex.client.tokens", "model", "google/gemini-flash", "type", "candidates").getCount());
+    }
+    
+    @Test
+    public void testGenerateContentAll_RunsBoundedCallsOnVirtualThreads() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(50)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("Fanned out")))));
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .withRequestBody(containing("Bad prompt"))
+                .willReturn(aResponse().withStatus(400).withBody("bad request")));
+        AtomicBoolean platformThreadUsed = new AtomicBoolean();
+        when(mockAuthService.getAccessToken()).thenAnswer(invocation -> {
+            if (!Thread.currentThread().isVirtual()) {
+                platformThreadUsed.set(true);
+            }
+            return "mock-access-token";
+        });
+        
+        List<GeminiRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            requests.add(GeminiRequest.createTextRequest(i == 5 ? "Bad prompt" : "Prompt " + i));
+        }
+        long start = System.nanoTime();
+        List<CompletableFuture<GeminiResponse>> results = vertexAiClient.generateContentAll(requests, 4);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals(12, results.size());
+        assertTrue(results.stream().allMatch(CompletableFuture::isDone));
+        assertEquals("Fanned out", results.get(0).get().getGeneratedText());
+        assertTrue(results.get(5).isCompletedExceptionally());
+        assertFalse(platformThreadUsed.get());
+        // Eleven slow calls, at most four at a time
+        assertTrue(elapsedMillis >= 150, "Finished after only " + elapsedMillis + " ms");
+        verify(12, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+    }
+    
+    @Test
+    public void testGenerateContentAll_CompletesFutureWhenCallThrowsError() throws Exception {
+        when(mockAuthService.getAccessToken()).thenThrow(new AssertionError("broken credentials"));
+        
+        List<CompletableFuture<GeminiResponse>> results = vertexAiClient.generateContentAll(
+                List.of(GeminiRequest.createTextRequest("Hello")), 1);
+        
+        assertTrue(results.get(0).isCompletedExceptionally());
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> results.get(0).get());
+        assertInstanceOf(AssertionError.class, thrown.getCause());
+    }
+    
+    @Test
+    public void testStreamGenerateContent_DeliversCandidatesIncrementally() throws IOException {
+        // Prepare a server-sent event stream with one chunk per event
+        String sseBody = "data: " + gson.toJson(createMockResponse("Why do ")) + "\r\n\r\n" +
+                "data: " + gson.toJson(createMockResponse("programmers ")) + "\r\n\r\n" +
+                "data: " + gson.toJson(createMockResponse("prefer dark mode?")) + "\r\n\r\n";
+        
+        // Setup WireMock stub that dribbles the stream out in chunks
+        stubFor(post(urlEqualTo("/v1/projects/test-project/locations/test-location/publishers/google/models/gemini-flash:streamGenerateContent?alt=sse"))
+                .withHeader("Authorization", equalTo("Bearer mock-access-token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/event-stream")
+                        .withBody(sseBody)
+                        .withChunkedDribbleDelay(6, 300)));
+        
+        // Call the method under test
+        List<String> chunks = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+        vertexAiClient.streamGenerateContent(GeminiRequest.createTextRequest("Test prompt"), new GeminiStreamListener() {
+            @Override
+            public void onCandidate(GeminiResponse.Candidate candidate) {
+                chunks.add(candidate.getContent().getParts().get(0).getText());
+            }
+            
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+        
+        // Verify every chunk was delivered in order
+        assertEquals(List.of("Why do ", "programmers ", "prefer dark mode?"), chunks);
+        assertTrue(completed.get());
+        verify(mockAuthService, times(1)).getAccessToken();
+    }
+    
+    @Test
+    public void testStreamGenerateContent_ApiError() throws IOException {
+        stubFor(post(urlPathMatching(".*/gemini-flash:streamGenerateContent"))
+                .willReturn(aResponse()
+                        .withStatus(429)
+                        .withBody("{\"error\": {\"code\": 429, \"message\": \"Quota exceeded\"}}")));
+        
+        IOException exception = assertThrows(IOException.class, () -> {
+            vertexAiClient.streamGenerateContent(GeminiRequest.createTextRequest("Test prompt"), candidate -> { });
+        });
         
-        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
-        GeminiRequest.Content content = new GeminiRequest.Content();
-        GeminiRequest.Part part = new GeminiRequest.Part();
+        assertTrue(exception.getMessage().contains("429"));
+    }
+    
+    @Test
+    public void testStreamGenerateContent_GuardedByCircuitBreakerAndLimiter() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:streamGenerateContent"))
+                .willReturn(aResponse().withStatus(503).withBody("unavailable")));
         
-        part.setText(text);
-        content.setParts(java.util.List.of(part));
-        candidate.setContent(content);
-        candidate.setFinishReason("STOP");
-        candidate.setIndex(0);
+        CircuitBreakerConfig breakerConfig = new CircuitBreakerConfig();
+        breakerConfig.setSlidingWindowSize(4);
+        breakerConfig.setMinimumNumberOfCalls(4);
+        CircuitBreaker breaker = new CircuitBreaker("vertex-ai", breakerConfig);
+        vertexAiClient.setCircuitBreaker(breaker);
+        ModelRateLimiter limiter = new ModelRateLimiter(new RateLimitConfig());
+        vertexAiClient.setRateLimiter(limiter);
         
-        response.setCandidates(java.util.List.of(candidate));
+        GeminiRequest request = GeminiRequest.createTextRequest("Test prompt");
+        for (int i = 0; i < 4; i++) {
+            assertThrows(VertexAiException.class, () -> vertexAiClient.streamGenerateContent(request, candidate -> { }));
+        }
         
-        return response;
+        // Stream failures open the circuit, which then fails streams fast
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CallNotPermittedException.class, () -> vertexAiClient.streamGenerateContent(request, candidate -> { }));
+        verify(4, postRequestedFor(urlPathMatching(".*/gemini-flash:streamGenerateContent")));
+        assertEquals(0, limiter.getInFlight("google/gemini-flash"));
     }
 }
@@ -2,6 +2,7 @@ package org.poc.ai.integration;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.auth.oauth2.AccessToken;
 import com.google.gson.Gson;
 import okhttp3.OkHttpClient;
 import org.junit.jupiter.api.AfterEach;
@@ -16,10 +17,12 @@ import org.poc.ai.model.GeminiResponse;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Date;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
 
 /**
  * Integration test that demonstrates mocking both Google authentication and Vertex AI calls
@@ -109,6 +112,24 @@ public class GeminiClientIntegrationTest {
         verify(postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
     }
     
+    @Test
+    public void testAccessTokenIsReusedAcrossCalls() throws IOException {
+        setupVertexAiMock("Tell me a joke about programming", "A cached token walks into a bar...");
+        
+        GeminiRequest request = GeminiRequest.createTextRequest("Tell me a joke about programming");
+        
+        // Call the Gemini model several times
+        for (int i = 0; i < 3; i++) {
+            vertexAiClient.generateContent(request);
+        }
+        
+        // The token endpoint is only hit once, every call reuses the cached token
+        verify(1, postRequestedFor(urlEqualTo("/token")));
+        verify(3, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent")));
+        assertEquals(1, authService.getRefreshCount());
+        assertEquals(2, authService.getCacheHitCount());
+    }
+    
     /**
      * Sets up the mock for Google authentication
      */
@@ -138,27 +159,6 @@ public class GeminiClientIntegrationTest {
                         .withBody(mockResponseJson)));
     }
     
-    /**
-     * Helper method to create a mock GeminiResponse
-     */
-    private GeminiResponse createMockResponse(String text) {
-        GeminiResponse response = new GeminiResponse();
-        
-        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
-        GeminiRequest.Content content = new GeminiRequest.Content();
-        GeminiRequest.Part part = new GeminiRequest.Part();
-        
-        part.setText(text);
-        content.setParts(java.util.List.of(part));
-        candidate.setContent(content);
-        candidate.setFinishReason("STOP");
-        candidate.setIndex(0);
-        
-        response.setCandidates(java.util.List.of(candidate));
-        
-        return response;
-    }
-    
     /**
      * Test implementation of GoogleAuthService that uses WireMock
      */
@@ -172,7 +172,7 @@ public class GeminiClientIntegrationTest {
         }
         
         @Override
-        public String getAccessToken() throws IOException {
+        protected AccessToken fetchToken() throws IOException {
             // For testing, we'll simulate the token request to the WireMock server
             try {
                 // Make a POST request to the token endpoint
@@ -192,7 +192,7 @@ public class GeminiClientIntegrationTest {
                             (response.body() != null ? response.body().string() : ""));
                 }
                 
-                return "mock-access-token";
+                return new AccessToken("mock-access-token", new Date(System.currentTimeMillis() + 3600 * 1000L));
             } catch (Exception e) {
                 throw new IOException("Error getting access token: " + e.getMessage(), e);
             }
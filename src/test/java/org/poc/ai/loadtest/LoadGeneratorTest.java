@@ -0,0 +1,124 @@
+package org.poc.ai.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.gson.Gson;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.StaticTokenAuthService;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.model.GeminiRequest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.poc.ai.testing.TestResponses.createMockResponse;
+
+/**
+ * Tests for the LoadGenerator against a WireMock endpoint
+ */
+public class LoadGeneratorTest {
+    
+    private WireMockServer wireMockServer;
+    private VertexAiClient vertexAiClient;
+    private final Gson gson = new Gson();
+    
+    @BeforeEach
+    public void setup() {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        WireMock.configureFor("localhost", wireMockServer.port());
+        
+        vertexAiClient = new VertexAiClient(
+                new StaticTokenAuthService("load-test-token"),
+                new OkHttpClient(),
+                "test-project",
+                "test-location",
+                "google",
+                "gemini-flash",
+                wireMockServer.baseUrl()
+        );
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+    
+    @Test
+    public void testOpenModelSendsAtTargetRate() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(50)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(gson.toJson(createMockResponse("ok")))));
+        
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[] {"--qps=100", "--duration=1s"});
+        long started = System.nanoTime();
+        LoadTestResult result = new LoadGenerator(vertexAiClient, config,
+                new PromptSource(List.of("first", "second"), 0.0, 10), null).run();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        
+        // One request per scheduled slot, each recorded once
+        assertEquals(100, result.getSucceeded() + result.getFailed());
+        // Requests overlap rather than waiting for each other: one after another would take 5 s
+        assertTrue(elapsedMillis < 4000, "took " + elapsedMillis + " ms");
+        assertTrue(result.getLatencyMicros().getValueAtPercentile(50.0) >= 50_000);
+        verify(100, postRequestedFor(urlPathMatching(".*/gemini-flash:generateContent"))
+                .withHeader("Authorization", equalTo("Bearer load-test-token")));
+    }
+    
+    @Test
+    public void testFailuresAreGroupedByCause() throws Exception {
+        stubFor(post(urlPathMatching(".*/gemini-flash:generateContent"))
+                .willReturn(aResponse()
+                        .withStatus(429)
+                        .withBody("{\"error\": {\"code\": 429, \"message\": \"Quota exceeded\"}}")));
+        
+        LoadTestConfig config = new LoadTestConfig();
+        config.setConcurrency(2);
+        config.setDuration(Duration.ofMillis(300));
+        LoadTestResult result = new LoadGenerator(vertexAiClient, config,
+                new PromptSource(List.of("prompt"), 0.0, 10), null).run();
+        
+        assertEquals(0, result.getSucceeded());
+        assertTrue(result.getFailed() > 0);
+        assertEquals(result.getFailed(), result.getErrors().get("HTTP 429"));
+    }
+    
+    @Test
+    public void testRequestRejectedBeforeSendingIsRecorded() throws Exception {
+        VertexAiClient rejecting = mock(VertexAiClient.class);
+        when(rejecting.generateContentAsync(any(GeminiRequest.class))).thenThrow(new IllegalStateException("invalid request"));
+        
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[] {"--qps=100", "--duration=200ms", "--max-in-flight=1"});
+        LoadTestResult result = new LoadGenerator(rejecting, config,
+                new PromptSource(List.of("prompt"), 0.0, 10), null).run();
+        
+        // Every slot is handed back, so the run keeps going and ends on time
+        assertEquals(20, result.getFailed());
+        assertEquals(20, result.getErrors().get("IllegalStateException"));
+    }
+    
+    @Test
+    public void testOptionsAreParsed() {
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[] {
+                "--qps=25.5", "--duration=2m", "--warmup=500ms", "--prompts=prompts.txt", "--token=abc"});
+        
+        assertTrue(config.isOpenModel());
+        assertEquals(25.5, config.getTargetQps());
+        assertEquals(Duration.ofMinutes(2), config.getDuration());
+        assertEquals(Duration.ofMillis(500), config.getWarmup());
+        assertEquals("prompts.txt", config.getPromptsFile());
+        assertEquals("abc", config.getAccessToken());
+        assertThrows(IllegalArgumentException.class, () -> LoadTestConfig.fromArgs(new String[] {"--rate=5"}));
+    }
+}
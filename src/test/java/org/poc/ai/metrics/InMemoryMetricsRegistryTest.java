@@ -0,0 +1,54 @@
+package org.poc.ai.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the InMemoryMetricsRegistry
+ */
+public class InMemoryMetricsRegistryTest {
+    
+    @Test
+    public void testMetersAreIdentifiedByNameAndTagsInAnyOrder() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        
+        registry.counter("calls", "model", "a", "status", "200").increment();
+        registry.counter("calls", "status", "200", "model", "a").increment(2);
+        registry.counter("calls", "model", "b", "status", "200").increment();
+        
+        assertEquals(3, registry.findCounter("calls", "model", "a", "status", "200").getCount());
+        assertEquals(1, registry.findCounter("calls", "status", "200", "model", "b").getCount());
+        assertNull(registry.findCounter("calls", "model", "c"));
+        assertEquals(2, registry.getCounters().size());
+    }
+    
+    @Test
+    public void testTimerTracksPercentiles() {
+        HistogramTimer timer = new InMemoryMetricsRegistry().timer("latency");
+        for (int i = 1; i <= 100; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        
+        assertEquals(100, timer.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5050), timer.getTotalNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), timer.getMaxNanos());
+        long p50 = timer.getValueAtPercentile(50);
+        assertTrue(p50 >= TimeUnit.MILLISECONDS.toNanos(49) && p50 <= TimeUnit.MILLISECONDS.toNanos(52), "p50 was " + p50);
+    }
+    
+    @Test
+    public void testRejectsUnpairedTags() {
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryMetricsRegistry().timer("latency", "model"));
+    }
+    
+    @Test
+    public void testNoopRegistryRecordsNothing() {
+        Timer timer = MetricsRegistry.noop().timer("latency");
+        timer.record(1_000);
+        
+        assertEquals(0, timer.getCount());
+    }
+}
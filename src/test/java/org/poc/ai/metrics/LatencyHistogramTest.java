@@ -0,0 +1,43 @@
+package org.poc.ai.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the LatencyHistogram percentile computation
+ */
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, TimeUnit.NANOSECONDS.toMillis(histogram.getValueAtPercentile(50)), 500 * 0.04);
+        assertEquals(990, TimeUnit.NANOSECONDS.toMillis(histogram.getValueAtPercentile(99)), 990 * 0.04);
+        assertEquals(1000, TimeUnit.NANOSECONDS.toMillis(histogram.getValueAtPercentile(100)), 1000 * 0.04);
+    }
+    
+    @Test
+    public void testBucketsRoundTrip() {
+        for (long micros : new long[]{0, 1, 31, 32, 33, 1000, 123_456, 10_000_000_000L}) {
+            long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(micros));
+            assertTrue(upperBound >= micros);
+            assertTrue(upperBound <= micros * 1.04 + 1);
+        }
+    }
+    
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+}
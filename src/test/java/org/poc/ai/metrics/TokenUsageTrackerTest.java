@@ -0,0 +1,71 @@
+package org.poc.ai.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.poc.ai.model.GeminiResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TokenUsageTracker
+ */
+public class TokenUsageTrackerTest {
+    
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+    private final TokenUsageTracker tracker = new TokenUsageTracker(Duration.ofSeconds(10), clock::get);
+    
+    @Test
+    public void testAccumulatesPerModel() {
+        tracker.record("google/gemini-flash", usage(100, 20));
+        tracker.record("google/gemini-flash", usage(50, 30));
+        tracker.record("google/gemini-pro", usage(10, 5));
+        tracker.record("google/gemini-pro", null);
+        
+        TokenUsage flash = tracker.getUsage("google/gemini-flash");
+        assertEquals(2, flash.getCalls());
+        assertEquals(150, flash.getPromptTokens());
+        assertEquals(50, flash.getCandidatesTokens());
+        assertEquals(200, flash.getTotalTokens());
+        assertEquals(1, tracker.getUsage("google/gemini-pro").getCalls());
+        assertEquals(0, tracker.getUsage("google/unknown").getTotalTokens());
+        assertEquals(2, tracker.getAllUsage().size());
+    }
+    
+    @Test
+    public void testRateCoversOnlyTheRollingWindow() {
+        tracker.record("m", usage(400, 100));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        tracker.record("m", usage(400, 100));
+        
+        assertEquals(100.0, tracker.getTokensPerSecond("m"), 0.001);
+        
+        // The first call falls out of the ten-second window
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        assertEquals(50.0, tracker.getTokensPerSecond("m"), 0.001);
+        
+        // A bucket reused for a new second starts from zero
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        tracker.record("m", usage(10, 0));
+        assertEquals(1.0, tracker.getTokensPerSecond("m"), 0.001);
+        assertEquals(1010, tracker.getUsage("m").getTotalTokens());
+    }
+    
+    @Test
+    public void testEstimatesCostFromPrice() {
+        tracker.setPrice("m", 0.5, 2.0);
+        tracker.record("m", usage(2_000_000, 500_000));
+        
+        assertEquals(2.0, tracker.getUsage("m").getEstimatedCost(), 0.0001);
+    }
+    
+    private static GeminiResponse.UsageMetadata usage(int prompt, int candidates) {
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setPromptTokenCount(prompt);
+        usage.setCandidatesTokenCount(candidates);
+        usage.setTotalTokenCount(prompt + candidates);
+        return usage;
+    }
+}
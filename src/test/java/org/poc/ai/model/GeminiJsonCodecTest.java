@@ -0,0 +1,198 @@
+package org.poc.ai.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that GeminiJsonCodec matches the reflective Gson representation
+ */
+public class GeminiJsonCodecTest {
+    
+    private final Gson gson = new Gson();
+    
+    @Test
+    public void testRequestMatchesGsonOutput() throws IOException {
+        GeminiRequest request = GeminiRequest.createTextRequest(
+                "Quote \"this\", escape \\ <b>tags</b> & a='b'\n\ttab \u0001 caf\u00e9 \u2028\u2029 \ud83d\ude00");
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.7);
+        config.setMaxOutputTokens(1024);
+        config.setTopP(1e-7);
+        config.setCandidateCount(4);
+        request.setGenerationConfig(config);
+        GeminiRequest.SafetySetting setting = new GeminiRequest.SafetySetting();
+        setting.setCategory("HARM_CATEGORY_HARASSMENT");
+        request.setSafetySettings(new GeminiRequest.SafetySetting[] {setting, null});
+        request.setCachedContent("projects/p/locations/l/cachedContents/123");
+        GeminiRequest.Part instruction = new GeminiRequest.Part();
+        instruction.setText("Answer in <= 3 sentences");
+        GeminiRequest.Content system = new GeminiRequest.Content();
+        system.setParts(List.of(instruction));
+        request.setSystemInstruction(system);
+        
+        assertEquals(gson.toJson(request), write(request));
+    }
+    
+    @Test
+    public void testMinimalRequestMatchesGsonOutput() throws IOException {
+        assertEquals(gson.toJson(new GeminiRequest()), write(new GeminiRequest()));
+        assertEquals(gson.toJson(GeminiRequest.createTextRequest("")), write(GeminiRequest.createTextRequest("")));
+    }
+    
+    @Test
+    public void testResponseRoundTrip() throws IOException {
+        GeminiResponse response = new GeminiResponse();
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        part.setText("Line one\nLine <two>");
+        content.setParts(List.of(part));
+        content.setRole("model");
+        candidate.setContent(content);
+        candidate.setFinishReason("STOP");
+        candidate.setIndex(2);
+        GeminiResponse.SafetyRating rating = new GeminiResponse.SafetyRating();
+        rating.setCategory("HARM_CATEGORY_HATE_SPEECH");
+        rating.setProbability("NEGLIGIBLE");
+        candidate.setSafetyRatings(List.of(rating));
+        response.setCandidates(List.of(candidate));
+        GeminiResponse.PromptFeedback feedback = new GeminiResponse.PromptFeedback();
+        feedback.setSafetyRatings(List.of(rating));
+        response.setPromptFeedback(feedback);
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        usage.setPromptTokenCount(12);
+        usage.setCandidatesTokenCount(30);
+        usage.setTotalTokenCount(42);
+        usage.setCachedContentTokenCount(8);
+        response.setUsageMetadata(usage);
+        
+        Buffer buffer = new Buffer();
+        GeminiJsonCodec.writeResponse(response, buffer);
+        String json = buffer.readUtf8();
+        assertEquals(gson.toJson(response), json);
+        
+        GeminiResponse parsed = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(json));
+        assertEquals(json, gson.toJson(parsed));
+    }
+    
+    @Test
+    public void testReadSkipsUnknownFieldsAndNulls() throws IOException {
+        String json = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Hi\",\"thought\":false}],\"role\":null},"
+                + "\"index\":0,\"citationMetadata\":{\"citations\":[{\"startIndex\":1}]}}],"
+                + "\"promptFeedback\":null,\"modelVersion\":\"gemini-flash-001\"}";
+        
+        GeminiResponse parsed = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(json));
+        GeminiResponse expected = gson.fromJson(json, GeminiResponse.class);
+        
+        assertEquals("Hi", parsed.getGeneratedText());
+        assertEquals(gson.toJson(expected), gson.toJson(parsed));
+    }
+    
+    @Test
+    public void testMalformedJsonIsRejected() throws IOException {
+        assertThrows(JsonSyntaxException.class,
+                () -> GeminiJsonCodec.readResponse(new Buffer().writeUtf8("{\"candidates\": {}}")));
+        assertThrows(JsonSyntaxException.class,
+                () -> GeminiJsonCodec.readResponse(new Buffer().writeUtf8("{\"candidates\" [}")));
+        assertNull(GeminiJsonCodec.readResponse(new Buffer()));
+    }
+    
+    @Test
+    public void testStreamedPartsMatchStringParts(@TempDir Path dir) throws IOException {
+        // Moves U+2028 and an escape across the 8 KB read window one byte at a time
+        String head = "Quote \"this\" <b>&</b> a='b'\n\t\u0001 caf\u00e9 \ud83d\ude00 ";
+        for (int offset = 8187; offset <= 8193; offset++) {
+            StringBuilder builder = new StringBuilder(head);
+            while (builder.toString().getBytes(StandardCharsets.UTF_8).length < offset) {
+                builder.append('x');
+            }
+            String text = builder.append("\u2028\u2029\u2030\u00e2 \"end\"\n").toString();
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            Path file = Files.write(dir.resolve("prompt-" + offset + ".txt"), utf8);
+            
+            String expected = gson.toJson(GeminiRequest.createTextRequest(text));
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length).put(utf8).flip();
+            GeminiRequest fromBuffer = partRequest(GeminiRequest.Part.fromBuffer(direct));
+            
+            assertEquals(expected, write(partRequest(GeminiRequest.Part.fromFile(file))));
+            assertEquals(expected, write(fromBuffer));
+            // Sources are reopened from the start for each write, for example on a retry
+            assertEquals(expected, write(fromBuffer));
+            assertEquals(0, direct.position());
+        }
+    }
+    
+    @Test
+    public void testMultimodalPartsMatchGsonOutput(@TempDir Path dir) throws IOException {
+        // Around the 6 KB encode chunk, with each amount of padding
+        for (int length : new int[] {0, 1, 2, 3, 6 * 1024, 6 * 1024 + 1, 12 * 1024 + 2}) {
+            byte[] image = new byte[length];
+            new Random(length).nextBytes(image);
+            Path file = Files.write(dir.resolve("image-" + length + ".png"), image);
+            
+            GeminiRequest.Blob blob = new GeminiRequest.Blob();
+            blob.setMimeType("image/png");
+            blob.setData(Base64.getEncoder().encodeToString(image));
+            GeminiRequest.Part inMemory = new GeminiRequest.Part();
+            inMemory.setInlineData(blob);
+            GeminiRequest expected = GeminiRequest.createTextRequest("Describe these");
+            expected.getContents().get(0).setParts(List.of(expected.getContents().get(0).getParts().get(0), inMemory,
+                    GeminiRequest.Part.fileData("application/pdf", "gs://bucket/report.pdf")));
+            
+            GeminiRequest streamed = GeminiRequest.createTextRequest("Describe these");
+            streamed.getContents().get(0).setParts(List.of(streamed.getContents().get(0).getParts().get(0),
+                    GeminiRequest.Part.inlineData("image/png", file),
+                    GeminiRequest.Part.fileData("application/pdf", "gs://bucket/report.pdf")));
+            
+            assertEquals(gson.toJson(expected), write(streamed));
+            assertEquals(gson.toJson(expected), write(expected));
+        }
+    }
+    
+    @Test
+    public void testReadsInlineDataWithoutDecoding() throws IOException {
+        byte[] image = new byte[10_000];
+        new Random(1).nextBytes(image);
+        String json = "{\"candidates\":[{\"content\":{\"parts\":[{\"inlineData\":{\"mimeType\":\"image/png\",\"data\":\""
+                + Base64.getEncoder().encodeToString(image) + "\"}},{\"fileData\":{\"mimeType\":\"application/pdf\","
+                + "\"fileUri\":\"gs://bucket/a.pdf\"}},{\"text\":\"A chart\"}],\"role\":\"model\"},\"index\":0}]}";
+        
+        GeminiResponse response = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(json));
+        
+        List<GeminiRequest.Part> parts = response.getCandidates().get(0).getContent().getParts();
+        assertEquals("image/png", parts.get(0).getInlineData().getMimeType());
+        try (InputStream data = parts.get(0).getInlineData().openData()) {
+            assertArrayEquals(image, data.readAllBytes());
+        }
+        assertEquals("gs://bucket/a.pdf", parts.get(1).getFileData().getFileUri());
+        assertEquals("A chart", response.getGeneratedText());
+        assertEquals(gson.toJson(response), gson.toJson(gson.fromJson(json, GeminiResponse.class)));
+    }
+    
+    private static GeminiRequest partRequest(GeminiRequest.Part part) {
+        GeminiRequest request = GeminiRequest.createTextRequest(null);
+        request.getContents().get(0).setParts(List.of(part));
+        return request;
+    }
+    
+    private String write(GeminiRequest request) throws IOException {
+        Buffer buffer = new Buffer();
+        GeminiJsonCodec.writeRequest(request, buffer);
+        return buffer.readUtf8();
+    }
+}
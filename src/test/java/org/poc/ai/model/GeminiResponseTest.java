@@ -0,0 +1,115 @@
+package org.poc.ai.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for assembling text from multi-part and multi-candidate responses
+ */
+public class GeminiResponseTest {
+    
+    @Test
+    public void testFullTextJoinsAllTextParts() {
+        GeminiResponse response = response(
+                candidate("The answer ", null, "", "continues ", "here."),
+                candidate("Second"));
+        
+        assertEquals("The answer ", response.getGeneratedText());
+        assertEquals("The answer continues here.", response.getFullText());
+        assertEquals(List.of("The answer continues here.", "Second"), response.getCandidateTexts());
+    }
+    
+    @Test
+    public void testSinglePartIsNotCopied() {
+        String text = "Only part";
+        GeminiResponse response = response(candidate(text));
+        
+        assertSame(text, response.getFullText());
+    }
+    
+    @Test
+    public void testMissingTextIsEmpty() {
+        assertEquals("", new GeminiResponse().getFullText());
+        assertEquals(List.of(), new GeminiResponse().getCandidateTexts());
+        assertNull(new GeminiResponse().getBestCandidate(CharSequence::length));
+        
+        GeminiResponse.Candidate imageOnly = new GeminiResponse.Candidate();
+        imageOnly.setContent(new GeminiRequest.Content());
+        imageOnly.getContent().setParts(List.of(GeminiRequest.Part.fileData("image/png", "gs://b/a.png")));
+        assertEquals("", response(imageOnly).getFullText());
+        assertTrue(imageOnly.getTextView().isEmpty());
+    }
+    
+    @Test
+    public void testTextViewReadsAcrossParts() {
+        CandidateText view = candidate("abc", "", "de", "fghij").getTextView();
+        
+        assertEquals(3, view.getPartCount());
+        assertEquals(10, view.length());
+        StringBuilder forward = new StringBuilder();
+        for (int i = 0; i < view.length(); i++) {
+            forward.append(view.charAt(i));
+        }
+        assertEquals("abcdefghij", forward.toString());
+        assertEquals('j', view.charAt(9));
+        assertEquals('a', view.charAt(0));
+        assertEquals("cdef", view.subSequence(2, 6).toString());
+        assertEquals("de", view.subSequence(3, 5).toString());
+        assertEquals("", view.subSequence(4, 4).toString());
+        assertEquals("abcdefghij", view.chars().collect(StringBuilder::new, StringBuilder::appendCodePoint,
+                StringBuilder::append).toString());
+        assertTrue(Pattern.compile("cdefg").matcher(view).find());
+        assertEquals(">abcdefghij", view.appendTo(new StringBuilder(">")).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.charAt(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.subSequence(5, 11));
+    }
+    
+    @Test
+    public void testBestCandidate() {
+        GeminiResponse response = response(
+                candidate("short"),
+                null,
+                candidate("the longest ", "answer"),
+                candidate("the longest answe", "r"));
+        
+        GeminiResponse.Candidate best = response.getBestCandidate(CharSequence::length);
+        
+        // Ties go to the earliest candidate
+        assertEquals(2, best.getIndex());
+        assertEquals("the longest answer", best.getText());
+        assertEquals(0, response.getBestCandidate(text -> -text.length()).getIndex());
+    }
+    
+    private static GeminiResponse response(GeminiResponse.Candidate... candidates) {
+        List<GeminiResponse.Candidate> list = new ArrayList<>(Arrays.asList(candidates));
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) != null) {
+                list.get(i).setIndex(i);
+            }
+        }
+        GeminiResponse response = new GeminiResponse();
+        response.setCandidates(list);
+        return response;
+    }
+    
+    private static GeminiResponse.Candidate candidate(String... texts) {
+        List<GeminiRequest.Part> parts = new ArrayList<>();
+        for (String text : texts) {
+            GeminiRequest.Part part = new GeminiRequest.Part();
+            part.setText(text);
+            parts.add(part);
+        }
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        content.setParts(parts);
+        content.setRole("model");
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        candidate.setContent(content);
+        return candidate;
+    }
+}
@@ -0,0 +1,117 @@
+package org.poc.ai.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that LazyGeminiResponse answers like an eagerly parsed response
+ */
+public class LazyGeminiResponseTest {
+    
+    private static final String RESPONSE = "{\"candidates\":[{\"content\":{\"parts\":["
+            + "{\"inlineData\":{\"mimeType\":\"image/png\",\"data\":\"iVBORw0K\"}},{\"text\":null},"
+            + "{\"text\":\"Line one\\nLine <two>\"},{\"text\":\"ignored\"}],\"role\":\"model\"},"
+            + "\"finishReason\":\"STOP\",\"index\":0,\"safetyRatings\":[{\"category\":\"HARM_CATEGORY_HATE_SPEECH\","
+            + "\"probability\":\"NEGLIGIBLE\"}]},{\"content\":{\"parts\":[{\"text\":\"second\"}]},\"index\":1}],"
+            + "\"promptFeedback\":{\"safetyRatings\":[]},"
+            + "\"usageMetadata\":{\"promptTokenCount\":12,\"candidatesTokenCount\":30,\"totalTokenCount\":42}}";
+    
+    private final Gson gson = new Gson();
+    
+    @Test
+    public void testScansWithoutParsing() throws IOException {
+        LazyGeminiResponse response = lazy(RESPONSE);
+        
+        assertEquals("Line one\nLine <two>", response.getGeneratedText());
+        assertEquals(42, response.getUsageMetadata().getTotalTokenCount());
+        assertEquals(12, response.getUsageMetadata().getPromptTokenCount());
+        assertFalse(response.isParsed());
+    }
+    
+    @Test
+    public void testTextMatchesEagerParsing() throws IOException {
+        String[] documents = {
+                RESPONSE,
+                "{}",
+                "{\"candidates\":[]}",
+                "{\"candidates\":null}",
+                "{\"candidates\":[{\"index\":0}]}",
+                "{\"candidates\":[{\"content\":{\"role\":\"model\"}}]}",
+                "{\"candidates\":[{\"content\":null,\"index\":0},{\"content\":{\"parts\":null,\"role\":\"model\"}}]}",
+                "{\"candidates\":[{\"content\":{\"parts\":null,\"role\":\"model\"},\"finishReason\":\"STOP\"}]}",
+                "{\"candidates\":[{\"content\":{\"parts\":[{\"fileData\":{\"fileUri\":\"gs://b/a\"}}]}},"
+                        + "{\"content\":{\"parts\":[{\"text\":\"second\"}]}}]}",
+                "{\"usageMetadata\":{\"totalTokenCount\":1},\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"last\"}]}}]}"
+        };
+        for (String json : documents) {
+            GeminiResponse eager = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(json));
+            LazyGeminiResponse lazy = lazy(json);
+            
+            assertEquals(eager.getGeneratedText(), lazy.getGeneratedText(), json);
+            assertEquals(gson.toJson(eager.getUsageMetadata()), gson.toJson(lazy.getUsageMetadata()), json);
+            // Usage first reads both in one pass
+            LazyGeminiResponse usageFirst = lazy(json);
+            assertEquals(gson.toJson(eager.getUsageMetadata()), gson.toJson(usageFirst.getUsageMetadata()), json);
+            assertEquals(eager.getGeneratedText(), usageFirst.getGeneratedText(), json);
+        }
+    }
+    
+    @Test
+    public void testOtherGettersParseOnce() throws IOException {
+        LazyGeminiResponse response = lazy(RESPONSE);
+        
+        assertEquals(2, response.getCandidates().size());
+        assertTrue(response.isParsed());
+        assertSame(response.getCandidates(), response.getCandidates());
+        assertEquals("HARM_CATEGORY_HATE_SPEECH",
+                response.getCandidates().get(0).getSafetyRatings().get(0).getCategory());
+        assertEquals("Line one\nLine <two>", response.getGeneratedText());
+        
+        GeminiResponse eager = GeminiJsonCodec.readResponse(new Buffer().writeUtf8(RESPONSE));
+        Buffer written = new Buffer();
+        GeminiJsonCodec.writeResponse(response, written);
+        assertEquals(gson.toJson(eager), written.readUtf8());
+    }
+    
+    @Test
+    public void testUnparsedResponseIsWrittenAsReceived() throws IOException {
+        LazyGeminiResponse response = lazy(RESPONSE);
+        response.getGeneratedText();
+        
+        Buffer written = new Buffer();
+        GeminiJsonCodec.writeResponse(response, written);
+        
+        assertEquals(RESPONSE, written.readUtf8());
+        // Still readable after the raw bytes have been copied out
+        assertEquals(2, response.getCandidates().size());
+    }
+    
+    @Test
+    public void testSetterReplacesParsedField() throws IOException {
+        LazyGeminiResponse response = lazy(RESPONSE);
+        
+        response.setUsageMetadata(null);
+        
+        assertNull(response.getUsageMetadata());
+        assertEquals(2, response.getCandidates().size());
+    }
+    
+    @Test
+    public void testMalformedJsonFailsOnAccess() throws IOException {
+        assertNull(LazyGeminiResponse.read(new Buffer()));
+        LazyGeminiResponse response = lazy("{\"candidates\":[{\"content\":");
+        
+        assertThrows(JsonSyntaxException.class, response::getGeneratedText);
+        assertThrows(JsonSyntaxException.class, response::getCandidates);
+    }
+    
+    private static LazyGeminiResponse lazy(String json) throws IOException {
+        return LazyGeminiResponse.read(new Buffer().writeUtf8(json));
+    }
+}
@@ -0,0 +1,98 @@
+package org.poc.ai.model;
+
+import com.google.gson.Gson;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for pre-serialized prompt templates
+ */
+public class PromptTemplateTest {
+    
+    private static final String TRICKY = "Quote \"this\", escape \\ <b>tags</b> & a='b'\n\ttab \u0001 caf\u00e9 \u2028\u2029 \ud83d\ude00";
+    
+    private final Gson gson = new Gson();
+    
+    @Test
+    public void testOutputMatchesGson() throws IOException {
+        PromptTemplate template = PromptTemplate.compile(prototype("Review this: " + PromptTemplate.DEFAULT_SLOT));
+        
+        for (String text : List.of(TRICKY, "", "plain")) {
+            assertEquals(gson.toJson(prototype("Review this: " + text)), write(template.newRequest(text)));
+        }
+    }
+    
+    @Test
+    public void testCustomSlot() throws IOException {
+        PromptTemplate template = PromptTemplate.compile(prototype("<question>"), "<question>");
+        
+        assertEquals(gson.toJson(prototype(TRICKY)), write(template.newRequest(TRICKY)));
+    }
+    
+    @Test
+    public void testSlotMustOccurOnce() {
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.compile(prototype("no slot")));
+        
+        GeminiRequest twice = prototype(PromptTemplate.DEFAULT_SLOT);
+        twice.getSystemInstruction().getParts().get(0).setText(PromptTemplate.DEFAULT_SLOT);
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.compile(twice));
+    }
+    
+    @Test
+    public void testTemplateIsDetachedFromPrototype() throws IOException {
+        GeminiRequest prototype = prototype(PromptTemplate.DEFAULT_SLOT);
+        PromptTemplate template = PromptTemplate.compile(prototype);
+        String expected = gson.toJson(prototype("Hi"));
+        
+        prototype.getGenerationConfig().setTemperature(1.0);
+        prototype.setCachedContent("projects/p/locations/l/cachedContents/1");
+        
+        assertEquals(expected, write(template.newRequest("Hi")));
+        assertEquals(0.0, template.newRequest("Hi").getGenerationConfig().getTemperature());
+        assertNull(template.newRequest("Hi").getCachedContent());
+    }
+    
+    @Test
+    public void testRequestExposesSnapshotFields() {
+        GeminiRequest prototype = prototype(PromptTemplate.DEFAULT_SLOT);
+        prototype.setCachedContent("projects/p/locations/l/cachedContents/1");
+        EncodedRequest request = PromptTemplate.compile(prototype).newRequest("Hi");
+        
+        assertEquals(0.0, request.getGenerationConfig().getTemperature());
+        assertEquals(256, request.getGenerationConfig().getMaxOutputTokens());
+        assertEquals("projects/p/locations/l/cachedContents/1", request.getCachedContent());
+        
+        // The config is a copy, so changing it does not affect the template
+        request.getGenerationConfig().setTemperature(1.0);
+        assertEquals(0.0, request.getGenerationConfig().getTemperature());
+    }
+    
+    private static GeminiRequest prototype(String text) {
+        GeminiRequest request = GeminiRequest.createTextRequest(text);
+        GeminiRequest.Part instruction = new GeminiRequest.Part();
+        instruction.setText("You are a terse reviewer");
+        GeminiRequest.Content system = new GeminiRequest.Content();
+        system.setParts(List.of(instruction));
+        request.setSystemInstruction(system);
+        GeminiRequest.GenerationConfig config = new GeminiRequest.GenerationConfig();
+        config.setTemperature(0.0);
+        config.setMaxOutputTokens(256);
+        request.setGenerationConfig(config);
+        GeminiRequest.SafetySetting setting = new GeminiRequest.SafetySetting();
+        setting.setCategory("HARM_CATEGORY_HARASSMENT");
+        setting.setThreshold("BLOCK_ONLY_HIGH");
+        request.setSafetySettings(new GeminiRequest.SafetySetting[] {setting});
+        return request;
+    }
+    
+    private static String write(EncodedRequest request) throws IOException {
+        Buffer buffer = new Buffer();
+        request.writeTo(buffer);
+        return buffer.readUtf8();
+    }
+}
@@ -0,0 +1,148 @@
+package org.poc.ai.stub;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.poc.ai.auth.StaticTokenAuthService;
+import org.poc.ai.client.GeminiStreamListener;
+import org.poc.ai.client.VertexAiClient;
+import org.poc.ai.client.VertexAiException;
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the VertexStubServer, driven through the real client
+ */
+public class VertexStubServerTest {
+    
+    private VertexStubServer server;
+    
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+    
+    @Test
+    public void testGenerateContent() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setResponseTokens(4);
+        config.setCandidates(2);
+        server = new VertexStubServer(config);
+        
+        GeminiResponse response = client().generateContent(GeminiRequest.createTextRequest("Hello"));
+        
+        assertEquals(2, response.getCandidates().size());
+        assertEquals("the model answers with ", response.getGeneratedText());
+        assertEquals("STOP", response.getCandidates().get(0).getFinishReason());
+        assertEquals(1, server.getRequestCount());
+    }
+    
+    @Test
+    public void testStreamIsChunkedAndPaced() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setResponseTokens(10);
+        config.setStreamChunkTokens(2);
+        config.setStreamTokensPerSecond(100);
+        server = new VertexStubServer(config);
+        
+        VertexAiClient client = client();
+        List<GeminiResponse.Candidate> chunks = new ArrayList<>();
+        long start = System.nanoTime();
+        client.streamGenerateContent(GeminiRequest.createTextRequest("Hello"), new GeminiStreamListener() {
+            @Override
+            public void onCandidate(GeminiResponse.Candidate candidate) {
+                chunks.add(candidate);
+            }
+        });
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertEquals(5, chunks.size());
+        assertEquals("the model ", chunks.get(0).getContent().getParts().get(0).getText());
+        assertNull(chunks.get(0).getFinishReason());
+        assertEquals("STOP", chunks.get(4).getFinishReason());
+        // Four gaps of 20 ms between the five chunks
+        assertTrue(elapsedMillis >= 80, "Stream finished after only " + elapsedMillis + " ms");
+        // Only the final running total is counted
+        assertEquals(10, client.getTokenUsageTracker().getUsage(client.getModelKey()).getCandidatesTokens());
+    }
+    
+    @Test
+    public void testInjectedErrors() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setErrorRate(1.0);
+        config.setErrorStatus(503);
+        server = new VertexStubServer(config);
+        
+        VertexAiException e = assertThrows(VertexAiException.class,
+                () -> client().generateContent(GeminiRequest.createTextRequest("Hello")));
+        
+        assertEquals(503, e.getStatusCode());
+        assertEquals(1, server.getInjectedErrorCount());
+    }
+    
+    @Test
+    public void testQuotaThrottles() throws IOException {
+        StubServerConfig config = new StubServerConfig();
+        config.setQuotaPerSecond(2);
+        server = new VertexStubServer(config);
+        VertexAiClient client = client();
+        GeminiRequest request = GeminiRequest.createTextRequest("Hello");
+        
+        // Retry the burst if it happens to straddle a window boundary
+        VertexAiException throttled = null;
+        for (int attempt = 0; attempt < 3 && throttled == null; attempt++) {
+            for (int i = 0; i < 3 && throttled == null; i++) {
+                try {
+                    client.generateContent(request);
+                } catch (VertexAiException e) {
+                    throttled = e;
+                }
+            }
+        }
+        
+        assertNotNull(throttled);
+        assertEquals(429, throttled.getStatusCode());
+        assertEquals(1, throttled.getRetryAfter().getSeconds());
+        assertTrue(server.getThrottledCount() >= 1);
+    }
+    
+    @Test
+    public void testTokenEndpoint() throws IOException {
+        server = new VertexStubServer(new StubServerConfig());
+        
+        Request request = new Request.Builder()
+                .url(server.getBaseUrl() + "/token")
+                .post(RequestBody.create("grant_type=jwt", MediaType.get("application/x-www-form-urlencoded")))
+                .build();
+        try (Response response = new OkHttpClient().newCall(request).execute()) {
+            assertEquals(200, response.code());
+            String body = response.body().string();
+            assertTrue(body.contains("\"access_token\":\"stub-access-token\""));
+            assertTrue(body.contains("\"expires_in\":3600"));
+        }
+        assertEquals(1, server.getTokensIssued());
+    }
+    
+    @Test
+    public void testEmptyResponsesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> StubServerConfig.fromArgs(new String[]{"--response-tokens=0"}));
+        assertThrows(IllegalArgumentException.class, () -> StubServerConfig.fromArgs(new String[]{"--candidates=0"}));
+    }
+    
+    private VertexAiClient client() {
+        return new VertexAiClient(new StaticTokenAuthService("stub-access-token"), new OkHttpClient(),
+                "stub-project", "us-central1", "google", "gemini-flash", server.getBaseUrl());
+    }
+}
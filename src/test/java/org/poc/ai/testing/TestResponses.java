@@ -0,0 +1,36 @@
+package org.poc.ai.testing;
+
+import org.poc.ai.model.GeminiRequest;
+import org.poc.ai.model.GeminiResponse;
+
+import java.util.List;
+
+/**
+ * Canned Gemini responses shared by the tests
+ */
+public final class TestResponses {
+    
+    private TestResponses() {
+    }
+    
+    /**
+     * @return a finished response with a single candidate holding the given text
+     */
+    public static GeminiResponse createMockResponse(String text) {
+        GeminiResponse response = new GeminiResponse();
+        
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        GeminiRequest.Content content = new GeminiRequest.Content();
+        GeminiRequest.Part part = new GeminiRequest.Part();
+        
+        part.setText(text);
+        content.setParts(List.of(part));
+        candidate.setContent(content);
+        candidate.setFinishReason("STOP");
+        candidate.setIndex(0);
+        
+        response.setCandidates(List.of(candidate));
+        
+        return response;
+    }
+}